@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package game.engine;
+
+/**
+ * Defines a compact integer code for the actions of a game, used for binary 
+ * logging. The games that implement this interface can be logged in binary 
+ * format.
+ * @param <A> action type of the game
+ */
+public interface ActionCodec<A extends Action> {
+  /**
+   * Returns the non-negative code of the specified action, null actions have 
+   * to be encoded too.
+   * @param action to be encoded
+   * @return non-negative code of the action
+   */
+  public int encode(A action);
+  
+  /**
+   * Returns the action of the specified code.
+   * @param code to be decoded
+   * @return action of the code
+   */
+  public A decode(int code);
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+
+package game.engine;
+
+/**
+ * Optional contract of the players that can return an action at any time. 
+ * The engine hands a {@link Deadline} token to the player once, before its 
+ * first action; in every action the player publishes its best action so far 
+ * to the token. The soft deadline of a move is its share of the clock (see 
+ * {@link EngineOptions#moveTime}). The player should return soon after it, 
+ * there is a short grace period for it; if it has not returned by the hard 
+ * deadline (the end of the grace period), the engine takes the published action 
+ * instead of timing out the player, and charges the time until then (the 
+ * result of a late return is dropped). The player should publish an action 
+ * early, a move without a published action times out as usual.
+ */
+public interface AnytimePlayer {
+  /**
+   * Sets the deadline token of the player.
+   * @param deadline token of the soft deadlines of the moves
+   */
+  public void setDeadline(Deadline deadline);
+}
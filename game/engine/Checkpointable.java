@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package game.engine;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Defines the saving and restoring of the full state of a game, the replays 
+ * of the games that implement this interface can be sought.
+ */
+public interface Checkpointable {
+  /**
+   * Writes the full state of the game (including the states of its players) 
+   * to the specified output.
+   * @param out state is written to
+   * @throws IOException file IO
+   */
+  public void saveState(DataOutput out) throws IOException;
+  
+  /**
+   * Restores the state of the game (including the states of its players) 
+   * from the specified input, was written by {@link Checkpointable#saveState(DataOutput)}.
+   * @param in state is read from
+   * @throws IOException file IO or invalid state
+   */
+  public void loadState(DataInput in) throws IOException;
+}
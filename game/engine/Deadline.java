@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+
+package game.engine;
+
+/**
+ * Deadline token of an {@link AnytimePlayer}. The engine sets the soft 
+ * deadline of every action of the player, the player checks it cheaply by 
+ * {@link Deadline#isExpired()} and publishes its best action so far by 
+ * {@link Deadline#publish(int, Action)}. If the player has not returned by 
+ * the deadline, the engine takes the published action instead of timing out.
+ * <p>
+ * The published actions are tagged by the move they belong to (see 
+ * {@link Deadline#getMove()}), so a late publish of a previous move does not 
+ * affect the current one.
+ */
+public final class Deadline {
+  private volatile long deadline;
+  private volatile int move;
+  private Action best;
+  
+  /**
+   * Starts a new move with the specified budget (called by the engine).
+   * @param budget time of the move in nanoseconds
+   */
+  synchronized void start(long budget) {
+    move++;
+    best = null;
+    deadline = System.nanoTime() + budget;
+  }
+  
+  /**
+   * Returns the index of the current move, the actions are published with it.
+   * @return index of the move
+   */
+  public int getMove() {
+    return move;
+  }
+  
+  /**
+   * Returns true, iff the soft deadline of the current move has passed.
+   * @return true, if the player should return
+   */
+  public boolean isExpired() {
+    return deadline - System.nanoTime() <= 0;
+  }
+  
+  /**
+   * Returns true, iff the specified move is not the current one or the soft 
+   * deadline of the current move has passed. A computation of a timed out 
+   * move, that is still running, can stop by this.
+   * @param move index of the move the computation belongs to
+   * @return true, if the computation should return
+   */
+  public boolean isExpired(int move) {
+    return move != this.move || deadline - System.nanoTime() <= 0;
+  }
+  
+  /**
+   * Returns the remaining time until the soft deadline of the current move.
+   * @return remaining time in nanoseconds (negative if it has passed)
+   */
+  public long getRemaining() {
+    return deadline - System.nanoTime();
+  }
+  
+  /**
+   * Publishes the best action so far of the specified move, it is ignored if 
+   * the move is not the current one.
+   * @param move index of the move the action belongs to
+   * @param action best action so far
+   */
+  public synchronized void publish(int move, Action action) {
+    if (move == this.move) {
+      best = action;
+    }
+  }
+  
+  /**
+   * Returns the best published action of the current move.
+   * @return best action, null if nothing has been published
+   */
+  public synchronized Action getBest() {
+    return best;
+  }
+}
@@ -18,49 +18,50 @@
 
 package game.engine;
 
+import java.awt.Dimension;
 import java.awt.Frame;
+import java.awt.Graphics;
 import java.awt.image.BufferedImage;
-import java.io.BufferedReader;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
+import java.io.IOException;
 import java.io.PrintStream;
-import java.io.PrintWriter;
 import java.lang.management.ManagementFactory;
 import java.lang.reflect.Constructor;
-import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
-
-import javax.imageio.ImageIO;
-
-import com.google.gson.reflect.TypeToken;
 
+import game.engine.log.LogReader;
+import game.engine.log.LogWriter;
+import game.engine.log.Logs;
+import game.engine.log.ReplayIndex;
 import game.engine.ui.Drawable;
+import game.engine.ui.FrameExporter;
+import game.engine.ui.Renderable;
+import game.engine.ui.ReplayController;
 import game.engine.utils.ActionTask;
+import game.engine.utils.CaptureOutputStream;
 import game.engine.utils.ConstructionTask;
+import game.engine.utils.CpuLedger;
 import game.engine.utils.Pair;
-import game.engine.utils.StringBufferOutputStream;
+import game.engine.utils.PhaseTimer;
+import game.engine.utils.PhaseTimer.Phase;
+import game.engine.utils.PlayerThreadFactory;
+import game.engine.utils.PoolTaskExecutor;
+import game.engine.utils.TaskExecutor;
+import game.engine.utils.ThreadLocalPrintStream;
 import game.engine.utils.TimeOutTask;
-import game.engine.utils.Utils;
+import game.engine.utils.WorkerTaskExecutor;
 
 public final class Engine {
   
-  private static boolean isDebug;
-  private static boolean isZipFrames;
+  private final boolean isDebug;
+  private final boolean isZipFrames;
   private final double fps;
   private final boolean isDrawable;
+  private final boolean isRendered;
   
   // game related objects
   private final Game<Player<Action>, Action> game;
@@ -68,27 +69,49 @@ public final class Engine {
   private final List<Pair<Integer, Action>>[] prevActions;
   private final long[] remainingTimes;
   private final long[][] playerRemainingTimes;
+  private final Deadline[] deadlines;
+  private final long moveTime;
+  private final TimeReport report;
+  private final PhaseTimer timer;
+  private final String traceFile;
   
-  // to hide standard out and error
+  // to hide standard out and error, the writes of the player threads are 
+  // routed to the buffers of the engine they belong to
   private static final PrintStream defaultOut = System.out;
   private static final PrintStream defaultErr = System.err;
-  private static final StringBuffer sbOut = new StringBuffer();
-  private static final StringBuffer sbErr = new StringBuffer();
-  private static final PrintStream userOut = new PrintStream(new StringBufferOutputStream(sbOut));
-  private static final PrintStream userErr = new PrintStream(new StringBufferOutputStream(sbErr));
+  private static final ThreadLocalPrintStream routedOut = new ThreadLocalPrintStream(defaultOut);
+  private static final ThreadLocalPrintStream routedErr = new ThreadLocalPrintStream(defaultErr);
+  // the hard deadline of an anytime move leaves at least this fraction of the remaining time on the clock
+  private static final long CLOCK_RESERVE = 16;
+  // without a move time, an anytime move gets the remaining time divided by the estimated number of remaining 
+  // moves: at least this many, or as many as the player has made so far
+  private static final long MOVES_TO_GO = 32;
+  // the published action of an anytime move is taken this long after its soft deadline (in nanoseconds)
+  private static final long MOVE_GRACE = 20000000L;
+  // captured out and err channels of the players, indexed by color
+  private final List<PlayerOutput> captures = new ArrayList<PlayerOutput>();
+  private final PrintStream out;
+  private final PrintStream err;
 
   // for time measuring
-  private static final ActionTask actionTask = new ActionTask();
-  private static final ExecutorService service = Executors.newCachedThreadPool();
+  private final TaskExecutor executor;
+  private final ThreadGroup playerThreads;
+  // players constructed by the engine, they are closed at the end
+  private final List<Player<Action>> constructed = new ArrayList<Player<Action>>();
+  // CPU time of the thread groups of the players, indexed by color
+  private final List<CpuLedger> ledgers = new ArrayList<CpuLedger>();
   
   // for logging
-  private final Type logType;
+  private final String gameClass;
+  private final String[] params;
   private final String ofName;
-  private PrintWriter os;
-  private BufferedReader is;
+  private LogWriter os;
+  private LogReader is;
   private boolean isReplay = false;
-  private static final String LOGEND = "LOGEND";
-  private ZipOutputStream zipFrames = null;
+  private FrameExporter zipFrames = null;
+  private ReplayIndex index = null;
+  private int turn = 0;
+  private boolean released = false;
   
   static {
     ManagementFactory.getThreadMXBean().setThreadCpuTimeEnabled(true);
@@ -101,95 +124,391 @@ public final class Engine {
    * @param params parameters of the specified game
    * @throws Exception file IO, GSON, reflection
    */
-  @SuppressWarnings("unchecked")
   public Engine(double fps, String gameClass, String[] params) throws Exception {
-    long postfix = System.nanoTime() % (long)1E9;
-    Engine.isZipFrames = false;
-    Engine.isDebug = 0.0 != fps;
-    File f = new File(gameClass);
-    ofName = "gameplay_" + postfix + ".data";
-    if (f.exists()) {
-      Engine.isZipFrames = fps < 0.0;
-      zipFrames = Engine.isZipFrames ? new ZipOutputStream(new FileOutputStream(gameClass + ".zip")) : null;
-      // read game from file to replay
-      is = new BufferedReader(new InputStreamReader(new FileInputStream(f), "utf8"));
-      gameClass = Utils.getGson().fromJson(is.readLine(), String.class);
-      params = Utils.getGson().fromJson(is.readLine(), String[].class);
-      isReplay = true;
-    } else if (!isDebug) {
-      //create file for game replay
-      os = new PrintWriter(new OutputStreamWriter(new FileOutputStream(ofName), "utf8"), true);
-      os.println(Utils.getGson().toJson(gameClass));
-      os.println(Utils.getGson().toJson(params));
+    this(fps, gameClass, params, EngineOptions.fromSystemProperties(), defaultOut, defaultErr);
+  }
+
+  /**
+   * Creates an engine with the specified parameters, that prints its messages 
+   * to the specified streams. Several engines can be created and played 
+   * concurrently in the same JVM.
+   * @param fps debug parameter (frames per second)
+   * @param gameClass class of game will be player
+   * @param params parameters of the specified game
+   * @param options optional settings of the engine
+   * @param out engine messages are printed to
+   * @param err engine and game errors are printed to
+   * @throws Exception file IO, GSON, reflection
+   */
+  @SuppressWarnings("unchecked")
+  public Engine(double fps, String gameClass, String[] params, EngineOptions options, PrintStream out, PrintStream err) throws Exception {
+    this.out = out;
+    this.err = err;
+    this.isDebug = 0.0 != fps;
+    this.timer = options.trace == null ? PhaseTimer.DISABLED : new PhaseTimer();
+    this.traceFile = options.trace;
+    // the helper threads of a player are created in the group of the player, the time of the group is charged
+    playerThreads = options.cpu == EngineOptions.Accounting.GROUP ? new ThreadGroup("players") : null;
+    PlayerThreadFactory factory = new PlayerThreadFactory() {
+      @Override
+      public Thread newThread(int player, final Runnable runnable) {
+        CpuLedger ledger = ledger(player);
+        if (ledger == null) {
+          Thread thread = new Thread(runnable);
+          thread.setDaemon(true);
+          return thread;
+        }
+        // the time of the thread after its last sample is recorded at its end
+        Thread thread = new Thread(ledger.getGroup(), new Runnable() {
+          @Override
+          public void run() {
+            try {
+              runnable.run();
+            } finally {
+              CpuLedger.exit();
+            }
+          }
+        });
+        thread.setDaemon(true);
+        return thread;
+      }
+    };
+    switch (options.executor) {
+    case WORKER:
+      executor = new WorkerTaskExecutor(factory);
+      break;
+    default:
+      executor = new PoolTaskExecutor(factory);
+      break;
     }
+    // the threads of the executor and the exporter are released, if the construction fails
+    try {
+      File f = new File(gameClass);
+      if (f.exists()) {
+        ofName = null;
+        isZipFrames = fps < 0.0;
+        zipFrames = isZipFrames ? FrameExporter.open(options.frames != null ? options.frames : gameClass + ".zip") : null;
+        // read game from file to replay
+        is = Logs.open(f);
+        gameClass = is.getGameClass();
+        params = is.getParams();
+        isReplay = true;
+      } else if (!isDebug) {
+        isZipFrames = false;
+        //create file for game replay
+        ofName = createLogFile(options.log.extension);
+        os = Logs.create(ofName, options.log);
+        os.writeHeader(gameClass, params);
+      } else {
+        isZipFrames = fps < 0.0;
+        ofName = null;
+        zipFrames = isZipFrames ? FrameExporter.open(options.frames != null ? options.frames : createLogFile(".zip")) : null;
+      }
+      this.gameClass = gameClass;
+      this.params = params;
     
-    if (!isDebug) {
-      System.setOut(userOut);
-      System.setErr(userErr);
-    }
+      if (!isDebug) {
+        redirect();
+      }
     
-    // construct game, and the game initializes itself
-    game = (Game<Player<Action>, Action>) Class.forName(gameClass).getConstructor(PrintStream.class, boolean.class, String[].class).newInstance(new Object[] {defaultErr, isReplay, params});
-    long timeout = game.getTimeout();
-    // create type for gson logging
-    logType = TypeToken.getParameterized(Pair.class, new Type[] {game.getActionClass(), Long.class}).getType();
-    // construct players
-    List<Pair<Constructor<? extends Player<Action>>, Object[]>> playerConstructors = game.getPlayerConstructors();
-    if (playerConstructors != null) {
-      List<Pair<? extends Player<Action>, Long>> playersAndTimes = new LinkedList<Pair<? extends Player<Action>, Long>>();
-      for (Pair<Constructor<? extends Player<Action>>, Object[]> playerConstructor : playerConstructors) {
-        Pair<? extends Player<Action>, Long> constructed = construct(timeout, playerConstructor.first, playerConstructor.second);
-        if (isReplay) {
-          String line = is.readLine();
-          Pair<Object, Long> result = Utils.getGson().fromJson(line, TypeToken.getParameterized(Pair.class, new Type[] {Object.class, Long.class}).getType());
-          constructed = new Pair<Player<Action>, Long>(constructed.first, result.second);
-        } else if (!isDebug) {
-          os.println(Utils.getGson().toJson(new Pair<String, Long>(playerConstructor.first.getDeclaringClass().getCanonicalName(), constructed.second)));
+      // construct game, and the game initializes itself
+      long start = timer.begin();
+      game = (Game<Player<Action>, Action>) newGame(gameClass, err, isReplay, params);
+      timer.end(Phase.GAME, start);
+      long timeout = game.getTimeout();
+      // set game for encoding the actions of the log
+      if (isReplay) {
+        is.setGame(game);
+      } else if (!isDebug) {
+        os.setGame(game);
+      }
+      // turn index of the log: read or built on the fly in replay (also if the file is unreadable), written next to the log otherwise
+      if (game instanceof Checkpointable) {
+        int interval = 0 < options.indexInterval ? options.indexInterval : ReplayIndex.DEFAULT_INTERVAL;
+        if (isReplay && ReplayIndex.of(f).exists()) {
+          try {
+            index = ReplayIndex.read(ReplayIndex.of(f));
+          } catch (IOException e) {
+            err.println("the turn index can not be read, it is rebuilt: " + e.getMessage());
+            index = new ReplayIndex(interval);
+          }
+        } else if (isReplay) {
+          index = new ReplayIndex(interval);
+        } else if (!isDebug && 0 < options.indexInterval) {
+          index = new ReplayIndex(ReplayIndex.of(new File(ofName)).getPath(), interval);
         }
-        playersAndTimes.add(constructed);
       }
-      game.setPlayers(playersAndTimes);
-    }
-    players = game.getPlayers();
-    // collections for players to can follow the game flow
-    prevActions = new List[players.length];
-    remainingTimes = new long[players.length];
-    playerRemainingTimes = new long[players.length][players.length];
-    for (int i = 0; i < players.length; i++) {
-      prevActions[i] = new LinkedList<Pair<Integer, Action>>();
-      remainingTimes[i] = game.getRemainingTime(players[i]);
-      for (int j = 0; j < playerRemainingTimes.length; j++) {
-        playerRemainingTimes[j][i] = remainingTimes[i];
+      // construct players
+      List<Pair<Constructor<? extends Player<Action>>, Object[]>> playerConstructors = game.getPlayerConstructors();
+      List<Long> constructionTimes = new LinkedList<Long>();
+      if (playerConstructors != null) {
+        List<Pair<? extends Player<Action>, Long>> playersAndTimes = new LinkedList<Pair<? extends Player<Action>, Long>>();
+        for (Pair<Constructor<? extends Player<Action>>, Object[]> playerConstructor : playerConstructors) {
+          start = timer.begin();
+          Pair<? extends Player<Action>, Long> constructed = construct(playersAndTimes.size(), timeout, playerConstructor.first, playerConstructor.second);
+          timer.end(Phase.CONSTRUCTION, start);
+          if (isReplay) {
+            Pair<String, Long> result = is.readConstruction();
+            constructed = new Pair<Player<Action>, Long>(constructed.first, result.second);
+          } else if (!isDebug) {
+            os.writeConstruction(playerConstructor.first.getDeclaringClass().getCanonicalName(), constructed.second);
+          }
+          playersAndTimes.add(constructed);
+          this.constructed.add(constructed.first);
+          constructionTimes.add(constructed.second);
+        }
+        game.setPlayers(playersAndTimes);
+      }
+      players = game.getPlayers();
+      // deadline tokens of the anytime players
+      deadlines = new Deadline[players.length];
+      moveTime = options.moveTime * 1000000;
+      for (int i = 0; i < players.length; i++) {
+        if (players[i] instanceof AnytimePlayer) {
+          deadlines[i] = new Deadline();
+          ((AnytimePlayer) players[i]).setDeadline(deadlines[i]);
+        }
+      }
+      // time budget report of the logged games
+      report = options.report && !isDebug && !isReplay ? new TimeReport(players.length) : null;
+      if (report != null) {
+        int idx = 0;
+        for (long elapsed : constructionTimes) {
+          report.construction(idx++, elapsed);
+        }
+      }
+      // collections for players to can follow the game flow
+      prevActions = new List[players.length];
+      remainingTimes = new long[players.length];
+      playerRemainingTimes = new long[players.length][players.length];
+      for (int i = 0; i < players.length; i++) {
+        prevActions[i] = new LinkedList<Pair<Integer, Action>>();
+        remainingTimes[i] = game.getRemainingTime(players[i]);
+        if (report != null) {
+          report.budget(i, remainingTimes[i]);
+        }
+        for (int j = 0; j < playerRemainingTimes.length; j++) {
+          playerRemainingTimes[j][i] = remainingTimes[i];
+        }
       }
-    }
     
-    this.isDrawable = game instanceof Drawable && 0 < fps;
-    this.fps = fps < 0.0 ? -fps : fps;
+      this.isDrawable = game instanceof Drawable && 0.0 != fps;
+      // the exported frames of a renderable game are rendered without window
+      this.isRendered = isZipFrames && game instanceof Renderable;
+      this.fps = fps < 0.0 ? -fps : fps;
     
-    if (isDebug) {
-      defaultOut.println("GAME: " + gameClass);
-      defaultOut.println("PARAMETERS: " + Arrays.toString(params));
+      if (isDebug) {
+        out.println("GAME: " + gameClass);
+        out.println("PARAMETERS: " + Arrays.toString(params));
+      }
+    } catch (Throwable e) {
+      abort(e);
+      throw e;
+    }
+  }
+
+  /**
+   * Constructs the specified game by reflection, the game initializes itself.
+   * @param gameClass class of the game
+   * @param err game errors are printed to
+   * @param isReplay the game is a replay
+   * @param params parameters of the game
+   * @return constructed game
+   * @throws Exception reflection
+   */
+  public static Game<?, ?> newGame(String gameClass, PrintStream err, boolean isReplay, String[] params) throws Exception {
+    return (Game<?, ?>) Class.forName(gameClass).getConstructor(PrintStream.class, boolean.class, String[].class).newInstance(new Object[] {err, isReplay, params});
+  }
+
+  /**
+   * Creates a new, not yet existing gameplay log file and returns its name.
+   * @param extension of the log file
+   * @return name of the log file
+   * @throws Exception file IO
+   */
+  private static String createLogFile(String extension) throws Exception {
+    long postfix = System.nanoTime() % (long)1E9;
+    String name = "gameplay_" + postfix + extension;
+    while (!new File(name).createNewFile()) {
+      postfix++;
+      name = "gameplay_" + postfix + extension;
+    }
+    return name;
+  }
+
+  /**
+   * Replaces the standard out and error channels by the thread routed ones, 
+   * if they have not been replaced yet. The writes of the threads are not 
+   * belong to an engine go to the original channels.
+   */
+  private static synchronized void redirect() {
+    if (System.out == defaultOut) {
+      System.setOut(routedOut);
+    }
+    if (System.err == defaultErr) {
+      System.setErr(routedErr);
     }
   }
 
   /**
    * Loops the game and draws it, until game is finished.
+   * @return final scores and remaining times of the players
    * @throws Exception file IO, replay
    */
-  public void play() throws Exception {
-    // GUI related variable definitions and dependency checks
-    Frame gameFrame = null;
-    ByteArrayOutputStream stream = null;
-    int frameIdx = 0;
+  public GameResult play() throws Exception {
+    // the threads of the executor and the exporter are released, if the game fails
+    try {
+      // GUI related variable definitions and dependency checks
+      Frame gameFrame = null;
+    
+      // print table
+      if (isDebug) {
+        out.println(game);
+        if (isDrawable && !isRendered) {
+          Drawable drawable = (Drawable) game;
+          gameFrame = drawable.getFrame();
+        }
+      }
+    
+      if (isReplay && isDrawable && !isZipFrames && index != null) {
+        travel(gameFrame);
+      } else {
+        loop(gameFrame);
+      }
     
-    // print table
-    if (isDebug) {
-      defaultOut.println(game);
-      if (isDrawable) {
-        Drawable drawable = (Drawable) game;
-        gameFrame = drawable.getFrame();
+      // game finished, clean up
+      if (isDebug && isDrawable) {
+        //gameApplication.close();
+      }
+    
+      // final scores and remaining times
+      String[] names = new String[players.length];
+      double[] scores = new double[players.length];
+      long[] times = new long[players.length];
+      for (int i = 0; i < players.length; i++) {
+        names[i] = String.valueOf(players[i]);
+        scores[i] = game.getScore(players[i]);
+        times[i] = game.getRemainingTime(players[i]);
+      }
+    
+      long start = timer.begin();
+      if (!isReplay && !isDebug) {
+        os.writeResult(scores, times);
+      }
+      closeLogs();
+      if (!isReplay && !isDebug) {
+        out.println("logfile: " + ofName);
+        if (report != null) {
+          report.write(TimeReport.of(new File(ofName)), gameClass, params, names);
+        }
+      }
+      timer.end(Phase.RESULT, start);
+      release();
+    
+      // print final scores and remaining times
+      for (int i = 0; i < players.length; i++) {
+        out.println(i + " " + players[i] + " " + (players[i] == null ? i + " " : "") + scores[i] + " " + times[i]);
+      }
+      return new GameResult(gameClass, params, names, scores, times, ofName);
+    } catch (Throwable e) {
+      abort(e);
+      throw e;
+    }
+  }
+
+  /**
+   * Closes the gameplay log, the replayed log and the turn index, if they are 
+   * still open. A gameplay log without result is ended as it is, so the log 
+   * of a failed game is complete up to the failure.
+   * @throws Exception file IO
+   */
+  private void closeLogs() throws Exception {
+    LogWriter writer = os;
+    LogReader reader = is;
+    ReplayIndex turns = index;
+    os = null;
+    is = null;
+    index = null;
+    try {
+      if (writer != null) {
+        writer.close();
+      }
+    } finally {
+      try {
+        if (reader != null) {
+          reader.close();
+        }
+      } finally {
+        if (turns != null) {
+          turns.close();
+        }
       }
     }
+  }
+
+  /**
+   * Releases the resources of the engine that are not needed after the game: 
+   * closes the logs, shuts the executor of the players down, closes the 
+   * players that are {@link AutoCloseable} (e.g. to stop their helper 
+   * threads), writes the trace of the phases and closes the frame exporter. 
+   * Only the first call has effect.
+   * @throws Exception file IO of the logs, the trace or the frames
+   */
+  private void release() throws Exception {
+    if (released) {
+      return;
+    }
+    released = true;
+    executor.shutdown();
+    try {
+      closeLogs();
+    } catch (Exception e) {
+      e.printStackTrace(err);
+    }
+    for (Player<Action> player : constructed) {
+      if (player instanceof AutoCloseable) {
+        try {
+          ((AutoCloseable) player).close();
+        } catch (Exception e) {
+          e.printStackTrace(err);
+        }
+      }
+    }
+    try {
+      if (timer.isEnabled()) {
+        timer.write(new File(traceFile), gameClass + " " + String.join(" ", params));
+      }
+    } finally {
+      if (zipFrames != null) {
+        zipFrames.close();
+        out.println("frames: " + zipFrames.getFrames() + " fps: " + zipFrames.getFps());
+      }
+    }
+  }
+
+  /**
+   * Releases the resources of the engine after the specified failure of the 
+   * construction or the game, the failures of the release are suppressed by it.
+   * @param failure of the engine
+   */
+  private void abort(Throwable failure) {
+    try {
+      release();
+    } catch (Throwable e) {
+      failure.addSuppressed(e);
+    }
+  }
+
+  /**
+   * Plays the game (or replays it from the log) from the first to the last 
+   * turn, and draws it in debug mode.
+   * @param gameFrame window of the game, null if it is not drawn
+   * @throws Exception file IO, replay
+   */
+  private void loop(Frame gameFrame) throws Exception {
+    if (!isReplay) {
+      checkpoint();
+    }
     
     long elapsed;
     // play the game, to while not finished:
@@ -197,10 +516,12 @@ public final class Engine {
     // get next action from current player (sends previous actions and remaining times)
     // send back action and elapsed time to the game
     while (!game.isFinished()) {
+      timer.setTurn(turn);
+      long turnStart = timer.begin();
       // get next player and its remaining play time
       Player<Action> currentPlayer = game.getNextPlayer();
       if (currentPlayer == null) {
-        defaultErr.println("CURRENT PLAYER IS NULL: " + currentPlayer);
+        err.println("CURRENT PLAYER IS NULL: " + currentPlayer);
         break;
       }
       remainingTimes[currentPlayer.getColor()] = game.getRemainingTime(currentPlayer);
@@ -210,24 +531,38 @@ public final class Engine {
       
       // print player statistics
       if (isDebug) {
-        defaultOut.println("CURRENT: " + currentPlayer + " SCORE: " + game.getScore(currentPlayer) + " REM.TIME: " + remainingTimes[currentPlayer.getColor()] + " ns");
+        out.println("CURRENT: " + currentPlayer + " SCORE: " + game.getScore(currentPlayer) + " REM.TIME: " + remainingTimes[currentPlayer.getColor()] + " ns");
       }
 
       Pair<Action, Long> result = null;
       List<Pair<Integer, Action>> prevAction = prevActions[currentPlayer.getColor()];
+      long start = timer.begin();
       if (isReplay) {
         // we are in replay mode, get the action from log file
-        String line = is.readLine();
-        if (line.equals(LOGEND)) {
+        result = is.readTurn();
+        if (result == null) {
           // log is finished, game has to be finished
           break;
         }
-        result = Utils.getGson().fromJson(line, logType);
       } else {
-        // timer task for getting action from player, runs at most the specified remaining time
-        actionTask.setParams(currentPlayer, prevAction, playerRemainingTimes[currentPlayer.getColor()]);
-        result = timeOutTask(actionTask, remainingTimes[currentPlayer.getColor()] + 1);
+        // timer task for getting action from player, runs at most the specified remaining time, 
+        // a new task with copies of the parameters, as a timed out task can still run and read them
+        ActionTask actionTask = new ActionTask(ledger(currentPlayer.getColor()));
+        actionTask.setParams(currentPlayer, new LinkedList<Pair<Integer, Action>>(prevAction), playerRemainingTimes[currentPlayer.getColor()].clone());
+        Deadline deadline = deadlines[currentPlayer.getColor()];
+        if (deadline == null) {
+          result = timeOutTask(currentPlayer.getColor(), actionTask, remainingTimes[currentPlayer.getColor()] + 1);
+        } else {
+          // anytime player: the move gets its share of the clock, the player has a short grace period 
+          // after the soft deadline to return, the best action so far is taken at the hard deadline
+          long remaining = remainingTimes[currentPlayer.getColor()];
+          long budget = 0 < moveTime ? moveTime : remaining / Math.max(MOVES_TO_GO, turn / players.length);
+          long hard = Math.min(budget + MOVE_GRACE, remaining - Math.max(1, remaining / CLOCK_RESERVE));
+          deadline.start(Math.min(budget, Math.max(hard - MOVE_GRACE, hard / 2)));
+          result = timeOutTask(currentPlayer.getColor(), actionTask, remaining, hard, deadline);
+        }
       }
+      timer.end(Phase.PLAYER, start);
       Action currentAction = result.first;
       elapsed = result.second;
       
@@ -242,75 +577,166 @@ public final class Engine {
       // log current action
       if (!isReplay && !isDebug) {
         // to file
-        os.println(Utils.getGson().toJson(result));
+        start = timer.begin();
+        os.writeTurn(currentAction, elapsed);
+        timer.end(Phase.LOG, start);
       }
       if (isDebug) {
         // to standard out
-        defaultOut.println("ACTION: " + currentAction);
-        defaultOut.println("ELAPSED TIME: " + elapsed + " ns");
+        out.println("ACTION: " + currentAction);
+        out.println("ELAPSED TIME: " + elapsed + " ns");
         if (!game.isValid(currentAction)) {
-          defaultOut.println("ACTION: " + currentAction + " IS NOT VALID!!!");
+          out.println("ACTION: " + currentAction + " IS NOT VALID!!!");
         }
       }
 
       // sets the player's action
+      start = timer.begin();
       game.setAction(currentPlayer, currentAction, elapsed);
+      timer.end(Phase.SET_ACTION, start);
+      if (report != null) {
+        int color = currentPlayer.getColor();
+        report.move(color, elapsed, remainingTimes[color], game.getRemainingTime(currentPlayer));
+      }
+      turn++;
+      if (!isReplay) {
+        start = timer.begin();
+        checkpoint();
+        timer.end(Phase.CHECKPOINT, start);
+      }
 
       // draw table
       if (isDebug) {
         // to standard out
-        defaultOut.println(game);
+        start = timer.begin();
+        out.println(game);
+        timer.end(Phase.PRINT, start);
         // to GUI
-        if (isDrawable) {
+        if (gameFrame != null) {
+          start = timer.begin();
           gameFrame.repaint();
-          if (Engine.isZipFrames) {
-            if (stream == null) {
-              stream = new ByteArrayOutputStream();
-            }
-            BufferedImage img = new BufferedImage(gameFrame.getWidth(), gameFrame.getHeight(), BufferedImage.TYPE_INT_RGB);
-            gameFrame.paint(img.getGraphics());
-            stream.reset();
-            ImageIO.write(img, "png", stream);
-            zipFrames.putNextEntry(new ZipEntry(String.format("frame_%08d.png", frameIdx)));
-            zipFrames.write(stream.toByteArray());
-            zipFrames.closeEntry();
-            //System.out.println(String.format("frame_%08d.png", frameIdx));
-            frameIdx ++;
+          timer.end(Phase.REPAINT, start);
+        }
+        if (isZipFrames && (isRendered || gameFrame != null)) {
+          start = timer.begin();
+          capture(gameFrame);
+          timer.end(Phase.CAPTURE, start);
+        }
+        // sleep to get the required fps, there is nothing to watch without window
+        if (!isRendered) {
+          start = timer.begin();
+          try {
+            Thread.sleep((long)(1000.0 * 1.0 / fps));
+          } catch (InterruptedException e) {
+            e.printStackTrace(err);
           }
+          timer.end(Phase.SLEEP, start);
         }
-        // sleep to get the required fps
-        try {
-          Thread.sleep((long)(1000.0 * 1.0 / fps));
-        } catch (InterruptedException e) {
-          e.printStackTrace(defaultErr);
+      }
+      timer.end(Phase.TURN, turnStart);
+    }
+  }
+
+  /**
+   * Paints the current state of the game to a pooled image and submits it to 
+   * the exporter (encoding and writing are pipelined). A {@link Renderable} 
+   * game renders itself, otherwise the window is painted.
+   * @param gameFrame window of the game, null if the game is rendered
+   * @throws Exception if the export has failed
+   */
+  private void capture(Frame gameFrame) throws Exception {
+    BufferedImage img;
+    if (isRendered) {
+      Renderable renderable = (Renderable) game;
+      Dimension size = renderable.getRenderSize();
+      img = zipFrames.acquire(size.width, size.height);
+      Graphics graphics = img.getGraphics();
+      renderable.render(graphics);
+      graphics.dispose();
+    } else {
+      img = zipFrames.acquire(gameFrame.getWidth(), gameFrame.getHeight());
+      Graphics graphics = img.getGraphics();
+      gameFrame.paint(graphics);
+      graphics.dispose();
+    }
+    zipFrames.submit(img);
+  }
+
+  /**
+   * Replays the game in the GUI controlled by the keyboard (see 
+   * {@link ReplayController}), the turns can be shown in any order. The 
+   * window is kept open at the end of the game until the replay is quit.
+   * @param gameFrame window of the game
+   * @throws Exception file IO, replay
+   */
+  private void travel(Frame gameFrame) throws Exception {
+    ReplayController controller = new ReplayController();
+    try {
+      checkpoint();
+      boolean finished = game.isFinished();
+      long delay = (long)(1000.0 * 1.0 / fps);
+      while (true) {
+        gameFrame.repaint();
+        int target = controller.await(turn, finished, delay);
+        if (target < 0) {
+          break;
         }
+        finished = !seek(target);
       }
+    } finally {
+      controller.close();
     }
-    
-    // game finished, clean up
-    service.shutdown();
-    if (isDebug && isDrawable) {
-      //gameApplication.close();
+  }
+
+  /**
+   * Sets the replayed game to the state after the specified number of turns, 
+   * by restoring the last checkpoint before it (if it is backward or far 
+   * forward) and replaying the turns after the checkpoint.
+   * @param target number of turns to be replayed
+   * @return false, if the game or the log finished before or at the target
+   * @throws Exception file IO, replay
+   */
+  private boolean seek(int target) throws Exception {
+    ReplayIndex.Entry entry = index.floor(target);
+    if (target < turn || turn < entry.turn) {
+      index.load(entry, (Checkpointable) game);
+      is.seek(entry.position);
+      turn = entry.turn;
     }
-    
-    System.setOut(defaultOut);
-    System.setErr(defaultErr);
-    if (isReplay) {
-      is.close();
-    } else if (!isDebug) {
-      os.println(LOGEND);
-      os.close();
-      defaultOut.println("logfile: " + ofName);
+    while (turn < target) {
+      if (!replayTurn()) {
+        return false;
+      }
     }
-    if (Engine.isZipFrames) {
-      zipFrames.close();
+    return !game.isFinished();
+  }
+
+  /**
+   * Replays the next turn of the log without drawing it.
+   * @return false, if the game or the log is finished
+   * @throws Exception file IO, replay
+   */
+  private boolean replayTurn() throws Exception {
+    Player<Action> currentPlayer = game.isFinished() ? null : game.getNextPlayer();
+    Pair<Action, Long> result = currentPlayer == null ? null : is.readTurn();
+    if (result == null) {
+      return false;
     }
-    
-    // print final scores and remaining times
-    for (int i = 0; i < players.length; i++) {
-      defaultOut.println(i + " " + players[i] + " " + (players[i] == null ? i + " " : "") + game.getScore(players[i]) + " " + game.getRemainingTime(players[i]));
+    game.setAction(currentPlayer, result.first, result.second);
+    turn++;
+    checkpoint();
+    return true;
+  }
+
+  /**
+   * Adds a checkpoint of the current state to the turn index, if the current 
+   * turn is a checkpoint turn.
+   * @throws Exception file IO
+   */
+  private void checkpoint() throws Exception {
+    if (index != null) {
+      index.add(turn, isReplay ? is.position() : os.position(), (Checkpointable) game);
     }
-    
   }
 
   /**
@@ -334,7 +760,6 @@ public final class Engine {
       engine = new Engine(fps, gameClass, params);
     } catch (Exception e) {
       e.printStackTrace(defaultErr);
-      service.shutdown();
       System.exit(-1);
     }
 
@@ -342,38 +767,65 @@ public final class Engine {
       engine.play();
     } catch (Exception e) {
       e.printStackTrace(defaultErr);
-      service.shutdown();
       System.exit(1);
     }
     System.exit(0);
   }
 
   /**
-   * Runs the specified task with the specified timeout and returns its result.
+   * Runs the specified task of the specified player with the specified timeout 
+   * and returns its result.
    * @param <R> result type
+   * @param player index of the player the task belongs to
    * @param task to be run
    * @param timeout maximal running time
    * @return result of the task
    */
-  public static final <R> Pair<R, Long> timeOutTask(TimeOutTask<R> task, long timeout) {
-    Future<R> future = service.submit(task);
+  public final <R> Pair<R, Long> timeOutTask(int player, TimeOutTask<R> task, long timeout) {
+    return timeOutTask(player, task, timeout, timeout, null);
+  }
+
+  /**
+   * Runs the specified task of the specified player at most until the 
+   * specified hard deadline and returns its result. If the task times out, 
+   * the best action published to the specified deadline token is the result 
+   * (if there is one), and the measured time is the elapsed time, at most the 
+   * hard deadline. Otherwise the elapsed time of a failed task exceeds the 
+   * timeout.
+   * @param <R> result type
+   * @param player index of the player the task belongs to
+   * @param task to be run
+   * @param timeout remaining time of the player
+   * @param hard maximal running time, at most the timeout
+   * @param deadline token of an anytime player, can be null
+   * @return result of the task
+   */
+  @SuppressWarnings("unchecked")
+  private <R> Pair<R, Long> timeOutTask(int player, TimeOutTask<R> task, long timeout, long hard, Deadline deadline) {
     R result = null;
     long elapsed = 0;
+    PlayerOutput capture = isDebug ? null : capture(player);
+    long start = System.nanoTime();
     try {
-      result = future.get(timeout + 1, TimeUnit.NANOSECONDS);
+      result = executor.execute(player, isDebug ? task : new CapturedTask<R>(task, capture), hard + 1);
       elapsed = task.getElapsed();
     } catch (TimeoutException e) {
-      defaultOut.println("TIME HAS RUN OUT!!!");
-      elapsed = timeout + 1;
+      Action best = deadline == null ? null : deadline.getBest();
+      if (best != null) {
+        out.println("SOFT DEADLINE, BEST ACTION SO FAR: " + best);
+        result = (R) best;
+        elapsed = Math.min(System.nanoTime() - start, hard);
+      } else {
+        out.println("TIME HAS RUN OUT!!!");
+        elapsed = timeout + 1;
+      }
     } catch (Throwable e) {
-      e.printStackTrace(defaultErr);
+      e.printStackTrace(err);
       elapsed = timeout + 1;
-    } finally {
-      future.cancel(true);
     }
-    if (!isDebug && (sbOut.length() > 0 || sbErr.length() > 0)) {
+    if (!isDebug && (!capture.out.isEmpty() || !capture.err.isEmpty())) {
       elapsed = timeout + 1;
-      cleanOut();
+      cleanOut(capture);
     }
     return new Pair<R, Long>(result, elapsed);
   }
@@ -382,28 +834,114 @@ public final class Engine {
    * Constructs an object by the specified constructor using the specified 
    * parameters and returns the object as the result.
    * @param <R> type of result object
+   * @param player index of the player the object belongs to
    * @param timeout maximal construction time
    * @param constructor constructor of the object
    * @param params constructor parameters
    * @return result object
    */
-  public static final <R> Pair<R, Long> construct(long timeout, Constructor<R> constructor, Object... params) {
-    ConstructionTask<R> task = new ConstructionTask<R>();
+  public final <R> Pair<R, Long> construct(int player, long timeout, Constructor<R> constructor, Object... params) {
+    ConstructionTask<R> task = new ConstructionTask<R>(ledger(player));
     task.setConstructor(constructor, params);
-    Pair<R, Long> result = timeOutTask(task, timeout + 1);
+    Pair<R, Long> result = timeOutTask(player, task, timeout + 1);
     return result;
   }
   
   /**
-   * Prints the user's out and err channel to the standard out and err channel, 
-   * respectively, and cleans the user's channels.
+   * Returns the CPU ledger of the threads of the specified player, it is 
+   * created with the thread group of the player at the first call.
+   * @param player index of the player
+   * @return ledger of the player, null if the CPU time of the calling thread 
+   * is charged
+   */
+  private synchronized CpuLedger ledger(int player) {
+    if (playerThreads == null) {
+      return null;
+    }
+    while (ledgers.size() <= player) {
+      ledgers.add(new CpuLedger(new ThreadGroup(playerThreads, "player-" + ledgers.size())));
+    }
+    return ledgers.get(player);
+  }
+  
+  /**
+   * Returns the captured out and err channels of the specified player, they 
+   * are created at the first call.
+   * @param player index of the player
+   * @return out and err channels
    */
-  private static final void cleanOut() {
-    defaultErr.println("Writing is forbidden!");
-    defaultErr.println("USER.OUT:\n" + sbOut);
-    defaultErr.println("USER.ERR:\n" + sbErr);
-    sbOut.delete(0, sbOut.length());
-    sbErr.delete(0, sbErr.length());
+  private PlayerOutput capture(int player) {
+    while (captures.size() <= player) {
+      captures.add(new PlayerOutput());
+    }
+    return captures.get(player);
+  }
+  
+  /**
+   * Prints the specified captured out and err channel of a player to the 
+   * error channel, and cleans the captured channels.
+   * @param capture out and err channels of the player
+   */
+  private final void cleanOut(PlayerOutput capture) {
+    err.println("Writing is forbidden!");
+    err.println("USER.OUT:\n" + drain(capture.out));
+    err.println("USER.ERR:\n" + drain(capture.err));
+  }
+  
+  /**
+   * Returns the captured text of the specified channel with the number of 
+   * truncated bytes, and cleans the channel.
+   * @param channel to be drained
+   * @return captured text
+   */
+  private static String drain(CaptureOutputStream channel) {
+    long truncated = channel.getTruncated();
+    String text = channel.drain();
+    return truncated == 0 ? text : text + "... (" + truncated + " bytes truncated)";
+  }
+  
+  /**
+   * Captured out and err channels of a player, and the print streams over 
+   * them, the standard channels are routed to.
+   */
+  private static final class PlayerOutput {
+    private final CaptureOutputStream out = new CaptureOutputStream();
+    private final CaptureOutputStream err = new CaptureOutputStream();
+    private final PrintStream printOut = new PrintStream(out);
+    private final PrintStream printErr = new PrintStream(err);
+  }
+  
+  /**
+   * Task of a player, that routes the standard out and err prints of the 
+   * running thread (and of the threads it starts) to the captured channels 
+   * of the player.
+   * @param <R> result type
+   */
+  private static final class CapturedTask<R> implements TimeOutTask<R> {
+    private final TimeOutTask<R> task;
+    private final PlayerOutput capture;
+    
+    /**
+     * Creates the routed task.
+     * @param task to be run
+     * @param capture out and err channels of the player
+     */
+    private CapturedTask(TimeOutTask<R> task, PlayerOutput capture) {
+      this.task = task;
+      this.capture = capture;
+    }
+    
+    @Override
+    public R call() throws Exception {
+      routedOut.set(capture.printOut);
+      routedErr.set(capture.printErr);
+      return task.call();
+    }
+    
+    @Override
+    public long getElapsed() {
+      return task.getElapsed();
+    }
   }
 
 }
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package game.engine;
+
+import game.engine.log.Logs;
+import game.engine.log.ReplayIndex;
+import game.engine.utils.PhaseTimer;
+
+/**
+ * Optional settings of the {@link Engine}. The default values are read from 
+ * the system properties (e.g. <code>-Dengine.executor=worker</code>), so they 
+ * can be set without changing the command line parameters of the engine.
+ */
+public class EngineOptions {
+  /** system property of {@link EngineOptions#executor} */
+  public static final String EXECUTOR = "engine.executor";
+  /** system property of {@link EngineOptions#log} */
+  public static final String LOG = "engine.log";
+  /** system property of {@link EngineOptions#indexInterval} */
+  public static final String INDEX = "engine.index";
+  /** system property of {@link EngineOptions#moveTime} */
+  public static final String MOVE_TIME = "engine.moveTime";
+  /** system property of {@link EngineOptions#cpu} */
+  public static final String CPU = "engine.cpu";
+  /** system property of {@link EngineOptions#report} */
+  public static final String REPORT = "engine.report";
+  /** system property of {@link EngineOptions#trace} */
+  public static final String TRACE = "engine.trace";
+  /** system property of {@link EngineOptions#frames} */
+  public static final String FRAMES = "engine.frames";
+  
+  /**
+   * Execution modes of the player tasks.
+   */
+  public static enum Executor {
+    /** tasks are submitted to a cached thread pool (default) */
+    POOL,
+    /** every player has a dedicated, long-lived worker thread */
+    WORKER
+  }
+  
+  /**
+   * Accounting modes of the CPU time of the players. Both modes charge the 
+   * user and system CPU time of the threads (see {@link game.engine.utils.CpuTime}), 
+   * so the budgets and the time reports of the modes are comparable.
+   */
+  public static enum Accounting {
+    /** the CPU time of the thread calling the player is charged (default) */
+    THREAD,
+    /** the CPU time of the threads of the player is charged (see {@link game.engine.utils.CpuLedger}), including the helper threads it starts */
+    GROUP
+  }
+  
+  /** execution mode of the player tasks */
+  public Executor executor = Executor.POOL;
+  /** format of the gameplay log */
+  public Logs.Format log = Logs.Format.JSON;
+  /** number of turns between two checkpoints of the replay index, 0 disables the index */
+  public int indexInterval = ReplayIndex.DEFAULT_INTERVAL;
+  /** soft deadline of a move of the {@link AnytimePlayer}s in milliseconds, the published action is taken a short grace period later; the default 0 gives every move the remaining time divided by an estimated number of remaining moves (at least 32, or as many as made so far) */
+  public long moveTime = 0;
+  /** accounting mode of the CPU time of the players */
+  public Accounting cpu = Accounting.THREAD;
+  /** the {@link TimeReport} of the game is written next to the gameplay log (opt-in) */
+  public boolean report = false;
+  /** file of the Chrome trace of the engine phases (see {@link PhaseTimer}), null disables the timing */
+  public String trace = null;
+  /** target of the exported frames (negative fps): a zip if it ends with <code>.zip</code>, a directory of PNG files otherwise; null means a zip next to the replayed log, or a new one for a live game */
+  public String frames = null;
+  
+  /**
+   * Returns the options set by the system properties.
+   * @return options
+   */
+  public static EngineOptions fromSystemProperties() {
+    EngineOptions options = new EngineOptions();
+    options.executor = Executor.valueOf(System.getProperty(EXECUTOR, options.executor.name()).toUpperCase());
+    options.log = Logs.Format.valueOf(System.getProperty(LOG, options.log.name()).toUpperCase());
+    options.indexInterval = Integer.getInteger(INDEX, options.indexInterval);
+    options.moveTime = Long.getLong(MOVE_TIME, options.moveTime);
+    options.cpu = Accounting.valueOf(System.getProperty(CPU, options.cpu.name()).toUpperCase());
+    options.report = Boolean.parseBoolean(System.getProperty(REPORT, String.valueOf(options.report)));
+    options.trace = System.getProperty(TRACE, options.trace);
+    options.frames = System.getProperty(FRAMES, options.frames);
+    return options;
+  }
+}
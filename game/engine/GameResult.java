@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package game.engine;
+
+import java.io.Serializable;
+
+import game.engine.utils.Utils;
+
+/**
+ * Represents the outcome of a game has been played by the {@link Engine}.
+ */
+public class GameResult implements Serializable {
+  private static final long serialVersionUID = 2715904453117389645L;
+  /** class of the game */
+  public final String gameClass;
+  /** parameters of the game */
+  public final String[] params;
+  /** string representation of the players, indexed by color */
+  public final String[] players;
+  /** final scores of the players, indexed by color */
+  public final double[] scores;
+  /** final remaining times of the players in nanoseconds, indexed by color */
+  public final long[] remainingTimes;
+  /** name of the gameplay log file, null if nothing was logged */
+  public final String logFile;
+
+  /**
+   * Creates a result object by the specified values.
+   * @param gameClass class of the game
+   * @param params parameters of the game
+   * @param players string representation of the players
+   * @param scores final scores
+   * @param remainingTimes final remaining times
+   * @param logFile name of the log file
+   */
+  public GameResult(String gameClass, String[] params, String[] players, double[] scores, long[] remainingTimes, String logFile) {
+    this.gameClass = gameClass;
+    this.params = params;
+    this.players = players;
+    this.scores = scores;
+    this.remainingTimes = remainingTimes;
+    this.logFile = logFile;
+  }
+
+  @Override
+  public String toString() {
+    return Utils.jsonSerialize(this);
+  }
+}
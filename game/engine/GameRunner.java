@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package game.engine;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Supplier;
+
+/**
+ * Runs several games concurrently in the same JVM on a bounded number of
+ * threads. Every game is played by its own {@link Engine} without debug
+ * (logs are written to gameplay files as usual).
+ */
+public final class GameRunner {
+  private final ExecutorService service;
+  private final PrintStream out;
+  private final PrintStream err;
+
+  /**
+   * Creates a runner that plays at most as many games in parallel as the
+   * number of available processors, and hides the messages of the engines.
+   */
+  public GameRunner() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Creates a runner that plays at most the specified number of games in
+   * parallel, and hides the messages of the engines.
+   * @param threads maximal number of concurrent games
+   */
+  public GameRunner(int threads) {
+    this(threads, new PrintStream(OutputStream.nullOutputStream()), System.err);
+  }
+
+  /**
+   * Creates a runner that plays at most the specified number of games in
+   * parallel, the messages of the engines are printed to the specified streams.
+   * @param threads maximal number of concurrent games
+   * @param out engine messages are printed to
+   * @param err engine and game errors are printed to
+   */
+  public GameRunner(int threads, PrintStream out, PrintStream err) {
+    this.out = out;
+    this.err = err;
+    this.service = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable);
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+  }
+
+  /**
+   * Submits a game to be played and returns the future of its result.
+   * @param gameClass class of the game to be played
+   * @param params parameters of the game
+   * @return future result of the game
+   */
+  public CompletableFuture<GameResult> submit(String gameClass, String[] params) {
+    return submit(gameClass, params, EngineOptions.fromSystemProperties());
+  }
+
+  /**
+   * Submits a game to be played by an engine with the specified options and 
+   * returns the future of its result.
+   * @param gameClass class of the game to be played
+   * @param params parameters of the game
+   * @param options settings of the engine
+   * @return future result of the game
+   */
+  public CompletableFuture<GameResult> submit(final String gameClass, final String[] params, final EngineOptions options) {
+    return CompletableFuture.supplyAsync(new Supplier<GameResult>() {
+      @Override
+      public GameResult get() {
+        try {
+          return new Engine(0, gameClass, params, options, out, err).play();
+        } catch (Exception e) {
+          throw new CompletionException(e);
+        }
+      }
+    }, service);
+  }
+
+  /**
+   * Submits a game to be played and returns the future of its result.
+   * @param gameClass class of the game to be played
+   * @param params parameters of the game
+   * @return future result of the game
+   */
+  public CompletableFuture<GameResult> submit(Class<? extends Game<?, ?>> gameClass, String[] params) {
+    return submit(gameClass.getName(), params);
+  }
+
+  /**
+   * Stops accepting new games, the submitted ones are finished.
+   */
+  public void shutdown() {
+    service.shutdown();
+  }
+
+  /**
+   * Entry point of the batch runner. Every line of the specified file is a
+   * game: the class of the game followed by its parameters, separated by
+   * whitespaces. The results are printed in the order of the lines.
+   * @param args command line arguments
+   * @throws Exception file IO
+   */
+  public static void main(String[] args) throws Exception {
+    if (args.length < 1) {
+      System.err.println("required parameters for the runner are:");
+      System.err.println("\t- games file: lines of game class and game parameters");
+      System.err.println("\t- threads   : number of concurrent games (optional, default: number of processors)");
+      System.exit(1);
+    }
+    int threads = args.length < 2 ? Runtime.getRuntime().availableProcessors() : Integer.parseInt(args[1]);
+    GameRunner runner = new GameRunner(threads);
+    List<CompletableFuture<GameResult>> results = new LinkedList<CompletableFuture<GameResult>>();
+    long start = System.nanoTime();
+    BufferedReader is = new BufferedReader(new InputStreamReader(new FileInputStream(args[0]), "utf8"));
+    String line;
+    while ((line = is.readLine()) != null) {
+      line = line.trim();
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+      String[] tokens = line.split("\\s+");
+      results.add(runner.submit(tokens[0], Arrays.copyOfRange(tokens, 1, tokens.length)));
+    }
+    is.close();
+    int failed = 0;
+    for (CompletableFuture<GameResult> result : results) {
+      try {
+        System.out.println(result.join());
+      } catch (CompletionException e) {
+        e.getCause().printStackTrace();
+        failed++;
+      }
+    }
+    runner.shutdown();
+    double seconds = (System.nanoTime() - start) / 1E9;
+    System.err.println("games: " + results.size() + " failed: " + failed + " time: " + seconds + " s (" + (results.size() / seconds) + " games/s)");
+    System.exit(failed == 0 ? 0 : 1);
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+package game.engine;
+
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Constructor;
+import java.util.LinkedList;
+import java.util.List;
+
+import game.engine.log.LogReader;
+import game.engine.log.Logs;
+import game.engine.ui.FrameExporter;
+import game.engine.ui.Renderable;
+import game.engine.utils.Pair;
+
+/**
+ * Renders recorded games to image sequences headless. As the 
+ * {@link ReplayVerifier}, the players of the log are constructed and the 
+ * turns are applied on the calling thread; the game has to be 
+ * {@link Renderable}, no window is created.
+ */
+public final class ReplayRenderer {
+  private static final PrintStream NULL = new PrintStream(OutputStream.nullOutputStream());
+  
+  private ReplayRenderer() {
+  }
+  
+  /**
+   * Replays the specified log and exports every step-th state of the game 
+   * (the initial and the final states are always exported).
+   * @param log to be rendered
+   * @param exporter frames are submitted to (it is not closed)
+   * @param step number of turns between the frames
+   * @return number of exported frames
+   * @throws Exception if the log can not be replayed or the export has failed
+   */
+  @SuppressWarnings("unchecked")
+  public static int render(File log, FrameExporter exporter, int step) throws Exception {
+    LogReader is = Logs.open(log);
+    try {
+      Game<Player<Action>, Action> game = (Game<Player<Action>, Action>) Engine.newGame(is.getGameClass(), NULL, true, is.getParams());
+      if (!(game instanceof Renderable)) {
+        throw new IllegalArgumentException("the game can not be rendered: " + is.getGameClass());
+      }
+      Renderable renderable = (Renderable) game;
+      is.setGame(game);
+      // construct the players of the replay directly, the times are the recorded ones
+      List<Pair<Constructor<? extends Player<Action>>, Object[]>> playerConstructors = game.getPlayerConstructors();
+      if (playerConstructors != null) {
+        List<Pair<? extends Player<Action>, Long>> playersAndTimes = new LinkedList<Pair<? extends Player<Action>, Long>>();
+        for (Pair<Constructor<? extends Player<Action>>, Object[]> playerConstructor : playerConstructors) {
+          Player<Action> player = playerConstructor.first.newInstance(playerConstructor.second);
+          playersAndTimes.add(new Pair<Player<Action>, Long>(player, is.readConstruction().second));
+        }
+        game.setPlayers(playersAndTimes);
+      }
+      int frames = 0;
+      int turns = 0;
+      capture(renderable, exporter);
+      frames++;
+      while (!game.isFinished()) {
+        Player<Action> currentPlayer = game.getNextPlayer();
+        Pair<Action, Long> turn = currentPlayer == null ? null : is.readTurn();
+        if (turn == null) {
+          break;
+        }
+        game.setAction(currentPlayer, turn.first, turn.second);
+        turns++;
+        if (turns % step == 0 || game.isFinished()) {
+          capture(renderable, exporter);
+          frames++;
+        }
+      }
+      return frames;
+    } finally {
+      is.close();
+    }
+  }
+  
+  /**
+   * Renders the current state of the specified game to a pooled image of the 
+   * exporter and submits it.
+   * @param renderable game to be rendered
+   * @param exporter frames are submitted to
+   * @throws Exception if the export has failed
+   */
+  private static void capture(Renderable renderable, FrameExporter exporter) throws Exception {
+    Dimension size = renderable.getRenderSize();
+    BufferedImage image = exporter.acquire(size.width, size.height);
+    Graphics graphics = image.getGraphics();
+    renderable.render(graphics);
+    graphics.dispose();
+    exporter.submit(image);
+  }
+  
+  /**
+   * Entry point of the renderer. Prints the number of frames and the frames 
+   * per second of the export.
+   * @param args command line arguments
+   * @throws Exception if the log can not be rendered
+   */
+  public static void main(String[] args) throws Exception {
+    if (args.length < 2) {
+      System.err.println("required parameters for the renderer are:");
+      System.err.println("\t- log   : gameplay log file");
+      System.err.println("\t- target: zip file (*.zip) or directory of the PNG frames");
+      System.err.println("\t- step  : number of turns between the frames (optional, default: 1)");
+      System.exit(1);
+    }
+    System.setProperty("java.awt.headless", "true");
+    int step = args.length < 3 ? 1 : Integer.parseInt(args[2]);
+    if (step < 1) {
+      throw new IllegalArgumentException("step must be positive: " + step);
+    }
+    FrameExporter exporter = FrameExporter.open(args[1]);
+    int frames;
+    try {
+      frames = render(new File(args[0]), exporter, step);
+    } finally {
+      exporter.close();
+    }
+    System.out.println("frames: " + frames + " fps: " + exporter.getFps());
+  }
+}
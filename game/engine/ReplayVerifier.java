@@ -0,0 +1,284 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package game.engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Constructor;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Supplier;
+
+import game.engine.log.LogReader;
+import game.engine.log.Logs;
+import game.engine.utils.Pair;
+import game.engine.utils.Utils;
+
+/**
+ * Re-simulates recorded games headless and checks their final scores and 
+ * remaining times against the recorded ones. Unlike the replay mode of the 
+ * {@link Engine}, the players of the log are constructed and the turns are 
+ * applied on the calling thread, without timeouts, output redirection and 
+ * GUI, so a directory of logs can be verified in parallel in one JVM.
+ */
+public final class ReplayVerifier {
+  private static final PrintStream NULL = new PrintStream(OutputStream.nullOutputStream());
+  private final ExecutorService service;
+  
+  /**
+   * Outcomes of a verification.
+   */
+  public static enum Status {
+    /** the re-simulated result is the same as the recorded one */
+    MATCH,
+    /** the re-simulated result differs from the recorded one */
+    MISMATCH,
+    /** the log has no recorded result */
+    NO_RESULT,
+    /** the log can not be replayed */
+    ERROR
+  }
+  
+  /**
+   * Result of the verification of a log.
+   */
+  public static final class Verdict {
+    /** name of the log file */
+    public final String log;
+    /** outcome of the verification */
+    public final Status status;
+    /** number of replayed turns */
+    public final int turns;
+    /** recorded final scores, indexed by color */
+    public final double[] recordedScores;
+    /** re-simulated final scores, indexed by color */
+    public final double[] scores;
+    /** recorded final remaining times, indexed by color */
+    public final long[] recordedTimes;
+    /** re-simulated final remaining times, indexed by color */
+    public final long[] remainingTimes;
+    /** reason of the error or the mismatch, null if it matches */
+    public final String message;
+    
+    private Verdict(String log, Status status, int turns, double[] recordedScores, double[] scores, long[] recordedTimes, long[] remainingTimes, String message) {
+      this.log = log;
+      this.status = status;
+      this.turns = turns;
+      this.recordedScores = recordedScores;
+      this.scores = scores;
+      this.recordedTimes = recordedTimes;
+      this.remainingTimes = remainingTimes;
+      this.message = message;
+    }
+    
+    @Override
+    public String toString() {
+      return Utils.jsonSerialize(this);
+    }
+  }
+  
+  /**
+   * Creates a verifier that replays at most as many logs in parallel as the 
+   * number of available processors.
+   */
+  public ReplayVerifier() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+  
+  /**
+   * Creates a verifier that replays at most the specified number of logs in 
+   * parallel.
+   * @param threads maximal number of concurrent replays
+   */
+  public ReplayVerifier(int threads) {
+    this.service = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable);
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+  }
+  
+  /**
+   * Submits the specified log to be verified and returns the future of its 
+   * verdict.
+   * @param log to be verified
+   * @return future verdict
+   */
+  public CompletableFuture<Verdict> submit(final File log) {
+    return CompletableFuture.supplyAsync(new Supplier<Verdict>() {
+      @Override
+      public Verdict get() {
+        return verify(log);
+      }
+    }, service);
+  }
+  
+  /**
+   * Stops accepting new logs, the submitted ones are verified.
+   */
+  public void shutdown() {
+    service.shutdown();
+  }
+  
+  /**
+   * Replays the specified log on the calling thread and compares the final 
+   * scores and remaining times with the recorded ones.
+   * @param log to be verified
+   * @return verdict of the log
+   */
+  @SuppressWarnings("unchecked")
+  public static Verdict verify(File log) {
+    int turns = 0;
+    LogReader is = null;
+    try {
+      is = Logs.open(log);
+      Game<Player<Action>, Action> game = (Game<Player<Action>, Action>) Engine.newGame(is.getGameClass(), NULL, true, is.getParams());
+      is.setGame(game);
+      // construct the players of the replay directly, the times are the recorded ones
+      List<Pair<Constructor<? extends Player<Action>>, Object[]>> playerConstructors = game.getPlayerConstructors();
+      if (playerConstructors != null) {
+        List<Pair<? extends Player<Action>, Long>> playersAndTimes = new LinkedList<Pair<? extends Player<Action>, Long>>();
+        for (Pair<Constructor<? extends Player<Action>>, Object[]> playerConstructor : playerConstructors) {
+          Player<Action> player = playerConstructor.first.newInstance(playerConstructor.second);
+          playersAndTimes.add(new Pair<Player<Action>, Long>(player, is.readConstruction().second));
+        }
+        game.setPlayers(playersAndTimes);
+      }
+      Player<Action>[] players = game.getPlayers();
+      // replay the turns as the engine does
+      while (!game.isFinished()) {
+        Player<Action> currentPlayer = game.getNextPlayer();
+        Pair<Action, Long> turn = currentPlayer == null ? null : is.readTurn();
+        if (turn == null) {
+          break;
+        }
+        game.setAction(currentPlayer, turn.first, turn.second);
+        turns++;
+      }
+      boolean isTrailing = game.isFinished() && is.readTurn() != null;
+      Pair<double[], long[]> recorded = is.readResult();
+      double[] scores = new double[players.length];
+      long[] times = new long[players.length];
+      for (int i = 0; i < players.length; i++) {
+        scores[i] = game.getScore(players[i]);
+        times[i] = game.getRemainingTime(players[i]);
+      }
+      if (recorded == null) {
+        return new Verdict(log.getPath(), Status.NO_RESULT, turns, null, scores, null, times, "the log has no recorded result");
+      }
+      String message = null;
+      if (isTrailing) {
+        message = "the log has turns after the end of the game";
+      } else if (!Arrays.equals(recorded.first, scores)) {
+        message = "scores differ";
+      } else if (!Arrays.equals(recorded.second, times)) {
+        message = "remaining times differ";
+      }
+      return new Verdict(log.getPath(), message == null ? Status.MATCH : Status.MISMATCH, turns, recorded.first, scores, recorded.second, times, message);
+    } catch (Throwable e) {
+      return new Verdict(log.getPath(), Status.ERROR, turns, null, null, null, null, String.valueOf(e));
+    } finally {
+      if (is != null) {
+        try {
+          is.close();
+        } catch (Exception e) {
+          // the verdict has already been made
+        }
+      }
+    }
+  }
+  
+  /**
+   * Returns the gameplay logs of the specified directory (or the file itself, 
+   * if it is not a directory). The logs are recognized by their content (see 
+   * {@link Logs#isLog(File)}), so the turn indices, the time reports and the 
+   * frames are skipped; the unreadable files are kept to be reported.
+   * @param path directory or log file
+   * @return log files sorted by name
+   */
+  public static File[] logs(File path) {
+    if (!path.isDirectory()) {
+      return new File[] {path};
+    }
+    File[] files = path.listFiles();
+    List<File> result = new LinkedList<File>();
+    for (File file : files) {
+      if (!file.isFile()) {
+        continue;
+      }
+      try {
+        if (Logs.isLog(file)) {
+          result.add(file);
+        }
+      } catch (IOException e) {
+        result.add(file);
+      }
+    }
+    File[] logs = result.toArray(new File[result.size()]);
+    Arrays.sort(logs);
+    return logs;
+  }
+  
+  /**
+   * Entry point of the verifier. Prints the verdicts of the logs in order, 
+   * one JSON object per line, and the summary to the standard error.
+   * @param args command line arguments
+   * @throws Exception interrupted
+   */
+  public static void main(String[] args) throws Exception {
+    if (args.length < 1) {
+      System.err.println("required parameters for the verifier are:");
+      System.err.println("\t- logs   : directory of gameplay logs or a gameplay log file");
+      System.err.println("\t- threads: number of concurrent replays (optional, default: number of processors)");
+      System.exit(1);
+    }
+    int threads = args.length < 2 ? Runtime.getRuntime().availableProcessors() : Integer.parseInt(args[1]);
+    ReplayVerifier verifier = new ReplayVerifier(threads);
+    long start = System.nanoTime();
+    List<CompletableFuture<Verdict>> verdicts = new LinkedList<CompletableFuture<Verdict>>();
+    for (File log : logs(new File(args[0]))) {
+      verdicts.add(verifier.submit(log));
+    }
+    int[] counts = new int[Status.values().length];
+    for (CompletableFuture<Verdict> future : verdicts) {
+      Verdict verdict = future.join();
+      counts[verdict.status.ordinal()]++;
+      System.out.println(verdict);
+    }
+    verifier.shutdown();
+    double seconds = (System.nanoTime() - start) / 1E9;
+    StringBuilder sb = new StringBuilder("logs: " + verdicts.size());
+    for (Status status : Status.values()) {
+      sb.append(" " + status.name().toLowerCase() + ": " + counts[status.ordinal()]);
+    }
+    sb.append(" time: " + seconds + " s (" + (60.0 * verdicts.size() / seconds) + " replays/min)");
+    System.err.println(sb);
+    System.exit(counts[Status.MISMATCH.ordinal()] == 0 && counts[Status.ERROR.ordinal()] == 0 ? 0 : 1);
+  }
+}
@@ -0,0 +1,309 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package game.engine;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import game.engine.utils.LatencyHistogram;
+import game.engine.utils.Utils;
+
+/**
+ * Time budget report of a game: per player histograms of the construction 
+ * and move times (as the {@link Engine} charged them) and the burn curve of 
+ * the time budget (remaining time after the moves). Recording does not 
+ * allocate, the curves keep at most {@link TimeReport#CURVE_POINTS} points by 
+ * halving their resolution when they are full.
+ * <p>
+ * The report is written as a JSON summary next to the gameplay log, if it is 
+ * enabled (see {@link EngineOptions#report}).
+ */
+public final class TimeReport {
+  /** extension of the report files, appended to the name of the log */
+  public static final String EXTENSION = ".times.json";
+  /** maximal number of points of a burn curve */
+  public static final int CURVE_POINTS = 128;
+
+  private final LatencyHistogram[] constructions;
+  private final LatencyHistogram[] moves;
+  private final long[] budgets;
+  private final long[] timeouts;
+  private final long[][] curveMoves;
+  private final long[][] curveRemaining;
+  private final int[] points;
+  private final long[] strides;
+  private final long[] lastRemaining;
+
+  /**
+   * Creates an empty report of the specified number of players.
+   * @param players number of players
+   */
+  public TimeReport(int players) {
+    constructions = new LatencyHistogram[players];
+    moves = new LatencyHistogram[players];
+    budgets = new long[players];
+    timeouts = new long[players];
+    curveMoves = new long[players][CURVE_POINTS];
+    curveRemaining = new long[players][CURVE_POINTS];
+    points = new int[players];
+    strides = new long[players];
+    lastRemaining = new long[players];
+    for (int i = 0; i < players; i++) {
+      constructions[i] = new LatencyHistogram();
+      moves[i] = new LatencyHistogram();
+      strides[i] = 1;
+    }
+  }
+
+  /**
+   * Returns the report file of the specified gameplay log.
+   * @param log gameplay log file
+   * @return report file
+   */
+  public static File of(File log) {
+    return new File(log.getPath() + EXTENSION);
+  }
+
+  /**
+   * Records the construction time of the specified player.
+   * @param player index of the player
+   * @param elapsed construction time in nanoseconds
+   */
+  public void construction(int player, long elapsed) {
+    constructions[player].record(elapsed);
+  }
+
+  /**
+   * Sets the initial time budget of the specified player.
+   * @param player index of the player
+   * @param budget remaining time before the first move in nanoseconds
+   */
+  public void budget(int player, long budget) {
+    budgets[player] = budget;
+    lastRemaining[player] = budget;
+  }
+
+  /**
+   * Records a move of the specified player.
+   * @param player index of the player
+   * @param elapsed time of the move in nanoseconds
+   * @param before remaining time of the player before the move
+   * @param after remaining time of the player after the move
+   */
+  public void move(int player, long elapsed, long before, long after) {
+    LatencyHistogram histogram = moves[player];
+    histogram.record(elapsed);
+    if (before <= elapsed) {
+      timeouts[player]++;
+    }
+    lastRemaining[player] = after;
+    long move = histogram.getCount();
+    if (move % strides[player] != 0) {
+      return;
+    }
+    long[] curve = curveMoves[player];
+    long[] remaining = curveRemaining[player];
+    if (points[player] == CURVE_POINTS) {
+      // halves the resolution: keeps the points of every second stride
+      long stride = 2 * strides[player];
+      int kept = 0;
+      for (int idx = 0; idx < CURVE_POINTS; idx++) {
+        if (curve[idx] % stride == 0) {
+          curve[kept] = curve[idx];
+          remaining[kept] = remaining[idx];
+          kept++;
+        }
+      }
+      points[player] = kept;
+      strides[player] = stride;
+      if (move % stride != 0) {
+        return;
+      }
+    }
+    curve[points[player]] = move;
+    remaining[points[player]] = after;
+    points[player]++;
+  }
+
+  /**
+   * Returns the histogram of the move times of the specified player.
+   * @param player index of the player
+   * @return histogram of the move times
+   */
+  public LatencyHistogram getMoves(int player) {
+    return moves[player];
+  }
+
+  /**
+   * Returns the histogram of the construction times of the specified player.
+   * @param player index of the player
+   * @return histogram of the construction times
+   */
+  public LatencyHistogram getConstructions(int player) {
+    return constructions[player];
+  }
+
+  /**
+   * Returns the summary of the report.
+   * @param gameClass class of the game
+   * @param params parameters of the game
+   * @param names string representation of the players
+   * @return summary
+   */
+  public Summary summarize(String gameClass, String[] params, String[] names) {
+    List<PlayerSummary> players = new ArrayList<PlayerSummary>(names.length);
+    for (int i = 0; i < names.length; i++) {
+      players.add(new PlayerSummary(this, i, names[i]));
+    }
+    return new Summary(gameClass, params, players);
+  }
+
+  /**
+   * Writes the summary of the report to the specified file.
+   * @param file to be written
+   * @param gameClass class of the game
+   * @param params parameters of the game
+   * @param names string representation of the players
+   * @throws IOException file IO
+   */
+  public void write(File file, String gameClass, String[] params, String[] names) throws IOException {
+    Writer writer = new OutputStreamWriter(new FileOutputStream(file), "utf8");
+    try {
+      writer.write(Utils.jsonSerialize(summarize(gameClass, params, names)));
+      writer.write('\n');
+    } finally {
+      writer.close();
+    }
+  }
+
+  /**
+   * Summary of the recorded times of a game.
+   */
+  public static final class Summary {
+    /** class of the game */
+    public final String gameClass;
+    /** parameters of the game */
+    public final String[] params;
+    /** summaries of the players, indexed by color */
+    public final List<PlayerSummary> players;
+
+    private Summary(String gameClass, String[] params, List<PlayerSummary> players) {
+      this.gameClass = gameClass;
+      this.params = params;
+      this.players = players;
+    }
+
+    @Override
+    public String toString() {
+      return Utils.jsonSerialize(this);
+    }
+  }
+
+  /**
+   * Summary of the recorded times of a player, in nanoseconds.
+   */
+  public static final class PlayerSummary {
+    /** string representation of the player */
+    public final String player;
+    /** remaining time before the first move */
+    public final long budget;
+    /** remaining time after the last move */
+    public final long remaining;
+    /** number of moves that took more than the remaining time */
+    public final long timeouts;
+    /** construction times */
+    public final HistogramSummary construction;
+    /** move times */
+    public final HistogramSummary moves;
+    /** burn curve: number of moves, remaining time and used fraction of the budget */
+    public final List<double[]> burn;
+
+    private PlayerSummary(TimeReport report, int i, String player) {
+      this.player = player;
+      this.budget = report.budgets[i];
+      this.remaining = report.lastRemaining[i];
+      this.timeouts = report.timeouts[i];
+      this.construction = new HistogramSummary(report.constructions[i]);
+      this.moves = new HistogramSummary(report.moves[i]);
+      int points = report.points[i];
+      this.burn = new ArrayList<double[]>(points + 2);
+      burn.add(point(0, budget));
+      for (int idx = 0; idx < points; idx++) {
+        burn.add(point(report.curveMoves[i][idx], report.curveRemaining[i][idx]));
+      }
+      // the last move is always on the curve
+      long count = report.moves[i].getCount();
+      if (points == 0 ? 0 < count : report.curveMoves[i][points - 1] != count) {
+        burn.add(point(count, remaining));
+      }
+    }
+
+    private double[] point(long move, long remaining) {
+      return new double[] {move, remaining, budget == 0 ? 0 : 1.0 - (double) remaining / budget};
+    }
+  }
+
+  /**
+   * Summary of a histogram: count, mean, percentiles and the non-empty 
+   * buckets (highest value and count), the histograms of several games can 
+   * be merged from the buckets.
+   */
+  public static final class HistogramSummary {
+    /** number of values */
+    public final long count;
+    /** average value */
+    public final double mean;
+    /** smallest value */
+    public final long min;
+    /** median */
+    public final long p50;
+    /** 90th percentile */
+    public final long p90;
+    /** 99th percentile */
+    public final long p99;
+    /** 99.9th percentile */
+    public final long p999;
+    /** largest value */
+    public final long max;
+    /** non-empty buckets: highest value and count */
+    public final List<long[]> buckets;
+
+    private HistogramSummary(LatencyHistogram histogram) {
+      this.count = histogram.getCount();
+      this.mean = histogram.getMean();
+      this.min = histogram.getMin();
+      this.p50 = histogram.getValueAtPercentile(50);
+      this.p90 = histogram.getValueAtPercentile(90);
+      this.p99 = histogram.getValueAtPercentile(99);
+      this.p999 = histogram.getValueAtPercentile(99.9);
+      this.max = histogram.getMax();
+      this.buckets = new ArrayList<long[]>();
+      for (int idx = 0; idx < LatencyHistogram.BUCKETS; idx++) {
+        if (histogram.getCount(idx) != 0) {
+          buckets.add(new long[] {LatencyHistogram.highest(idx), histogram.getCount(idx)});
+        }
+      }
+    }
+  }
+}
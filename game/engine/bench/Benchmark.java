@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package game.engine.bench;
+
+import java.util.Arrays;
+
+import game.engine.utils.Utils;
+
+/**
+ * Minimal benchmark harness: runs an operation repeatedly, measures every 
+ * run and summarizes the measured times.
+ */
+public final class Benchmark {
+  
+  /**
+   * An operation to be measured.
+   */
+  public static interface Operation {
+    /**
+     * Runs the operation once.
+     * @throws Exception anything the operation throws
+     */
+    public void run() throws Exception;
+  }
+  
+  /**
+   * Summary of the measured times of an operation in nanoseconds.
+   */
+  public static final class Result {
+    /** name of the benchmark */
+    public final String name;
+    /** number of measured runs */
+    public final int iterations;
+    /** average running time */
+    public final double mean;
+    /** median running time */
+    public final long p50;
+    /** 99th percentile of the running times */
+    public final long p99;
+    /** maximal running time */
+    public final long max;
+    
+    private Result(String name, long[] samples) {
+      Arrays.sort(samples);
+      double sum = 0;
+      for (long sample : samples) {
+        sum += sample;
+      }
+      this.name = name;
+      this.iterations = samples.length;
+      this.mean = sum / samples.length;
+      this.p50 = samples[samples.length / 2];
+      this.p99 = samples[(int) Math.min(samples.length - 1, Math.ceil(0.99 * samples.length))];
+      this.max = samples[samples.length - 1];
+    }
+    
+    @Override
+    public String toString() {
+      return Utils.jsonSerialize(this);
+    }
+  }
+  
+  private Benchmark() {
+  }
+  
+  /**
+   * Runs the specified operation warmup times without measuring, then 
+   * iterations times with measuring and returns the summary.
+   * @param name of the benchmark
+   * @param warmup number of runs without measuring
+   * @param iterations number of measured runs
+   * @param operation to be measured
+   * @return summary of the measured times
+   * @throws Exception anything the operation throws
+   */
+  public static Result run(String name, int warmup, int iterations, Operation operation) throws Exception {
+    return run(name, warmup, iterations, null, operation);
+  }
+  
+  /**
+   * Runs the specified operation warmup times without measuring, then 
+   * iterations times with measuring and returns the summary. The setup runs 
+   * before every run of the operation without measuring (for the operations 
+   * that consume their input).
+   * @param name of the benchmark
+   * @param warmup number of runs without measuring
+   * @param iterations number of measured runs
+   * @param setup to be run before every run of the operation (can be null)
+   * @param operation to be measured
+   * @return summary of the measured times
+   * @throws Exception anything the setup or the operation throws
+   */
+  public static Result run(String name, int warmup, int iterations, Operation setup, Operation operation) throws Exception {
+    for (int i = 0; i < warmup; i++) {
+      if (setup != null) {
+        setup.run();
+      }
+      operation.run();
+    }
+    long[] samples = new long[iterations];
+    for (int i = 0; i < iterations; i++) {
+      if (setup != null) {
+        setup.run();
+      }
+      long start = System.nanoTime();
+      operation.run();
+      samples[i] = System.nanoTime() - start;
+    }
+    return new Result(name, samples);
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package game.engine.bench;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.CountDownLatch;
+
+import game.engine.utils.CaptureOutputStream;
+import game.engine.utils.ThreadLocalPrintStream;
+
+/**
+ * Measures the capture of the prints of the players: the former capture 
+ * (a shared print stream over a stream that appends every byte to a 
+ * synchronized {@link StringBuffer}) against the {@link ThreadLocalPrintStream} 
+ * that routes every thread to its own print stream over a 
+ * {@link CaptureOutputStream}. A run prints the same lines on every thread, 
+ * the captures are drained after the runs.
+ */
+public final class CaptureBenchmark {
+  /** printed line */
+  private static final String LINE = "a line printed by a player, 40 chars...";
+  
+  private CaptureBenchmark() {
+  }
+  
+  /**
+   * The former capture stream, kept for comparison.
+   */
+  private static final class StringBufferOutputStream extends OutputStream {
+    private final StringBuffer buffer;
+    
+    private StringBufferOutputStream(StringBuffer buffer) {
+      this.buffer = buffer;
+    }
+    
+    @Override
+    public void write(int b) {
+      buffer.append((char) b);
+    }
+  }
+  
+  /**
+   * Returns the operation that prints the specified number of lines on each 
+   * of the specified threads, the threads take their streams by the index.
+   * @param threads number of printing threads
+   * @param lines number of lines per thread
+   * @param shared print stream of the threads
+   * @param bind binds the stream of a thread, null if the threads share the stream
+   * @return operation
+   */
+  private static Benchmark.Operation prints(final int threads, final int lines, final PrintStream shared, final PrintStream[] bind) {
+    return new Benchmark.Operation() {
+      @Override
+      public void run() throws Exception {
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+          final int idx = t;
+          new Thread(new Runnable() {
+            @Override
+            public void run() {
+              if (bind != null) {
+                ((ThreadLocalPrintStream) shared).set(bind[idx]);
+              }
+              for (int line = 0; line < lines; line++) {
+                shared.println(LINE);
+              }
+              done.countDown();
+            }
+          }).start();
+        }
+        done.await();
+      }
+    };
+  }
+  
+  /**
+   * Entry point of the benchmark.
+   * @param args number of measured runs, number of lines per thread (optional)
+   * @throws Exception anything the threads throw
+   */
+  public static void main(String[] args) throws Exception {
+    int iterations = args.length < 1 ? 200 : Integer.parseInt(args[0]);
+    int lines = args.length < 2 ? 1000 : Integer.parseInt(args[1]);
+    for (int threads : new int[] {1, 4}) {
+      final StringBuffer sb = new StringBuffer();
+      PrintStream legacy = new PrintStream(new StringBufferOutputStream(sb));
+      System.out.println(Benchmark.run("legacy.t" + threads, iterations / 10, iterations, new Benchmark.Operation() {
+        @Override
+        public void run() {
+          sb.setLength(0);
+        }
+      }, prints(threads, lines, legacy, null)));
+      
+      final CaptureOutputStream[] captures = new CaptureOutputStream[threads];
+      PrintStream[] streams = new PrintStream[threads];
+      for (int t = 0; t < threads; t++) {
+        captures[t] = new CaptureOutputStream();
+        streams[t] = new PrintStream(captures[t]);
+      }
+      ThreadLocalPrintStream routed = new ThreadLocalPrintStream(System.out);
+      System.out.println(Benchmark.run("capture.t" + threads, iterations / 10, iterations, new Benchmark.Operation() {
+        @Override
+        public void run() {
+          for (CaptureOutputStream capture : captures) {
+            capture.drain();
+          }
+        }
+      }, prints(threads, lines, routed, streams)));
+    }
+  }
+}
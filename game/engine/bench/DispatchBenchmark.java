@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package game.engine.bench;
+
+import java.lang.reflect.Constructor;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+
+import game.engine.Action;
+import game.engine.Player;
+import game.engine.utils.ActionTask;
+import game.engine.utils.ConstructionTask;
+import game.engine.utils.Pair;
+import game.engine.utils.PoolTaskExecutor;
+import game.engine.utils.TaskExecutor;
+import game.engine.utils.WorkerTaskExecutor;
+
+/**
+ * Measures the per-turn dispatch overhead of the {@link TaskExecutor}s, for 
+ * {@link ActionTask}s and {@link ConstructionTask}s of a player that does 
+ * nothing.
+ */
+public final class DispatchBenchmark {
+  
+  /**
+   * Player that returns immediately.
+   */
+  public static final class IdlePlayer implements Player<Action> {
+    /**
+     * Creates the player.
+     */
+    public IdlePlayer() {
+    }
+    @Override
+    public Action getAction(List<Pair<Integer, Action>> prevActions, long[] remainingTimes) {
+      return null;
+    }
+    @Override
+    public int getColor() {
+      return 0;
+    }
+  }
+  
+  /**
+   * Entry point of the benchmark.
+   * @param args number of measured dispatches (optional)
+   * @throws Exception reflection
+   */
+  public static void main(String[] args) throws Exception {
+    int iterations = args.length < 1 ? 20000 : Integer.parseInt(args[0]);
+    ThreadFactory factory = new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable);
+        thread.setDaemon(true);
+        return thread;
+      }
+    };
+    TaskExecutor[] executors = new TaskExecutor[] {new PoolTaskExecutor(factory), new WorkerTaskExecutor(factory)};
+    for (final TaskExecutor executor : executors) {
+      String name = executor.getClass().getSimpleName();
+      final ActionTask actionTask = new ActionTask();
+      actionTask.setParams(new IdlePlayer(), new LinkedList<Pair<Integer, Action>>(), new long[] {0});
+      System.out.println(Benchmark.run(name + ".ActionTask", iterations, iterations, new Benchmark.Operation() {
+        @Override
+        public void run() throws Exception {
+          executor.execute(0, actionTask, Long.MAX_VALUE);
+        }
+      }));
+      Constructor<IdlePlayer> constructor = IdlePlayer.class.getConstructor();
+      final ConstructionTask<IdlePlayer> constructionTask = new ConstructionTask<IdlePlayer>();
+      constructionTask.setConstructor(constructor);
+      System.out.println(Benchmark.run(name + ".ConstructionTask", iterations, iterations, new Benchmark.Operation() {
+        @Override
+        public void run() throws Exception {
+          executor.execute(0, constructionTask, Long.MAX_VALUE);
+        }
+      }));
+      executor.shutdown();
+    }
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package game.engine.bench;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.imageio.ImageIO;
+
+import game.engine.ui.FrameExporter;
+
+/**
+ * Measures the frames per second of the zipped frame export: synchronous 
+ * encoding on the caller thread (as the engine did) versus the 
+ * {@link FrameExporter} pipeline with different numbers of encoders. The 
+ * frames are board-like images (a grid of cells with walls and traces) 
+ * painted headless, the zip is written to a null stream.
+ */
+public final class FrameExportBenchmark {
+  
+  private FrameExportBenchmark() {
+  }
+  
+  /**
+   * Paints a board-like frame, the traces grow with the frame index.
+   * @param graphics to paint with
+   * @param rows number of cells vertically
+   * @param cols number of cells horizontally
+   * @param cell size of a cell in pixels
+   * @param frame index of the frame
+   */
+  private static void paint(Graphics graphics, int rows, int cols, int cell, int frame) {
+    Random random = new Random(rows * 31 + cols);
+    graphics.setColor(Color.WHITE);
+    graphics.fillRect(0, 0, cols * cell, rows * cell);
+    for (int i = 0; i < rows; i++) {
+      for (int j = 0; j < cols; j++) {
+        graphics.setColor(Color.GRAY);
+        graphics.drawRect(j * cell, i * cell, cell, cell);
+        int value = random.nextInt(4);
+        if (value == 0) {
+          graphics.setColor(Color.darkGray);
+          graphics.fillRect(j * cell + 1, i * cell + 1, cell - 1, cell - 1);
+        } else if (value == 1 && (i * cols + j) % (rows * cols) < 3 * frame) {
+          graphics.setColor(Color.lightGray);
+          graphics.fillOval(j * cell + 1, i * cell + 1, cell - 2, cell - 2);
+        }
+      }
+    }
+  }
+  
+  /**
+   * Entry point of the benchmark.
+   * @param args number of frames, rows, columns, cell size (optional)
+   * @throws Exception image IO
+   */
+  public static void main(String[] args) throws Exception {
+    System.setProperty("java.awt.headless", "true");
+    int frames = args.length < 1 ? 300 : Integer.parseInt(args[0]);
+    int rows = args.length < 2 ? 63 : Integer.parseInt(args[1]);
+    int cols = args.length < 3 ? 123 : Integer.parseInt(args[2]);
+    int cell = args.length < 4 ? 800 / rows : Integer.parseInt(args[3]);
+    
+    // synchronous: new image, encode and write on the caller thread (the 
+    // first frames warm up the painting and the encoder)
+    ZipOutputStream zip = new ZipOutputStream(OutputStream.nullOutputStream());
+    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    int warmup = Math.max(1, frames / 10);
+    long start = 0;
+    for (int frame = -warmup; frame < frames; frame++) {
+      if (frame == 0) {
+        start = System.nanoTime();
+      }
+      BufferedImage image = new BufferedImage(cols * cell, rows * cell, BufferedImage.TYPE_INT_RGB);
+      Graphics graphics = image.getGraphics();
+      paint(graphics, rows, cols, cell, Math.max(0, frame));
+      graphics.dispose();
+      stream.reset();
+      ImageIO.write(image, "png", stream);
+      zip.putNextEntry(new ZipEntry(String.format(FrameExporter.ENTRY_FORMAT, frame + warmup)));
+      zip.write(stream.toByteArray());
+      zip.closeEntry();
+    }
+    zip.close();
+    System.out.println("{\"name\":\"sync\",\"frames\":" + frames + ",\"fps\":" + (frames / ((System.nanoTime() - start) / 1E9)) + "}");
+    
+    // pipelined with 1, 2, ..., 2 * processors encoders
+    int processors = Runtime.getRuntime().availableProcessors();
+    for (int encoders = 1; encoders <= 2 * processors; encoders *= 2) {
+      FrameExporter exporter = new FrameExporter(new ZipOutputStream(OutputStream.nullOutputStream()), encoders, 2 * encoders + 2);
+      for (int frame = 0; frame < frames; frame++) {
+        BufferedImage image = exporter.acquire(cols * cell, rows * cell);
+        Graphics graphics = image.getGraphics();
+        paint(graphics, rows, cols, cell, frame);
+        graphics.dispose();
+        exporter.submit(image);
+      }
+      exporter.close();
+      System.out.println("{\"name\":\"pipeline\",\"encoders\":" + encoders + ",\"frames\":" + exporter.getFrames() + ",\"fps\":" + exporter.getFps() + "}");
+    }
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package game.engine.bench;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+
+import game.engine.Engine;
+import game.engine.EngineOptions;
+import game.engine.GameResult;
+import game.engine.utils.PhaseTimer;
+import game.engine.utils.PhaseTimer.Phase;
+
+/**
+ * Measures the overhead of the {@link PhaseTimer}: the cost of a measured 
+ * phase (a begin and an end call) with the disabled and the enabled timer, 
+ * and the time of whole games played by the {@link Engine} without and with 
+ * the trace.
+ */
+public final class PhaseTimerBenchmark {
+  /** number of phases of a measured run */
+  private static final int PHASES = 1000;
+  
+  /** keeps the measured calls from being optimized away */
+  private static long sink;
+  
+  private PhaseTimerBenchmark() {
+  }
+  
+  /**
+   * Returns the operation of {@link PhaseTimerBenchmark#PHASES} phases 
+   * measured by the timer of the specified holder.
+   * @param holder of the timer
+   * @return operation
+   */
+  private static Benchmark.Operation phases(final PhaseTimer[] holder) {
+    return new Benchmark.Operation() {
+      @Override
+      public void run() {
+        PhaseTimer timer = holder[0];
+        for (int idx = 0; idx < PHASES; idx++) {
+          long start = timer.begin();
+          sink += idx;
+          timer.end(Phase.SET_ACTION, start);
+        }
+      }
+    };
+  }
+  
+  /**
+   * Returns the operation that plays a game by the specified options and 
+   * removes its log.
+   * @param gameClass class of the game
+   * @param params parameters of the game
+   * @param options settings of the engine
+   * @return operation
+   */
+  private static Benchmark.Operation game(final String gameClass, final String[] params, final EngineOptions options) {
+    final PrintStream silent = new PrintStream(OutputStream.nullOutputStream());
+    return new Benchmark.Operation() {
+      @Override
+      public void run() throws Exception {
+        GameResult result = new Engine(0, gameClass, params, options, silent, System.err).play();
+        new File(result.logFile).delete();
+      }
+    };
+  }
+  
+  /**
+   * Entry point of the benchmark.
+   * @param args number of measured runs, number of measured games, class and 
+   * parameters of the game (all optional)
+   * @throws Exception anything the games throw
+   */
+  public static void main(String[] args) throws Exception {
+    int iterations = args.length < 1 ? 20000 : Integer.parseInt(args[0]);
+    int games = args.length < 2 ? 20 : Integer.parseInt(args[1]);
+    String gameClass = args.length < 3 ? "game.racetrack.RaceTrackGame" : args[2];
+    String[] params = args.length < 4 ? new String[] {"21", "21", "3", "0.5", "30", "3", "1000", "game.racetrack.players.RandomPlayer"} : Arrays.copyOfRange(args, 3, args.length);
+    
+    // runs of PHASES phases, without timer, with the disabled and the enabled one
+    final PhaseTimer[] holder = new PhaseTimer[1];
+    System.out.println(Benchmark.run("phases.none.x" + PHASES, iterations / 10, iterations, new Benchmark.Operation() {
+      @Override
+      public void run() {
+        for (int idx = 0; idx < PHASES; idx++) {
+          sink += idx;
+        }
+      }
+    }));
+    holder[0] = PhaseTimer.DISABLED;
+    System.out.println(Benchmark.run("phases.disabled.x" + PHASES, iterations / 10, iterations, phases(holder)));
+    System.out.println(Benchmark.run("phases.enabled.x" + PHASES, iterations / 10, iterations, new Benchmark.Operation() {
+      @Override
+      public void run() {
+        holder[0] = new PhaseTimer();
+      }
+    }, phases(holder)));
+    
+    // whole games without and with the trace
+    EngineOptions disabled = EngineOptions.fromSystemProperties();
+    disabled.trace = null;
+    disabled.report = false;
+    disabled.indexInterval = 0;
+    System.out.println(Benchmark.run("game.disabled", games / 4, games, game(gameClass, params, disabled)));
+    File trace = File.createTempFile("trace", ".json");
+    trace.deleteOnExit();
+    EngineOptions enabled = EngineOptions.fromSystemProperties();
+    enabled.trace = trace.getPath();
+    enabled.report = false;
+    enabled.indexInterval = 0;
+    System.out.println(Benchmark.run("game.enabled", games / 4, games, game(gameClass, params, enabled)));
+    System.err.println("checksum: " + sink);
+  }
+}
@@ -0,0 +1,325 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package game.engine.log;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * Constants and encoding helpers of the binary gameplay log format.
+ * <pre>
+ * log   := MAGIC VERSION block*
+ * block := type:u8 length:varint payload crc32:u32
+ * </pre>
+ * The CRC-32 checksum covers the type and the payload of the block. The 
+ * blocks are: one {@link BinaryLog#HEADER} (game class, parameters), one 
+ * {@link BinaryLog#CONSTRUCTION} per player (player class, elapsed), 
+ * {@link BinaryLog#TURNS} blocks (pairs of action code and elapsed) and a 
+ * closing {@link BinaryLog#END} block (number of players, final scores and 
+ * remaining times, or empty if the result was not recorded). Integers are 
+ * LEB128 varints, elapsed times are zig-zag encoded, doubles are 8 byte IEEE 
+ * 754 values (big-endian), strings are length prefixed UTF-8 byte sequences.
+ */
+public final class BinaryLog {
+  /** first bytes of a binary log file */
+  public static final byte[] MAGIC = new byte[] {'R', 'T', 'B', 'L'};
+  /** version of the format */
+  public static final int VERSION = 1;
+  /** header block: game class and parameters */
+  public static final int HEADER = 'H';
+  /** construction block: player class and construction time */
+  public static final int CONSTRUCTION = 'C';
+  /** turns block: actions and computation times */
+  public static final int TURNS = 'T';
+  /** end block: final scores and remaining times */
+  public static final int END = 'E';
+  /** maximal number of turns in a block */
+  public static final int TURNS_PER_BLOCK = 1024;
+  /** 
+   * number of bits of the turn index in the positions of the turns, a 
+   * position is the file offset of the block shifted by this many bits and 
+   * the index of the turn in the block 
+   */
+  public static final int TURN_BITS = 11;
+  /** maximal length of a block payload, longer lengths are read as corruption */
+  public static final int MAX_BLOCK_SIZE = 1 << 24;
+  
+  private BinaryLog() {
+  }
+  
+  /**
+   * Writes a block of the specified type and payload to the specified stream.
+   * @param os stream to be written
+   * @param type of the block
+   * @param payload of the block
+   * @param crc checksum calculator to be reused
+   * @return number of bytes written
+   * @throws IOException file IO
+   */
+  public static int writeBlock(OutputStream os, int type, Buffer payload, CRC32 crc) throws IOException {
+    crc.reset();
+    crc.update(type);
+    crc.update(payload.data, 0, payload.size);
+    os.write(type);
+    int written = 1;
+    int length = payload.size;
+    while ((length & ~0x7F) != 0) {
+      os.write((length & 0x7F) | 0x80);
+      length >>>= 7;
+      written++;
+    }
+    os.write(length);
+    os.write(payload.data, 0, payload.size);
+    int value = (int) crc.getValue();
+    os.write(value >>> 24);
+    os.write(value >>> 16);
+    os.write(value >>> 8);
+    os.write(value);
+    return written + 1 + payload.size + 4;
+  }
+  
+  /**
+   * Reads the next block from the specified stream into the specified buffer 
+   * and verifies its checksum.
+   * @param is stream to be read
+   * @param payload buffer of the payload
+   * @param crc checksum calculator to be reused
+   * @return number of bytes read, or -1 at the end of the stream, the type 
+   *     of the block is stored in {@link Buffer#type}
+   * @throws IOException file IO or corrupted block (also if the length is 
+   *     negative or larger than {@link BinaryLog#MAX_BLOCK_SIZE})
+   */
+  public static int readBlock(InputStream is, Buffer payload, CRC32 crc) throws IOException {
+    int type = is.read();
+    if (type < 0) {
+      return -1;
+    }
+    int read = 1;
+    int length = 0;
+    for (int shift = 0; ; shift += 7) {
+      int b = is.read();
+      if (b < 0) {
+        throw new EOFException("truncated block");
+      }
+      if (28 < shift) {
+        throw new IOException("malformed block length");
+      }
+      read++;
+      length |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        break;
+      }
+    }
+    if (length < 0 || MAX_BLOCK_SIZE < length) {
+      throw new IOException("malformed block length: " + (length & 0xFFFFFFFFL));
+    }
+    payload.clear();
+    payload.ensure(length);
+    readFully(is, payload.data, length);
+    payload.size = length;
+    payload.type = type;
+    crc.reset();
+    crc.update(type);
+    crc.update(payload.data, 0, length);
+    int value = 0;
+    for (int i = 0; i < 4; i++) {
+      int b = is.read();
+      if (b < 0) {
+        throw new EOFException("truncated block");
+      }
+      value = (value << 8) | b;
+    }
+    if ((int) crc.getValue() != value) {
+      throw new IOException("checksum error in block: " + (char) type);
+    }
+    return read + length + 4;
+  }
+  
+  /**
+   * Reads exactly the specified number of bytes.
+   * @param is stream to be read
+   * @param bytes stored to
+   * @param length number of bytes to be read
+   * @throws IOException file IO or end of stream
+   */
+  private static void readFully(InputStream is, byte[] bytes, int length) throws IOException {
+    if (is.readNBytes(bytes, 0, length) != length) {
+      throw new EOFException("truncated block");
+    }
+  }
+  
+  /**
+   * Growable byte array, the payload of a block is built and parsed in it.
+   */
+  public static final class Buffer {
+    /** content of the buffer */
+    public byte[] data = new byte[256];
+    /** type of the block was read into the buffer */
+    public int type = -1;
+    /** number of bytes written */
+    public int size = 0;
+    /** position of the next read */
+    public int position = 0;
+    
+    /**
+     * Empties the buffer.
+     */
+    public void clear() {
+      size = 0;
+      position = 0;
+    }
+    
+    /**
+     * Ensures the capacity for the specified number of additional bytes.
+     * @param length number of bytes to be written
+     */
+    public void ensure(int length) {
+      if (data.length < size + length) {
+        byte[] tmp = new byte[Math.max(2 * data.length, size + length)];
+        System.arraycopy(data, 0, tmp, 0, size);
+        data = tmp;
+      }
+    }
+    
+    /**
+     * Appends the specified value as 8 big-endian bytes.
+     * @param value to be written
+     */
+    public void writeDouble(double value) {
+      ensure(8);
+      long bits = Double.doubleToLongBits(value);
+      for (int shift = 56; 0 <= shift; shift -= 8) {
+        data[size++] = (byte) (bits >>> shift);
+      }
+    }
+    
+    /**
+     * Appends the specified value as an unsigned varint.
+     * @param value to be written
+     */
+    public void writeVarLong(long value) {
+      ensure(10);
+      while ((value & ~0x7FL) != 0) {
+        data[size++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      data[size++] = (byte) value;
+    }
+    
+    /**
+     * Appends the specified value as a zig-zag encoded varint.
+     * @param value to be written
+     */
+    public void writeZigZag(long value) {
+      writeVarLong((value << 1) ^ (value >> 63));
+    }
+    
+    /**
+     * Appends the specified string as length prefixed UTF-8 bytes.
+     * @param value to be written
+     */
+    public void writeString(String value) {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      writeVarLong(bytes.length);
+      ensure(bytes.length);
+      System.arraycopy(bytes, 0, data, size, bytes.length);
+      size += bytes.length;
+    }
+    
+    /**
+     * Reads an unsigned varint.
+     * @return read value
+     * @throws IOException if the varint is malformed or truncated
+     */
+    public long readVarLong() throws IOException {
+      long value = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+        if (size <= position) {
+          throw new IOException("truncated varint");
+        }
+        byte b = data[position++];
+        value |= (long) (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          return value;
+        }
+      }
+      throw new IOException("malformed varint");
+    }
+    
+    /**
+     * Reads the number of the following elements as an unsigned varint, and 
+     * checks that the rest of the buffer can hold that many elements.
+     * @param elementSize minimal number of bytes of an element
+     * @return number of elements
+     * @throws IOException if the count is malformed or too large
+     */
+    public int readCount(int elementSize) throws IOException {
+      long count = readVarLong();
+      if (count < 0 || (size - position) / elementSize < count) {
+        throw new IOException("malformed count: " + count);
+      }
+      return (int) count;
+    }
+    
+    /**
+     * Reads an 8 byte big-endian double.
+     * @return the read value
+     * @throws IOException if the buffer is exhausted
+     */
+    public double readDouble() throws IOException {
+      if (size < position + 8) {
+        throw new EOFException("truncated double");
+      }
+      long bits = 0;
+      for (int i = 0; i < 8; i++) {
+        bits = (bits << 8) | (data[position++] & 0xFF);
+      }
+      return Double.longBitsToDouble(bits);
+    }
+    
+    /**
+     * Reads a zig-zag encoded varint.
+     * @return read value
+     * @throws IOException if the varint is malformed or truncated
+     */
+    public long readZigZag() throws IOException {
+      long value = readVarLong();
+      return (value >>> 1) ^ -(value & 1);
+    }
+    
+    /**
+     * Reads a length prefixed UTF-8 string.
+     * @return read string
+     * @throws IOException if the string is truncated
+     */
+    public String readString() throws IOException {
+      long length = readVarLong();
+      if (length < 0 || size - position < length) {
+        throw new IOException("truncated string");
+      }
+      String value = new String(data, position, (int) length, StandardCharsets.UTF_8);
+      position += (int) length;
+      return value;
+    }
+  }
+}
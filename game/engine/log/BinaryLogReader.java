@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package game.engine.log;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import game.engine.Action;
+import game.engine.ActionCodec;
+import game.engine.Game;
+import game.engine.utils.Pair;
+
+/**
+ * Reads the binary gameplay logs described by {@link BinaryLog} block by 
+ * block, the checksums of the blocks are verified.
+ */
+public final class BinaryLogReader implements LogReader {
+  private final FileInputStream fis;
+  private InputStream is;
+  private final BinaryLog.Buffer block = new BinaryLog.Buffer();
+  private final CRC32 crc = new CRC32();
+  private final String gameClass;
+  private final String[] params;
+  private ActionCodec<Action> codec;
+  private boolean ended = false;
+  private Pair<double[], long[]> result = null;
+  // file offset of the current block, of the next block, and the index of the next turn in the current block
+  private long blockOffset = 0;
+  private long offset = 0;
+  private int turnIdx = 0;
+
+  /**
+   * Opens the specified log file and reads its header.
+   * @param file to be read
+   * @throws IOException file IO, not a binary log or unsupported version
+   */
+  public BinaryLogReader(File file) throws IOException {
+    fis = new FileInputStream(file);
+    is = new BufferedInputStream(fis, 1 << 16);
+    byte[] magic = new byte[BinaryLog.MAGIC.length];
+    int version = is.readNBytes(magic, 0, magic.length) == magic.length ? is.read() : -1;
+    if (!Arrays.equals(magic, BinaryLog.MAGIC)) {
+      is.close();
+      throw new IOException(file + " is not a binary gameplay log");
+    }
+    if (version != BinaryLog.VERSION) {
+      is.close();
+      throw new IOException("unsupported binary log version: " + version);
+    }
+    offset = BinaryLog.MAGIC.length + 1;
+    expect(BinaryLog.HEADER);
+    gameClass = block.readString();
+    // a parameter is at least its length byte
+    params = new String[block.readCount(1)];
+    for (int i = 0; i < params.length; i++) {
+      params[i] = block.readString();
+    }
+  }
+
+  @Override
+  public String getGameClass() {
+    return gameClass;
+  }
+
+  @Override
+  public String[] getParams() {
+    return params;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void setGame(Game<?, ?> game) throws IOException {
+    if (!(game instanceof ActionCodec)) {
+      throw new IOException(game.getClass().getName() + " does not implement " + ActionCodec.class.getName());
+    }
+    codec = (ActionCodec<Action>) game;
+  }
+
+  @Override
+  public Pair<String, Long> readConstruction() throws IOException {
+    expect(BinaryLog.CONSTRUCTION);
+    String playerClass = block.readString();
+    return new Pair<String, Long>(playerClass, block.readZigZag());
+  }
+
+  @Override
+  public Pair<Action, Long> readTurn() throws IOException {
+    if (!nextTurn()) {
+      return null;
+    }
+    Action action = codec.decode((int) block.readVarLong());
+    Pair<Action, Long> result = new Pair<Action, Long>(action, block.readZigZag());
+    turnIdx++;
+    return result;
+  }
+  
+  /**
+   * Reads the next turns block if the current one has been consumed.
+   * @return false at the end of the log
+   * @throws IOException file IO, corrupted or unexpected block
+   */
+  private boolean nextTurn() throws IOException {
+    while (block.position == block.size) {
+      if (ended) {
+        return false;
+      }
+      int type = readBlock();
+      if (type == BinaryLog.END && block.position < block.size) {
+        // a player is at least a score and a remaining time byte
+        int numPlayers = block.readCount(9);
+        result = new Pair<double[], long[]>(new double[numPlayers], new long[numPlayers]);
+        for (int i = 0; i < numPlayers; i++) {
+          result.first[i] = block.readDouble();
+          result.second[i] = block.readZigZag();
+        }
+      }
+      if (type == BinaryLog.END || type < 0) {
+        ended = true;
+        return false;
+      }
+      if (type != BinaryLog.TURNS) {
+        throw new IOException("unexpected block: " + (char) type);
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public Pair<double[], long[]> readResult() throws IOException {
+    while (nextTurn()) {
+      block.readVarLong();
+      block.readVarLong();
+      turnIdx++;
+    }
+    return result;
+  }
+
+  @Override
+  public long position() {
+    if (block.position == block.size) {
+      return offset << BinaryLog.TURN_BITS;
+    }
+    return (blockOffset << BinaryLog.TURN_BITS) | turnIdx;
+  }
+
+  @Override
+  public void seek(long position) throws IOException {
+    long target = position >>> BinaryLog.TURN_BITS;
+    int idx = (int) (position & ((1 << BinaryLog.TURN_BITS) - 1));
+    fis.getChannel().position(target);
+    is = new BufferedInputStream(fis, 1 << 16);
+    offset = target;
+    blockOffset = target;
+    block.clear();
+    ended = false;
+    turnIdx = 0;
+    for (int i = 0; i < idx; i++) {
+      if (!nextTurn()) {
+        throw new IOException("invalid log position: " + position);
+      }
+      block.readVarLong();
+      block.readVarLong();
+      turnIdx++;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    is.close();
+  }
+  
+  /**
+   * Reads the next block and checks its type.
+   * @param type expected type
+   * @throws IOException file IO, corrupted or unexpected block
+   */
+  private void expect(int type) throws IOException {
+    int read = readBlock();
+    if (read != type) {
+      throw new IOException("unexpected block: " + (read < 0 ? "EOF" : (char) read) + " instead of " + (char) type);
+    }
+  }
+  
+  /**
+   * Reads the next block into the block buffer.
+   * @return type of the block, or -1 at the end of the file
+   * @throws IOException file IO or corrupted block
+   */
+  private int readBlock() throws IOException {
+    int read = BinaryLog.readBlock(is, block, crc);
+    if (read < 0) {
+      return -1;
+    }
+    blockOffset = offset;
+    offset += read;
+    turnIdx = 0;
+    return block.type;
+  }
+
+}
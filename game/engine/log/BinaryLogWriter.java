@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package game.engine.log;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+
+import game.engine.Action;
+import game.engine.ActionCodec;
+import game.engine.Game;
+
+/**
+ * Writes the gameplay log in the binary format described by {@link BinaryLog}.
+ */
+public final class BinaryLogWriter implements LogWriter {
+  private final OutputStream os;
+  private final BinaryLog.Buffer block = new BinaryLog.Buffer();
+  private final BinaryLog.Buffer turns = new BinaryLog.Buffer();
+  private final CRC32 crc = new CRC32();
+  private long offset = 0;
+  private ActionCodec<Action> codec;
+  private int numTurns = 0;
+  private boolean ended = false;
+
+  /**
+   * Creates the specified log file.
+   * @param fileName name of the log file
+   * @throws IOException file IO
+   */
+  public BinaryLogWriter(String fileName) throws IOException {
+    os = new BufferedOutputStream(new FileOutputStream(fileName), 1 << 16);
+    os.write(BinaryLog.MAGIC);
+    os.write(BinaryLog.VERSION);
+    offset = BinaryLog.MAGIC.length + 1;
+  }
+
+  @Override
+  public void writeHeader(String gameClass, String[] params) throws IOException {
+    block.clear();
+    block.writeString(gameClass);
+    block.writeVarLong(params.length);
+    for (String param : params) {
+      block.writeString(param);
+    }
+    writeBlock(BinaryLog.HEADER, block);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void setGame(Game<?, ?> game) throws IOException {
+    if (!(game instanceof ActionCodec)) {
+      throw new IOException(game.getClass().getName() + " does not implement " + ActionCodec.class.getName());
+    }
+    codec = (ActionCodec<Action>) game;
+  }
+
+  @Override
+  public void writeConstruction(String playerClass, long elapsed) throws IOException {
+    block.clear();
+    block.writeString(playerClass);
+    block.writeZigZag(elapsed);
+    writeBlock(BinaryLog.CONSTRUCTION, block);
+  }
+
+  @Override
+  public void writeTurn(Action action, long elapsed) throws IOException {
+    turns.writeVarLong(codec.encode(action));
+    turns.writeZigZag(elapsed);
+    numTurns++;
+    if (numTurns == BinaryLog.TURNS_PER_BLOCK) {
+      flushTurns();
+    }
+  }
+  
+  /**
+   * Writes the buffered turns as a block.
+   * @throws IOException file IO
+   */
+  private void flushTurns() throws IOException {
+    if (0 < numTurns) {
+      writeBlock(BinaryLog.TURNS, turns);
+      turns.clear();
+      numTurns = 0;
+    }
+  }
+
+  @Override
+  public long position() {
+    return (offset << BinaryLog.TURN_BITS) | numTurns;
+  }
+
+  @Override
+  public void writeResult(double[] scores, long[] remainingTimes) throws IOException {
+    flushTurns();
+    block.clear();
+    block.writeVarLong(scores.length);
+    for (int i = 0; i < scores.length; i++) {
+      block.writeDouble(scores[i]);
+      block.writeZigZag(remainingTimes[i]);
+    }
+    writeBlock(BinaryLog.END, block);
+    ended = true;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (!ended) {
+      flushTurns();
+      block.clear();
+      writeBlock(BinaryLog.END, block);
+    }
+    os.close();
+  }
+  
+  /**
+   * Writes a block of the specified type and payload.
+   * @param type of the block
+   * @param payload of the block
+   * @throws IOException file IO
+   */
+  private void writeBlock(int type, BinaryLog.Buffer payload) throws IOException {
+    offset += BinaryLog.writeBlock(os, type, payload, crc);
+  }
+
+}
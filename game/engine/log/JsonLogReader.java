@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package game.engine.log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+
+import com.google.gson.reflect.TypeToken;
+
+import game.engine.Action;
+import game.engine.Game;
+import game.engine.utils.Pair;
+import game.engine.utils.Utils;
+
+/**
+ * Reads the JSON lines gameplay logs. The lines are read from an own buffer,
+ * so that the byte position of the next line is known.
+ */
+public final class JsonLogReader implements LogReader {
+  private static final Type constructionType = TypeToken.getParameterized(Pair.class, new Type[] {String.class, Long.class}).getType();
+  private static final Type resultType = TypeToken.getParameterized(Pair.class, new Type[] {double[].class, long[].class}).getType();
+  private final FileInputStream is;
+  private final byte[] buffer = new byte[1 << 16];
+  private int bufferPos = 0;
+  private int bufferLen = 0;
+  private long bufferStart = 0;
+  private byte[] line = new byte[256];
+  private final String gameClass;
+  private final String[] params;
+  private Type logType;
+  private boolean ended = false;
+
+  /**
+   * Opens the specified log file and reads its header.
+   * @param file to be read
+   * @throws IOException file IO
+   */
+  public JsonLogReader(File file) throws IOException {
+    is = new FileInputStream(file);
+    gameClass = Utils.getGson().fromJson(readLine(), String.class);
+    params = Utils.getGson().fromJson(readLine(), String[].class);
+  }
+
+  @Override
+  public String getGameClass() {
+    return gameClass;
+  }
+
+  @Override
+  public String[] getParams() {
+    return params;
+  }
+
+  @Override
+  public void setGame(Game<?, ?> game) {
+    logType = TypeToken.getParameterized(Pair.class, new Type[] {game.getActionClass(), Long.class}).getType();
+  }
+
+  @Override
+  public Pair<String, Long> readConstruction() throws IOException {
+    return Utils.getGson().fromJson(readLine(), constructionType);
+  }
+
+  @Override
+  public Pair<Action, Long> readTurn() throws IOException {
+    if (ended) {
+      return null;
+    }
+    String line = readLine();
+    if (line == null || line.equals(JsonLogWriter.LOGEND)) {
+      ended = true;
+      return null;
+    }
+    return Utils.getGson().fromJson(line, logType);
+  }
+
+  @Override
+  public Pair<double[], long[]> readResult() throws IOException {
+    while (readTurn() != null) {
+    }
+    String line = readLine();
+    if (line == null || !line.startsWith(JsonLogWriter.RESULT)) {
+      return null;
+    }
+    return Utils.getGson().fromJson(line.substring(JsonLogWriter.RESULT.length()), resultType);
+  }
+
+  @Override
+  public long position() {
+    return bufferStart + bufferPos;
+  }
+
+  @Override
+  public void seek(long position) throws IOException {
+    is.getChannel().position(position);
+    bufferStart = position;
+    bufferPos = 0;
+    bufferLen = 0;
+    ended = false;
+  }
+
+  @Override
+  public void close() throws IOException {
+    is.close();
+  }
+  
+  /**
+   * Reads the next line (terminated by \n or \r\n) as UTF-8.
+   * @return the line without the terminator, or null at the end of the file
+   * @throws IOException file IO
+   */
+  private String readLine() throws IOException {
+    int length = 0;
+    while (true) {
+      if (bufferPos == bufferLen) {
+        bufferStart += bufferLen;
+        bufferPos = 0;
+        bufferLen = Math.max(0, is.read(buffer));
+        if (bufferLen == 0) {
+          return length == 0 ? null : decode(length);
+        }
+      }
+      byte b = buffer[bufferPos++];
+      if (b == '\n') {
+        return decode(length);
+      }
+      if (line.length == length) {
+        byte[] tmp = new byte[2 * line.length];
+        System.arraycopy(line, 0, tmp, 0, length);
+        line = tmp;
+      }
+      line[length++] = b;
+    }
+  }
+  
+  /**
+   * Decodes the specified number of bytes of the line buffer.
+   * @param length number of bytes
+   * @return decoded line without \r terminator
+   */
+  private String decode(int length) {
+    if (0 < length && line[length - 1] == '\r') {
+      length--;
+    }
+    return new String(line, 0, length, StandardCharsets.UTF_8);
+  }
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package game.engine.log;
+
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+
+import game.engine.Action;
+import game.engine.Game;
+import game.engine.utils.Pair;
+import game.engine.utils.Utils;
+
+/**
+ * Writes the gameplay log as JSON lines.
+ */
+public final class JsonLogWriter implements LogWriter {
+  /** the last line of the JSON logs */
+  public static final String LOGEND = "LOGEND";
+  /** prefix of the result line after {@link JsonLogWriter#LOGEND} */
+  public static final String RESULT = "RESULT ";
+  private final PrintWriter os;
+  private final CountingOutputStream counter;
+  private boolean ended = false;
+
+  /**
+   * Creates the specified log file.
+   * @param fileName name of the log file
+   * @throws IOException file IO
+   */
+  public JsonLogWriter(String fileName) throws IOException {
+    counter = new CountingOutputStream(new FileOutputStream(fileName));
+    os = new PrintWriter(new OutputStreamWriter(counter, "utf8"), true);
+  }
+
+  @Override
+  public void writeHeader(String gameClass, String[] params) {
+    os.println(Utils.getGson().toJson(gameClass));
+    os.println(Utils.getGson().toJson(params));
+  }
+
+  @Override
+  public void setGame(Game<?, ?> game) {
+  }
+
+  @Override
+  public void writeConstruction(String playerClass, long elapsed) {
+    os.println(Utils.getGson().toJson(new Pair<String, Long>(playerClass, elapsed)));
+  }
+
+  @Override
+  public void writeTurn(Action action, long elapsed) {
+    os.println(Utils.getGson().toJson(new Pair<Action, Long>(action, elapsed)));
+  }
+
+  @Override
+  public long position() {
+    // every line is flushed, so the count is exact between the lines
+    return counter.count;
+  }
+
+  @Override
+  public void writeResult(double[] scores, long[] remainingTimes) {
+    os.println(LOGEND);
+    os.println(RESULT + Utils.getGson().toJson(new Pair<double[], long[]>(scores, remainingTimes)));
+    ended = true;
+  }
+
+  @Override
+  public void close() {
+    if (!ended) {
+      os.println(LOGEND);
+    }
+    os.close();
+  }
+
+  /**
+   * Counts the bytes written to the underlying stream.
+   */
+  private static final class CountingOutputStream extends FilterOutputStream {
+    private long count = 0;
+    
+    private CountingOutputStream(OutputStream out) {
+      super(out);
+    }
+    
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      count++;
+    }
+    
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      count += len;
+    }
+  }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package game.engine.log;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+import game.engine.Action;
+import game.engine.Engine;
+import game.engine.Game;
+import game.engine.utils.Pair;
+
+/**
+ * Converts JSON gameplay logs to binary ones. The game of the log is 
+ * constructed in replay mode to encode the actions.
+ */
+public final class LogConverter {
+  
+  private LogConverter() {
+  }
+  
+  /**
+   * Converts the specified JSON log to the specified binary log.
+   * @param from JSON log to be converted
+   * @param to name of the binary log
+   * @return number of the converted turns
+   * @throws Exception file IO, reflection
+   */
+  public static int convert(File from, String to) throws Exception {
+    LogReader reader = new JsonLogReader(from);
+    LogWriter writer = new BinaryLogWriter(to);
+    try {
+      Game<?, ?> game = Engine.newGame(reader.getGameClass(), new PrintStream(OutputStream.nullOutputStream()), true, reader.getParams());
+      reader.setGame(game);
+      writer.writeHeader(reader.getGameClass(), reader.getParams());
+      writer.setGame(game);
+      int numPlayers = game.getPlayerConstructors().size();
+      for (int i = 0; i < numPlayers; i++) {
+        Pair<String, Long> construction = reader.readConstruction();
+        writer.writeConstruction(construction.first, construction.second);
+      }
+      int numTurns = 0;
+      Pair<Action, Long> turn;
+      while ((turn = reader.readTurn()) != null) {
+        writer.writeTurn(turn.first, turn.second);
+        numTurns++;
+      }
+      Pair<double[], long[]> result = reader.readResult();
+      if (result != null) {
+        writer.writeResult(result.first, result.second);
+      }
+      return numTurns;
+    } finally {
+      reader.close();
+      writer.close();
+    }
+  }
+  
+  /**
+   * Entry point of the converter, the binary logs are written next to the 
+   * JSON ones with {@link Logs.Format#BINARY} extension.
+   * @param args JSON log files to be converted
+   * @throws Exception file IO, reflection
+   */
+  public static void main(String[] args) throws Exception {
+    if (args.length < 1) {
+      System.err.println("required parameters for the converter are:");
+      System.err.println("\t- log files: JSON gameplay logs to be converted");
+      System.exit(1);
+    }
+    for (String arg : args) {
+      File from = new File(arg);
+      String name = from.getPath();
+      if (name.endsWith(Logs.Format.JSON.extension)) {
+        name = name.substring(0, name.length() - Logs.Format.JSON.extension.length());
+      }
+      String to = name + Logs.Format.BINARY.extension;
+      int numTurns = convert(from, to);
+      System.out.println(from + " -> " + to + " (" + numTurns + " turns, " + from.length() + " -> " + new File(to).length() + " bytes)");
+    }
+  }
+}
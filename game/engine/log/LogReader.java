@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package game.engine.log;
+
+import java.io.IOException;
+
+import game.engine.Action;
+import game.engine.Game;
+import game.engine.utils.Pair;
+
+/**
+ * Reads a gameplay log sequentially, the header is read on opening.
+ */
+public interface LogReader {
+  /**
+   * Returns the class of the logged game.
+   * @return class of the game
+   */
+  public String getGameClass();
+  
+  /**
+   * Returns the parameters of the logged game.
+   * @return parameters of the game
+   */
+  public String[] getParams();
+  
+  /**
+   * Sets the game has been constructed from the header, used to decode the 
+   * actions.
+   * @param game the replayed game
+   * @throws IOException if the game can not be replayed from this format
+   */
+  public void setGame(Game<?, ?> game) throws IOException;
+  
+  /**
+   * Reads the class and construction time of the next player.
+   * @return pair of player class and construction time
+   * @throws IOException file IO or corrupted log
+   */
+  public Pair<String, Long> readConstruction() throws IOException;
+  
+  /**
+   * Reads the next turn: the action and the time was taken to compute it.
+   * @return pair of action and elapsed time, or null at the end of the log
+   * @throws IOException file IO or corrupted log
+   */
+  public Pair<Action, Long> readTurn() throws IOException;
+  
+  /**
+   * Returns the final scores and remaining times of the players were recorded 
+   * at the end of the log, the not yet read turns are skipped.
+   * @return scores and remaining times indexed by color, null if the log has no result
+   * @throws IOException file IO or corrupted log
+   */
+  public Pair<double[], long[]> readResult() throws IOException;
+  
+  /**
+   * Returns the position of the next turn in the log, the reader can be set 
+   * back to it by {@link LogReader#seek(long)}.
+   * @return position of the next turn
+   */
+  public long position();
+  
+  /**
+   * Sets the reader to the specified position, the next turn is read from 
+   * there.
+   * @param position returned by {@link LogReader#position()} or {@link LogWriter#position()}
+   * @throws IOException file IO or invalid position
+   */
+  public void seek(long position) throws IOException;
+  
+  /**
+   * Closes the log file.
+   * @throws IOException file IO
+   */
+  public void close() throws IOException;
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package game.engine.log;
+
+import java.io.IOException;
+
+import game.engine.Action;
+import game.engine.Game;
+
+/**
+ * Writes the gameplay log of a game.
+ */
+public interface LogWriter {
+  /**
+   * Writes the class and the parameters of the game.
+   * @param gameClass class of the game
+   * @param params parameters of the game
+   * @throws IOException file IO
+   */
+  public void writeHeader(String gameClass, String[] params) throws IOException;
+  
+  /**
+   * Sets the game has been constructed from the header, used to encode the 
+   * actions.
+   * @param game the logged game
+   * @throws IOException if the game can not be logged in this format
+   */
+  public void setGame(Game<?, ?> game) throws IOException;
+  
+  /**
+   * Writes the class and the construction time of a player.
+   * @param playerClass class of the player
+   * @param elapsed construction time in nanoseconds
+   * @throws IOException file IO
+   */
+  public void writeConstruction(String playerClass, long elapsed) throws IOException;
+  
+  /**
+   * Writes the action of a turn and the time was taken to compute it.
+   * @param action of the turn
+   * @param elapsed computation time in nanoseconds
+   * @throws IOException file IO
+   */
+  public void writeTurn(Action action, long elapsed) throws IOException;
+  
+  /**
+   * Returns the position of the next turn to be written, as the reader of 
+   * the log will report it by {@link LogReader#position()}.
+   * @return position of the next turn
+   */
+  public long position();
+  
+  /**
+   * Writes the end of the turns and the final scores and remaining times of 
+   * the players, called after the last turn.
+   * @param scores final scores, indexed by color
+   * @param remainingTimes final remaining times in nanoseconds, indexed by color
+   * @throws IOException file IO
+   */
+  public void writeResult(double[] scores, long[] remainingTimes) throws IOException;
+  
+  /**
+   * Writes the end of the log (if it has not been written by 
+   * {@link LogWriter#writeResult(double[], long[])}) and closes the file.
+   * @throws IOException file IO
+   */
+  public void close() throws IOException;
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package game.engine.log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Opens and creates gameplay logs of the supported formats.
+ */
+public final class Logs {
+  
+  /**
+   * Supported gameplay log formats.
+   */
+  public static enum Format {
+    /** JSON lines, see {@link JsonLogWriter} */
+    JSON(".data"),
+    /** binary, see {@link BinaryLog} */
+    BINARY(".bin");
+    
+    /** extension of the log files */
+    public final String extension;
+    
+    private Format(String extension) {
+      this.extension = extension;
+    }
+  }
+  
+  private Logs() {
+  }
+  
+  /**
+   * Returns the format of the specified log file by its first bytes.
+   * @param file to be checked
+   * @return format of the log
+   * @throws IOException file IO
+   */
+  public static Format format(File file) throws IOException {
+    byte[] magic = head(file);
+    return Arrays.equals(magic, BinaryLog.MAGIC) ? Format.BINARY : Format.JSON;
+  }
+  
+  /**
+   * Returns whether the specified file is a gameplay log by its first bytes: 
+   * a binary log starts with {@link BinaryLog#MAGIC}, a JSON log with the 
+   * quoted name of the game class.
+   * @param file to be checked
+   * @return whether it is a gameplay log
+   * @throws IOException file IO
+   */
+  public static boolean isLog(File file) throws IOException {
+    byte[] magic = head(file);
+    return Arrays.equals(magic, BinaryLog.MAGIC) || (0 < magic.length && magic[0] == '"');
+  }
+  
+  /**
+   * Returns at most as many first bytes of the specified file as the length 
+   * of {@link BinaryLog#MAGIC}.
+   * @param file to be read
+   * @return first bytes
+   * @throws IOException file IO
+   */
+  private static byte[] head(File file) throws IOException {
+    InputStream is = new FileInputStream(file);
+    try {
+      return is.readNBytes(BinaryLog.MAGIC.length);
+    } finally {
+      is.close();
+    }
+  }
+  
+  /**
+   * Opens the specified log file for reading, the format is detected.
+   * @param file to be read
+   * @return reader of the log
+   * @throws IOException file IO
+   */
+  public static LogReader open(File file) throws IOException {
+    switch (format(file)) {
+    case BINARY:
+      return new BinaryLogReader(file);
+    default:
+      return new JsonLogReader(file);
+    }
+  }
+  
+  /**
+   * Creates a log file of the specified format for writing.
+   * @param fileName name of the log file
+   * @param format of the log
+   * @return writer of the log
+   * @throws IOException file IO
+   */
+  public static LogWriter create(String fileName, Format format) throws IOException {
+    switch (format) {
+    case BINARY:
+      return new BinaryLogWriter(fileName);
+    default:
+      return new JsonLogWriter(fileName);
+    }
+  }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package game.engine.log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import game.engine.Checkpointable;
+
+/**
+ * Turn index of a gameplay log: periodic, compressed full checkpoints of the 
+ * game state and the log positions of the turns after them. The replay can be 
+ * set to any turn by restoring the last checkpoint before it and replaying 
+ * at most {@link ReplayIndex#interval} turns.
+ * <pre>
+ * index := MAGIC VERSION block*
+ * </pre>
+ * The blocks are the same as in {@link BinaryLog}: a {@link ReplayIndex#HEADER} 
+ * block (interval) and {@link ReplayIndex#CHECKPOINT} blocks (turn, log 
+ * position, deflated state).
+ */
+public final class ReplayIndex {
+  /** extension of the index files, appended to the name of the log */
+  public static final String EXTENSION = ".idx";
+  /** first bytes of an index file */
+  public static final byte[] MAGIC = new byte[] {'R', 'T', 'I', 'X'};
+  /** version of the format */
+  public static final int VERSION = 1;
+  /** header block: checkpoint interval */
+  public static final int HEADER = 'I';
+  /** checkpoint block: turn, log position and state */
+  public static final int CHECKPOINT = 'K';
+  /** default number of turns between two checkpoints */
+  public static final int DEFAULT_INTERVAL = 256;
+  
+  /**
+   * A checkpoint of the index.
+   */
+  public static final class Entry {
+    /** number of turns were played before the checkpoint */
+    public final int turn;
+    /** log position of the next turn */
+    public final long position;
+    private final byte[] state;
+    
+    private Entry(int turn, long position, byte[] state) {
+      this.turn = turn;
+      this.position = position;
+      this.state = state;
+    }
+  }
+  
+  /** number of turns between two checkpoints */
+  public final int interval;
+  private final List<Entry> entries = new ArrayList<Entry>();
+  private final OutputStream os;
+  private final BinaryLog.Buffer block = new BinaryLog.Buffer();
+  private final CRC32 crc = new CRC32();
+  private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+  
+  /**
+   * Creates an index that is not written to file.
+   * @param interval number of turns between two checkpoints
+   */
+  public ReplayIndex(int interval) {
+    this.interval = interval;
+    this.os = null;
+  }
+  
+  /**
+   * Creates an index that writes its checkpoints to the specified file.
+   * @param fileName name of the index file
+   * @param interval number of turns between two checkpoints
+   * @throws IOException file IO
+   */
+  public ReplayIndex(String fileName, int interval) throws IOException {
+    this.interval = interval;
+    this.os = new BufferedOutputStream(new FileOutputStream(fileName), 1 << 16);
+    os.write(MAGIC);
+    os.write(VERSION);
+    block.clear();
+    block.writeVarLong(interval);
+    BinaryLog.writeBlock(os, HEADER, block, crc);
+  }
+  
+  /**
+   * Reads the specified index file, a truncated last checkpoint is ignored.
+   * @param file to be read
+   * @return the read index
+   * @throws IOException file IO, not an index or corrupted index
+   */
+  public static ReplayIndex read(File file) throws IOException {
+    InputStream is = new BufferedInputStream(new FileInputStream(file), 1 << 16);
+    try {
+      byte[] magic = new byte[MAGIC.length];
+      int version = is.readNBytes(magic, 0, magic.length) == magic.length ? is.read() : -1;
+      if (!Arrays.equals(magic, MAGIC) || version != VERSION) {
+        throw new IOException(file + " is not a replay index of version " + VERSION);
+      }
+      BinaryLog.Buffer block = new BinaryLog.Buffer();
+      CRC32 crc = new CRC32();
+      if (BinaryLog.readBlock(is, block, crc) < 0 || block.type != HEADER) {
+        throw new IOException("missing index header: " + file);
+      }
+      ReplayIndex index = new ReplayIndex((int) block.readVarLong());
+      try {
+        while (0 <= BinaryLog.readBlock(is, block, crc)) {
+          if (block.type == CHECKPOINT) {
+            int turn = (int) block.readVarLong();
+            long position = block.readVarLong();
+            index.entries.add(new Entry(turn, position, Arrays.copyOfRange(block.data, block.position, block.size)));
+          }
+        }
+      } catch (EOFException e) {
+        // the index was not closed, the last checkpoint is incomplete
+      }
+      return index;
+    } finally {
+      is.close();
+    }
+  }
+  
+  /**
+   * Returns the file of the index belongs to the specified log.
+   * @param log gameplay log
+   * @return index file of the log
+   */
+  public static File of(File log) {
+    return new File(log.getPath() + EXTENSION);
+  }
+  
+  /**
+   * Adds a checkpoint of the specified game, if the specified turn is a 
+   * checkpoint turn and it is after the last checkpoint.
+   * @param turn number of turns were played
+   * @param position log position of the next turn
+   * @param game to be saved
+   * @return true, if the checkpoint was added
+   * @throws IOException file IO
+   */
+  public boolean add(int turn, long position, Checkpointable game) throws IOException {
+    if (turn % interval != 0 || (!entries.isEmpty() && turn <= entries.get(entries.size() - 1).turn)) {
+      return false;
+    }
+    bytes.reset();
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes, deflater));
+    game.saveState(out);
+    out.close();
+    deflater.end();
+    Entry entry = new Entry(turn, position, bytes.toByteArray());
+    entries.add(entry);
+    if (os != null) {
+      block.clear();
+      block.writeVarLong(turn);
+      block.writeVarLong(position);
+      block.ensure(entry.state.length);
+      System.arraycopy(entry.state, 0, block.data, block.size, entry.state.length);
+      block.size += entry.state.length;
+      BinaryLog.writeBlock(os, CHECKPOINT, block, crc);
+    }
+    return true;
+  }
+  
+  /**
+   * Returns the last checkpoint at or before the specified turn.
+   * @param turn to be found
+   * @return the last checkpoint before the turn, null if there is none
+   */
+  public Entry floor(int turn) {
+    int lo = 0;
+    int hi = entries.size() - 1;
+    Entry result = null;
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      Entry entry = entries.get(mid);
+      if (entry.turn <= turn) {
+        result = entry;
+        lo = mid + 1;
+      } else {
+        hi = mid - 1;
+      }
+    }
+    return result;
+  }
+  
+  /**
+   * Restores the state of the specified game from the specified checkpoint.
+   * @param entry checkpoint to be restored
+   * @param game to be restored
+   * @throws IOException invalid state
+   */
+  public void load(Entry entry, Checkpointable game) throws IOException {
+    DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(entry.state)));
+    game.loadState(in);
+    in.close();
+  }
+  
+  /**
+   * Closes the index file, if it is written.
+   * @throws IOException file IO
+   */
+  public void close() throws IOException {
+    if (os != null) {
+      os.close();
+    }
+  }
+}
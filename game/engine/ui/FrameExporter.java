@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package game.engine.ui;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Pipelined export of frames to a zip of PNG images or to a directory of PNG 
+ * files (named as the zip entries). The caller paints the 
+ * frame into an image acquired from the pool of the exporter and submits it; 
+ * the images are encoded by a bounded pool of encoder threads and a single 
+ * writer thread writes the entries in submission order. The number of images 
+ * and of encoded frames waiting for the writer are bounded, so the caller is 
+ * blocked (back pressure) when the encoders or the writer lag behind.
+ */
+public final class FrameExporter {
+  /** name format of the zip entries */
+  public static final String ENTRY_FORMAT = "frame_%08d.png";
+  
+  private final ZipOutputStream zip;
+  private final File directory;
+  private final ExecutorService encoders;
+  private final BlockingQueue<BufferedImage> images;
+  private final BlockingQueue<Future<byte[]>> encoded;
+  private final Thread writer;
+  private final int capacity;
+  private int created = 0;
+  private int submitted = 0;
+  private volatile Throwable failure = null;
+  private long start = 0;
+  private long end = 0;
+  
+  // marks the end of the frames for the writer
+  private static final Future<byte[]> END = new FutureTask<byte[]>(new Callable<byte[]>() {
+    @Override
+    public byte[] call() {
+      return null;
+    }
+  });
+  
+  /**
+   * Creates an exporter that writes to the specified zip with as many 
+   * encoders as the number of available processors.
+   * @param zip frames are written to
+   */
+  public FrameExporter(ZipOutputStream zip) {
+    this(zip, Runtime.getRuntime().availableProcessors(), 2 * Runtime.getRuntime().availableProcessors() + 2);
+  }
+  
+  /**
+   * Creates an exporter that writes to the specified zip.
+   * @param zip frames are written to
+   * @param numEncoders number of encoder threads
+   * @param capacity maximal number of images and maximal number of encoded 
+   * frames waiting for the writer
+   */
+  public FrameExporter(ZipOutputStream zip, int numEncoders, int capacity) {
+    this(zip, null, numEncoders, capacity);
+  }
+  
+  /**
+   * Creates an exporter that writes to the specified directory with as many 
+   * encoders as the number of available processors.
+   * @param directory frames are written to, created if it does not exist
+   * @throws IOException if the directory can not be created
+   */
+  public FrameExporter(File directory) throws IOException {
+    this(null, directory, Runtime.getRuntime().availableProcessors(), 2 * Runtime.getRuntime().availableProcessors() + 2);
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("can not create directory: " + directory);
+    }
+  }
+  
+  /**
+   * Returns an exporter to the specified target: a zip, if its name ends 
+   * with <code>.zip</code>, a directory otherwise.
+   * @param target name of the zip or the directory
+   * @return exporter
+   * @throws IOException if the target can not be created
+   */
+  public static FrameExporter open(String target) throws IOException {
+    if (target.endsWith(".zip")) {
+      return new FrameExporter(new ZipOutputStream(new FileOutputStream(target)));
+    }
+    return new FrameExporter(new File(target));
+  }
+  
+  private FrameExporter(ZipOutputStream zip, File directory, int numEncoders, int capacity) {
+    this.zip = zip;
+    this.directory = directory;
+    this.capacity = capacity;
+    this.images = new ArrayBlockingQueue<BufferedImage>(capacity);
+    this.encoded = new ArrayBlockingQueue<Future<byte[]>>(capacity);
+    this.encoders = Executors.newFixedThreadPool(numEncoders, new ThreadFactory() {
+      private int idx = 0;
+      @Override
+      public synchronized Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "frame-encoder-" + idx++);
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    this.writer = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        write();
+      }
+    }, "frame-writer");
+    this.writer.setDaemon(true);
+    this.writer.start();
+  }
+  
+  /**
+   * Returns an image of the specified size to paint the next frame into. The 
+   * images of the encoded frames are reused, a new one is created only if 
+   * there are less than capacity images, otherwise the call blocks until an 
+   * image is released.
+   * @param width width of the frame
+   * @param height height of the frame
+   * @return image to be painted and submitted
+   * @throws IOException if the export has failed
+   * @throws InterruptedException if the caller is interrupted
+   */
+  public BufferedImage acquire(int width, int height) throws IOException, InterruptedException {
+    check();
+    if (start == 0) {
+      start = System.nanoTime();
+    }
+    BufferedImage image = images.poll();
+    if (image == null && created < capacity) {
+      created++;
+      image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    } else if (image == null) {
+      image = images.take();
+    }
+    if (image.getWidth() != width || image.getHeight() != height) {
+      image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    }
+    return image;
+  }
+  
+  /**
+   * Submits the specified image (acquired by {@link FrameExporter#acquire(int, int)}) 
+   * as the next frame, it must not be changed after the call.
+   * @param image painted frame
+   * @throws IOException if the export has failed
+   * @throws InterruptedException if the caller is interrupted
+   */
+  public void submit(final BufferedImage image) throws IOException, InterruptedException {
+    check();
+    encoded.put(encoders.submit(new Callable<byte[]>() {
+      @Override
+      public byte[] call() throws Exception {
+        try {
+          ByteArrayOutputStream stream = new ByteArrayOutputStream(1 << 16);
+          ImageIO.write(image, "png", stream);
+          return stream.toByteArray();
+        } finally {
+          images.offer(image);
+        }
+      }
+    }));
+    submitted++;
+  }
+  
+  /**
+   * Waits for the submitted frames to be written and closes the zip (if the
+   * frames are written to a zip).
+   * @throws IOException if the export has failed
+   * @throws InterruptedException if the caller is interrupted
+   */
+  public void close() throws IOException, InterruptedException {
+    encoded.put(END);
+    writer.join();
+    encoders.shutdown();
+    end = System.nanoTime();
+    if (zip != null) {
+      zip.close();
+    }
+    check();
+  }
+  
+  /**
+   * Returns the number of submitted frames.
+   * @return number of frames
+   */
+  public int getFrames() {
+    return submitted;
+  }
+  
+  /**
+   * Returns the exported frames per second from the first acquired image to 
+   * the closing of the exporter.
+   * @return frames per second, 0 if it is not closed
+   */
+  public double getFps() {
+    return end <= start ? 0.0 : submitted / ((end - start) / 1E9);
+  }
+  
+  /**
+   * Writes the encoded frames in order until the end mark.
+   */
+  private void write() {
+    int idx = 0;
+    try {
+      Future<byte[]> frame;
+      while ((frame = encoded.take()) != END) {
+        byte[] bytes = frame.get();
+        String name = String.format(ENTRY_FORMAT, idx);
+        if (zip != null) {
+          zip.putNextEntry(new ZipEntry(name));
+          zip.write(bytes);
+          zip.closeEntry();
+        } else {
+          OutputStream file = new FileOutputStream(new File(directory, name));
+          try {
+            file.write(bytes);
+          } finally {
+            file.close();
+          }
+        }
+        idx++;
+      }
+    } catch (ExecutionException e) {
+      failure = e.getCause();
+      drain();
+    } catch (Throwable e) {
+      failure = e;
+      drain();
+    }
+  }
+  
+  /**
+   * Discards the frames after a failure, so that the caller is not blocked.
+   */
+  private void drain() {
+    try {
+      while (encoded.take() != END) {
+      }
+    } catch (InterruptedException e) {
+      // the exporter is abandoned
+    }
+  }
+  
+  /**
+   * Throws the failure of the encoders or the writer, if there was one.
+   * @throws IOException if the export has failed
+   */
+  private void check() throws IOException {
+    if (failure != null) {
+      throw new IOException("frame export failed", failure);
+    }
+  }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package game.engine.ui;
+
+import java.awt.Dimension;
+import java.awt.Graphics;
+
+/**
+ * Game that renders its current state without GUI components, so its frames 
+ * can be exported with <code>java.awt.headless=true</code>.
+ */
+public interface Renderable {
+  /**
+   * Returns the size of the rendered frames.
+   * @return width and height in pixels
+   */
+  public Dimension getRenderSize();
+  
+  /**
+   * Renders the current state of the game by the specified graphics.
+   * @param graphics used to draw (the frame is at the origin)
+   */
+  public void render(Graphics graphics);
+}
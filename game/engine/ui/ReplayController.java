@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package game.engine.ui;
+
+import java.awt.KeyEventDispatcher;
+import java.awt.KeyboardFocusManager;
+import java.awt.event.KeyEvent;
+
+import javax.swing.JOptionPane;
+
+/**
+ * Keyboard control of the replays in the GUI. The replay loop asks the 
+ * controller for the next turn to be shown by {@link ReplayController#await(int, boolean, long)}.
+ * <pre>
+ * SPACE          : pause / continue
+ * LEFT / RIGHT   : one turn backward / forward (pauses)
+ * PAGE UP / DOWN : 100 turns backward / forward (pauses)
+ * HOME / END     : first / last turn (pauses)
+ * G              : go to the specified turn (pauses)
+ * ESC            : quit the replay
+ * </pre>
+ */
+public final class ReplayController implements KeyEventDispatcher {
+  /** number of turns are jumped by PAGE UP / PAGE DOWN */
+  public static final int PAGE = 100;
+  
+  private boolean paused = false;
+  private boolean quit = false;
+  private int turn = 0;
+  private int target = -1;
+  
+  /**
+   * Creates the controller and registers it for the key events of the 
+   * application.
+   */
+  public ReplayController() {
+    KeyboardFocusManager.getCurrentKeyboardFocusManager().addKeyEventDispatcher(this);
+  }
+  
+  /**
+   * Unregisters the controller.
+   */
+  public void close() {
+    KeyboardFocusManager.getCurrentKeyboardFocusManager().removeKeyEventDispatcher(this);
+  }
+  
+  @Override
+  public boolean dispatchKeyEvent(KeyEvent event) {
+    if (event.getID() != KeyEvent.KEY_PRESSED) {
+      return false;
+    }
+    switch (event.getKeyCode()) {
+    case KeyEvent.VK_SPACE:
+      synchronized (this) {
+        paused = !paused;
+        notifyAll();
+      }
+      return true;
+    case KeyEvent.VK_LEFT:
+      jump(-1, false);
+      return true;
+    case KeyEvent.VK_RIGHT:
+      jump(1, false);
+      return true;
+    case KeyEvent.VK_PAGE_UP:
+      jump(-PAGE, false);
+      return true;
+    case KeyEvent.VK_PAGE_DOWN:
+      jump(PAGE, false);
+      return true;
+    case KeyEvent.VK_HOME:
+      jump(0, true);
+      return true;
+    case KeyEvent.VK_END:
+      jump(Integer.MAX_VALUE, true);
+      return true;
+    case KeyEvent.VK_G:
+      String input = JOptionPane.showInputDialog(event.getComponent(), "Go to turn:", turn);
+      if (input != null) {
+        try {
+          jump(Integer.parseInt(input.trim()), true);
+        } catch (NumberFormatException e) {
+          JOptionPane.showMessageDialog(event.getComponent(), "Invalid turn: " + input);
+        }
+      }
+      return true;
+    case KeyEvent.VK_ESCAPE:
+      synchronized (this) {
+        quit = true;
+        notifyAll();
+      }
+      return true;
+    default:
+      return false;
+    }
+  }
+  
+  /**
+   * Pauses the replay and requests the specified turn.
+   * @param value offset or turn
+   * @param absolute value is a turn, not an offset to the current one
+   */
+  private synchronized void jump(int value, boolean absolute) {
+    int base = target < 0 ? turn : target;
+    long result = absolute ? value : (long) base + value;
+    target = (int) Math.max(0, Math.min(Integer.MAX_VALUE, result));
+    paused = true;
+    notifyAll();
+  }
+  
+  /**
+   * Waits for the next turn to be shown. If the replay is running, it is the 
+   * next one after the specified delay, otherwise it is requested by the keys.
+   * @param turn the turn is shown
+   * @param finished there are no more turns after the shown one
+   * @param delay milliseconds between two turns of the running replay
+   * @return the requested turn, -1 if the replay has to quit
+   * @throws InterruptedException if the waiting thread is interrupted
+   */
+  public synchronized int await(int turn, boolean finished, long delay) throws InterruptedException {
+    this.turn = turn;
+    long deadline = System.currentTimeMillis() + delay;
+    while (true) {
+      if (quit) {
+        return -1;
+      }
+      if (0 <= target) {
+        int result = target;
+        target = -1;
+        return result;
+      }
+      if (!paused && !finished) {
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0) {
+          return turn + 1;
+        }
+        wait(remaining);
+      } else {
+        wait();
+      }
+    }
+  }
+}
@@ -18,7 +18,6 @@
 
 package game.engine.utils;
 
-import java.lang.management.ManagementFactory;
 import java.util.List;
 
 import game.engine.Action;
@@ -26,13 +25,40 @@ import game.engine.Player;
 
 /**
  * Calls the {@link Player#getAction(List, long[])} method of the player that was set in 
- * and returns its result and measures the elapsed time in nanoseconds.
+ * and returns its result and measures the elapsed time in nanoseconds. The 
+ * elapsed time is the CPU time of the calling thread, or of all threads of 
+ * the player (see {@link CpuLedger}), if its ledger was set.
  */
 public final class ActionTask implements TimeOutTask<Action> {
   private Player<Action> player;
   private List<Pair<Integer, Action>> prevAction;
   private long elapsed;
   private long[] remainings;
+  private CpuLedger ledger;
+
+  /**
+   * Creates a task that measures the CPU time of the calling thread.
+   */
+  public ActionTask() {
+    this(null);
+  }
+
+  /**
+   * Creates a task that measures the CPU time of the threads of the specified 
+   * ledger.
+   * @param ledger of the threads of the player, null for the calling thread
+   */
+  public ActionTask(CpuLedger ledger) {
+    this.ledger = ledger;
+  }
+
+  /**
+   * Sets the ledger of the threads of the player of the next action.
+   * @param ledger of the threads of the player, null for the calling thread
+   */
+  public void setLedger(CpuLedger ledger) {
+    this.ledger = ledger;
+  }
 
   /**
    * Sets the parameters to get the action after running the task.
@@ -53,10 +79,18 @@ public final class ActionTask implements TimeOutTask<Action> {
 
   @Override
   public Action call() throws Exception {
-    long start = ManagementFactory.getThreadMXBean().getThreadUserTime(Thread.currentThread().getId());
-    Action result = player.getAction(prevAction, remainings);
-    elapsed = (ManagementFactory.getThreadMXBean().getThreadUserTime(Thread.currentThread().getId()) - start);
-    return result;
+    if (ledger == null) {
+      long start = CpuTime.thread();
+      Action result = player.getAction(prevAction, remainings);
+      elapsed = (CpuTime.thread() - start);
+      return result;
+    }
+    long start = ledger.begin();
+    try {
+      return player.getAction(prevAction, remainings);
+    } finally {
+      elapsed = (ledger.end() - start);
+    }
   }
 
 }
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package game.engine.utils;
+
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Output stream that captures the written bytes into a fixed-size buffer. 
+ * The writes reserve their range of the buffer by a compare-and-set, they 
+ * do not lock. The bytes over the capacity are dropped and counted.
+ * <p>
+ * The captured bytes are read and cleared by {@link CaptureOutputStream#drain()}, 
+ * that should not run concurrently with the writes (the bytes of a 
+ * concurrent write may be lost or left in the buffer).
+ */
+public final class CaptureOutputStream extends OutputStream {
+  /** default capacity of the buffer in bytes */
+  public static final int DEFAULT_CAPACITY = 1 << 16;
+
+  private final byte[] buffer;
+  private final AtomicInteger position = new AtomicInteger();
+  private final AtomicLong truncated = new AtomicLong();
+
+  /**
+   * Creates a stream with the default capacity.
+   */
+  public CaptureOutputStream() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Creates a stream with the specified capacity.
+   * @param capacity of the buffer in bytes
+   */
+  public CaptureOutputStream(int capacity) {
+    buffer = new byte[capacity];
+  }
+
+  /**
+   * Reserves the range of the specified number of bytes, the range can be 
+   * shorter at the end of the buffer. The bytes out of the range are counted 
+   * as truncated.
+   * @param len number of bytes to be written
+   * @return start of the reserved range, its length is the end of the buffer 
+   * or len, whichever is less
+   */
+  private int reserve(int len) {
+    while (true) {
+      int start = position.get();
+      if (buffer.length <= start) {
+        truncated.addAndGet(len);
+        return start;
+      }
+      int end = (int) Math.min(buffer.length, (long) start + len);
+      if (position.compareAndSet(start, end)) {
+        if (end - start < len) {
+          truncated.addAndGet(len - (end - start));
+        }
+        return start;
+      }
+    }
+  }
+
+  @Override
+  public void write(int b) {
+    int start = reserve(1);
+    if (start < buffer.length) {
+      buffer[start] = (byte) b;
+    }
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) {
+    int start = reserve(len);
+    if (start < buffer.length) {
+      System.arraycopy(b, off, buffer, start, Math.min(len, buffer.length - start));
+    }
+  }
+
+  /**
+   * Returns true, if nothing was written since the last drain.
+   * @return true, if nothing was written
+   */
+  public boolean isEmpty() {
+    return position.get() == 0 && truncated.get() == 0;
+  }
+
+  /**
+   * Returns the number of captured bytes.
+   * @return number of bytes in the buffer
+   */
+  public int size() {
+    return Math.min(buffer.length, position.get());
+  }
+
+  /**
+   * Returns the number of bytes were dropped since the last drain.
+   * @return number of dropped bytes
+   */
+  public long getTruncated() {
+    return truncated.get();
+  }
+
+  /**
+   * Returns the captured bytes as a string (in the default charset, as the 
+   * standard channels encode) and clears the buffer and the truncation count.
+   * @return captured text
+   */
+  public String drain() {
+    String result = new String(buffer, 0, size(), Charset.defaultCharset());
+    position.set(0);
+    truncated.set(0);
+    return result;
+  }
+}
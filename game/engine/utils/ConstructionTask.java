@@ -18,18 +18,35 @@
 
 package game.engine.utils;
 
-import java.lang.management.ManagementFactory;
 import java.lang.reflect.Constructor;
 
 /**
  * Constructs the specified type of object calling the constructor was set with 
- * the parameters were set and measures the elapsed time in nanoseconds.
+ * the parameters were set and measures the elapsed time in nanoseconds (see 
+ * {@link ActionTask} for the threads are measured).
  * @param <R> type of object to be constructed
  */
 public class ConstructionTask<R> implements TimeOutTask<R> {
   private Constructor<R> constructor;
   private Object[] params;
   private long elapsed;
+  private final CpuLedger ledger;
+
+  /**
+   * Creates a task that measures the CPU time of the calling thread.
+   */
+  public ConstructionTask() {
+    this(null);
+  }
+
+  /**
+   * Creates a task that measures the CPU time of the threads of the specified 
+   * ledger.
+   * @param ledger of the threads of the player, null for the calling thread
+   */
+  public ConstructionTask(CpuLedger ledger) {
+    this.ledger = ledger;
+  }
 
   public void setConstructor(Constructor<R> constructor, Object... params) {
     this.constructor = constructor;
@@ -43,10 +60,18 @@ public class ConstructionTask<R> implements TimeOutTask<R> {
 
   @Override
   public R call() throws Exception {
-    long start = ManagementFactory.getThreadMXBean().getThreadUserTime(Thread.currentThread().getId());
-    R result = constructor.newInstance(params);
-    elapsed = (ManagementFactory.getThreadMXBean().getThreadUserTime(Thread.currentThread().getId()) - start);
-    return result;
+    if (ledger == null) {
+      long start = CpuTime.thread();
+      R result = constructor.newInstance(params);
+      elapsed = (CpuTime.thread() - start);
+      return result;
+    }
+    long start = ledger.begin();
+    try {
+      return constructor.newInstance(params);
+    } finally {
+      elapsed = (ledger.end() - start);
+    }
   }
 
 }
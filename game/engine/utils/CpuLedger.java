@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+package game.engine.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Accumulates the CPU time (user and system) of the threads of a thread group 
+ * (subgroups included), also of the threads that have ended. The live threads 
+ * are sampled at every reading and, while the group is measured (between 
+ * {@link CpuLedger#begin()} and {@link CpuLedger#end()}), periodically by a 
+ * daemon sampler thread; the last sample of an ended thread stays in the 
+ * total. So the time of a short-lived thread is lost only after its last 
+ * sample, that is about a sampling period, unless the thread reports its 
+ * final time by {@link CpuLedger#exit()}. The clock is the same as of the 
+ * single thread accounting, see {@link CpuTime}.
+ */
+public final class CpuLedger {
+  /** period of the sampling in milliseconds */
+  public static final long PERIOD = 1;
+  
+  // measured ledgers, guarded by the class
+  private static final List<CpuLedger> measured = new ArrayList<CpuLedger>();
+  private static Thread sampler = null;
+  // ledgers of the groups, guarded by the class
+  private static final Map<ThreadGroup, CpuLedger> ledgers = new WeakHashMap<ThreadGroup, CpuLedger>();
+  
+  private final ThreadGroup group;
+  private Map<Long, Long> samples = new HashMap<Long, Long>();
+  private Map<Long, Long> spare = new HashMap<Long, Long>();
+  private Thread[] threads = new Thread[16];
+  private long ended = 0;
+  private int depth = 0;
+  
+  /**
+   * Creates the ledger of the specified group.
+   * @param group of the threads
+   */
+  public CpuLedger(ThreadGroup group) {
+    this.group = group;
+    synchronized (CpuLedger.class) {
+      ledgers.put(group, this);
+    }
+  }
+  
+  /**
+   * Records the final CPU time of the calling thread, that is about to end, 
+   * in the ledger of its group (or of the closest ancestor group having one).
+   */
+  public static void exit() {
+    Thread thread = Thread.currentThread();
+    CpuLedger ledger = null;
+    synchronized (CpuLedger.class) {
+      for (ThreadGroup group = thread.getThreadGroup(); ledger == null && group != null; group = group.getParent()) {
+        ledger = ledgers.get(group);
+      }
+    }
+    if (ledger != null) {
+      long time = CpuTime.thread();
+      synchronized (ledger) {
+        ledger.samples.put(thread.getId(), time);
+      }
+    }
+  }
+  
+  /**
+   * Returns the group of the measured threads.
+   * @return thread group
+   */
+  public ThreadGroup getGroup() {
+    return group;
+  }
+  
+  /**
+   * Returns the CPU time of the threads of the group, the live and the ended 
+   * ones.
+   * @return CPU time in nanoseconds
+   */
+  public synchronized long read() {
+    int count = group.enumerate(threads, true);
+    while (count == threads.length) {
+      threads = new Thread[2 * threads.length];
+      count = group.enumerate(threads, true);
+    }
+    Map<Long, Long> current = spare;
+    long result = 0;
+    for (int i = 0; i < count; i++) {
+      long id = threads[i].getId();
+      threads[i] = null;
+      long time = CpuTime.thread(id);
+      // a thread, that has ended since the enumeration, keeps its last sample
+      if (0 <= time && current.put(id, time) == null) {
+        result += time;
+      }
+    }
+    for (Map.Entry<Long, Long> sample : samples.entrySet()) {
+      if (!current.containsKey(sample.getKey())) {
+        ended += sample.getValue();
+      }
+    }
+    samples.clear();
+    spare = samples;
+    samples = current;
+    return ended + result;
+  }
+  
+  /**
+   * Starts the measurement of the group: the threads are sampled 
+   * periodically until the matching {@link CpuLedger#end()}.
+   * @return CPU time in nanoseconds (see {@link CpuLedger#read()})
+   */
+  public long begin() {
+    synchronized (CpuLedger.class) {
+      if (depth++ == 0) {
+        measured.add(this);
+      }
+      if (sampler == null) {
+        sampler = start();
+      }
+      CpuLedger.class.notifyAll();
+    }
+    return read();
+  }
+  
+  /**
+   * Ends the measurement of the group started by {@link CpuLedger#begin()}.
+   * @return CPU time in nanoseconds (see {@link CpuLedger#read()})
+   */
+  public long end() {
+    long result = read();
+    synchronized (CpuLedger.class) {
+      if (--depth == 0) {
+        measured.remove(this);
+      }
+    }
+    return result;
+  }
+  
+  /**
+   * Starts the sampler thread in the root thread group, so that it is not 
+   * measured by any ledger.
+   * @return sampler thread
+   */
+  private static Thread start() {
+    ThreadGroup root = Thread.currentThread().getThreadGroup();
+    while (root.getParent() != null) {
+      root = root.getParent();
+    }
+    Thread thread = new Thread(root, new Runnable() {
+      @Override
+      public void run() {
+        sample();
+      }
+    }, "cpu-sampler");
+    thread.setDaemon(true);
+    thread.setPriority(Thread.MAX_PRIORITY);
+    thread.start();
+    return thread;
+  }
+  
+  /**
+   * Reads the measured ledgers periodically, waits while there is none.
+   */
+  private static void sample() {
+    List<CpuLedger> ledgers = new ArrayList<CpuLedger>();
+    try {
+      while (true) {
+        synchronized (CpuLedger.class) {
+          while (measured.isEmpty()) {
+            CpuLedger.class.wait();
+          }
+          ledgers.addAll(measured);
+        }
+        for (CpuLedger ledger : ledgers) {
+          ledger.read();
+        }
+        ledgers.clear();
+        Thread.sleep(PERIOD);
+      }
+    } catch (InterruptedException e) {
+      // the sampler is not interrupted by the engine
+    }
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package game.engine.utils;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Reads the CPU time (user and system) of threads, the clock of both 
+ * accounting modes: the time of the current thread is charged directly, the 
+ * time of a thread group is accumulated by a {@link CpuLedger}. The user time 
+ * alone is not used, as it is counted in clock ticks.
+ */
+public final class CpuTime {
+
+  private CpuTime() {
+  }
+
+  /**
+   * Returns the CPU time of the current thread.
+   * @return CPU time in nanoseconds
+   */
+  public static long thread() {
+    return ManagementFactory.getThreadMXBean().getCurrentThreadCpuTime();
+  }
+
+  /**
+   * Returns the CPU time of the specified thread.
+   * @param id identifier of the thread
+   * @return CPU time in nanoseconds, negative if the thread is not alive
+   */
+  public static long thread(long id) {
+    return ManagementFactory.getThreadMXBean().getThreadCpuTime(id);
+  }
+
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package game.engine.utils;
+
+import java.util.Arrays;
+
+/**
+ * Histogram of non-negative latencies (e.g. nanoseconds) with logarithmic 
+ * buckets of bounded relative error, in the manner of HdrHistogram. The 
+ * values below 2 * {@link LatencyHistogram#SUB_BUCKETS} have their own 
+ * buckets, then every power of two range is divided into 
+ * {@link LatencyHistogram#SUB_BUCKETS} equal buckets, so a bucket is at most 
+ * 1/{@link LatencyHistogram#SUB_BUCKETS} of its lowest value wide. The 
+ * buckets are allocated by the constructor, recording does not allocate.
+ * <p>
+ * The histogram is not thread-safe.
+ */
+public final class LatencyHistogram {
+  /** number of bits of the sub-bucket index */
+  public static final int SUB_BITS = 5;
+  /** number of buckets of a power of two range */
+  public static final int SUB_BUCKETS = 1 << SUB_BITS;
+  /** number of buckets, enough for every non-negative long */
+  public static final int BUCKETS = (Long.SIZE - SUB_BITS) * SUB_BUCKETS;
+
+  private final long[] counts = new long[BUCKETS];
+  private long count;
+  private long total;
+  private long min = Long.MAX_VALUE;
+  private long max = Long.MIN_VALUE;
+
+  /**
+   * Returns the index of the bucket of the specified value.
+   * @param value non-negative value
+   * @return index of the bucket
+   */
+  public static int bucket(long value) {
+    if (value < 2 * SUB_BUCKETS) {
+      return (int) value;
+    }
+    int shift = Long.SIZE - Long.numberOfLeadingZeros(value) - SUB_BITS - 1;
+    return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+  }
+
+  /**
+   * Returns the lowest value of the specified bucket.
+   * @param bucket index of the bucket
+   * @return lowest value
+   */
+  public static long lowest(int bucket) {
+    if (bucket < 2 * SUB_BUCKETS) {
+      return bucket;
+    }
+    int shift = bucket / SUB_BUCKETS - 1;
+    return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+  }
+
+  /**
+   * Returns the highest value of the specified bucket.
+   * @param bucket index of the bucket
+   * @return highest value
+   */
+  public static long highest(int bucket) {
+    if (bucket < 2 * SUB_BUCKETS) {
+      return bucket;
+    }
+    int shift = bucket / SUB_BUCKETS - 1;
+    return lowest(bucket) + (1L << shift) - 1;
+  }
+
+  /**
+   * Records the specified value, the negative values are recorded as 0.
+   * @param value to be recorded
+   */
+  public void record(long value) {
+    if (value < 0) {
+      value = 0;
+    }
+    counts[bucket(value)]++;
+    count++;
+    total += value;
+    if (value < min) {
+      min = value;
+    }
+    if (max < value) {
+      max = value;
+    }
+  }
+
+  /**
+   * Adds the values of the specified histogram to this one.
+   * @param other histogram to be added
+   */
+  public void add(LatencyHistogram other) {
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] += other.counts[i];
+    }
+    count += other.count;
+    total += other.total;
+    min = Math.min(min, other.min);
+    max = Math.max(max, other.max);
+  }
+
+  /**
+   * Removes all recorded values.
+   */
+  public void reset() {
+    Arrays.fill(counts, 0);
+    count = 0;
+    total = 0;
+    min = Long.MAX_VALUE;
+    max = Long.MIN_VALUE;
+  }
+
+  /**
+   * Returns the number of recorded values.
+   * @return number of values
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * Returns the number of recorded values in the specified bucket.
+   * @param bucket index of the bucket
+   * @return number of values
+   */
+  public long getCount(int bucket) {
+    return counts[bucket];
+  }
+
+  /**
+   * Returns the sum of the recorded values.
+   * @return sum of the values
+   */
+  public long getTotal() {
+    return total;
+  }
+
+  /**
+   * Returns the smallest recorded value.
+   * @return smallest value, 0 if nothing was recorded
+   */
+  public long getMin() {
+    return count == 0 ? 0 : min;
+  }
+
+  /**
+   * Returns the largest recorded value.
+   * @return largest value, 0 if nothing was recorded
+   */
+  public long getMax() {
+    return count == 0 ? 0 : max;
+  }
+
+  /**
+   * Returns the average of the recorded values.
+   * @return average, 0 if nothing was recorded
+   */
+  public double getMean() {
+    return count == 0 ? 0 : (double) total / count;
+  }
+
+  /**
+   * Returns the value at the specified percentile: the highest value of the 
+   * bucket that contains the value, but at most the largest recorded value.
+   * @param percentile between 0 and 100
+   * @return value at the percentile, 0 if nothing was recorded
+   */
+  public long getValueAtPercentile(double percentile) {
+    if (count == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(Math.min(100.0, percentile) / 100.0 * count));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += counts[i];
+      if (rank <= seen) {
+        return Math.max(getMin(), Math.min(highest(i), max));
+      }
+    }
+    return max;
+  }
+}
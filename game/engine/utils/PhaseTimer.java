@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package game.engine.utils;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Records the durations of the phases of the engine (game construction, the 
+ * stages of a turn) and writes them as a Chrome trace-event timeline (JSON 
+ * object format with complete events), that can be opened by 
+ * <code>chrome://tracing</code> or Perfetto.
+ * <p>
+ * A phase is measured by a {@link PhaseTimer#begin()} and a 
+ * {@link PhaseTimer#end(Phase, long)} call. The {@link PhaseTimer#DISABLED} 
+ * timer only checks a final flag, it does not read the clock. The events are 
+ * stored in growing primitive arrays, at most {@link PhaseTimer#MAX_EVENTS} 
+ * of them (the later ones are counted as dropped). The timer is not 
+ * thread-safe, it belongs to the thread of the engine.
+ */
+public final class PhaseTimer {
+  /** maximal number of stored events */
+  public static final int MAX_EVENTS = 1 << 22;
+  /** timer that does not measure anything */
+  public static final PhaseTimer DISABLED = new PhaseTimer(false);
+
+  /**
+   * Measured phases of the engine.
+   */
+  public static enum Phase {
+    /** construction of the game */
+    GAME,
+    /** construction of a player */
+    CONSTRUCTION,
+    /** a whole turn */
+    TURN,
+    /** the move of the player (or reading it in replay) */
+    PLAYER,
+    /** writing the turn to the gameplay log */
+    LOG,
+    /** applying the action by the game */
+    SET_ACTION,
+    /** adding the checkpoint of the replay index */
+    CHECKPOINT,
+    /** printing the game in debug mode */
+    PRINT,
+    /** requesting the repaint of the window (the painting is asynchronous) */
+    REPAINT,
+    /** painting and submitting the frame to be exported */
+    CAPTURE,
+    /** sleeping to keep the frame rate */
+    SLEEP,
+    /** writing the result and closing the log */
+    RESULT;
+
+    private final String label = name().toLowerCase(Locale.ROOT);
+  }
+
+  private final boolean enabled;
+  private final long origin = System.nanoTime();
+  private byte[] phases;
+  private int[] turns;
+  private long[] starts;
+  private long[] durations;
+  private int size;
+  private long dropped;
+  private int turn;
+
+  /**
+   * Creates an enabled timer.
+   */
+  public PhaseTimer() {
+    this(true);
+  }
+
+  private PhaseTimer(boolean enabled) {
+    this.enabled = enabled;
+    int capacity = enabled ? 1 << 10 : 0;
+    phases = new byte[capacity];
+    turns = new int[capacity];
+    starts = new long[capacity];
+    durations = new long[capacity];
+  }
+
+  /**
+   * Returns true, if the timer measures the phases.
+   * @return true, if enabled
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Sets the turn the next events belong to.
+   * @param turn number of the played turns
+   */
+  public void setTurn(int turn) {
+    this.turn = turn;
+  }
+
+  /**
+   * Returns the start time of a phase.
+   * @return current time in nanoseconds, 0 if the timer is disabled
+   */
+  public long begin() {
+    return enabled ? System.nanoTime() : 0;
+  }
+
+  /**
+   * Records the specified phase that has started at the specified time and 
+   * ends now.
+   * @param phase to be recorded
+   * @param start time returned by {@link PhaseTimer#begin()}
+   */
+  public void end(Phase phase, long start) {
+    if (enabled) {
+      record(phase, start, System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Stores an event, grows the arrays if they are full.
+   * @param phase of the event
+   * @param start of the event in nanoseconds
+   * @param duration of the event in nanoseconds
+   */
+  private void record(Phase phase, long start, long duration) {
+    if (size == phases.length) {
+      if (size == MAX_EVENTS) {
+        dropped++;
+        return;
+      }
+      int capacity = Math.min(MAX_EVENTS, 2 * size);
+      phases = Arrays.copyOf(phases, capacity);
+      turns = Arrays.copyOf(turns, capacity);
+      starts = Arrays.copyOf(starts, capacity);
+      durations = Arrays.copyOf(durations, capacity);
+    }
+    phases[size] = (byte) phase.ordinal();
+    turns[size] = turn;
+    starts[size] = start;
+    durations[size] = duration;
+    size++;
+  }
+
+  /**
+   * Returns the number of stored events.
+   * @return number of events
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the number of events were not stored, because the timer was full.
+   * @return number of dropped events
+   */
+  public long getDropped() {
+    return dropped;
+  }
+
+  /**
+   * Writes the stored events as a Chrome trace to the specified file.
+   * @param file to be written
+   * @param name of the process in the timeline
+   * @throws IOException file IO
+   */
+  public void write(File file, String name) throws IOException {
+    Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "utf8"));
+    try {
+      write(writer, name);
+    } finally {
+      writer.close();
+    }
+  }
+
+  /**
+   * Writes the stored events as a Chrome trace to the specified writer. The 
+   * timestamps are microseconds from the creation of the timer.
+   * @param writer to be written
+   * @param name of the process in the timeline
+   * @throws IOException IO
+   */
+  public void write(Writer writer, String name) throws IOException {
+    Phase[] values = Phase.values();
+    writer.write("{\"traceEvents\":[\n");
+    writer.write("{\"name\":\"process_name\",\"ph\":\"M\",\"pid\":0,\"tid\":0,\"args\":{\"name\":" + Utils.jsonSerialize(name) + "}}");
+    for (int idx = 0; idx < size; idx++) {
+      writer.write(",\n{\"name\":\"");
+      writer.write(values[phases[idx]].label);
+      writer.write("\",\"cat\":\"engine\",\"ph\":\"X\",\"pid\":0,\"tid\":0,\"ts\":");
+      writer.write(micros(starts[idx] - origin));
+      writer.write(",\"dur\":");
+      writer.write(micros(durations[idx]));
+      writer.write(",\"args\":{\"turn\":");
+      writer.write(Integer.toString(turns[idx]));
+      writer.write("}}");
+    }
+    writer.write("\n],\"displayTimeUnit\":\"ns\",\"otherData\":{\"dropped\":" + dropped + "}}\n");
+  }
+
+  /**
+   * Returns the specified nanoseconds in microseconds with three decimals.
+   * @param nanos to be converted
+   * @return microseconds
+   */
+  private static String micros(long nanos) {
+    StringBuilder sb = new StringBuilder();
+    sb.append(nanos / 1000).append('.');
+    long fraction = Math.abs(nanos % 1000);
+    if (fraction < 100) {
+      sb.append('0');
+    }
+    if (fraction < 10) {
+      sb.append('0');
+    }
+    return sb.append(fraction).toString();
+  }
+}
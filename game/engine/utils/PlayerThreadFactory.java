@@ -15,29 +15,18 @@
  * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
  *
  */
-
 package game.engine.utils;
 
-import java.io.IOException;
-import java.io.OutputStream;
-
 /**
- * Output stream that writes into the specified buffer.
+ * Creates the threads of the tasks of the players (see {@link TaskExecutor}), 
+ * so that the threads of a player can be separated from the others.
  */
-public final class StringBufferOutputStream extends OutputStream {
-  private StringBuffer buffer;
-  
+public interface PlayerThreadFactory {
   /**
-   * Writes the stream into the specified buffer.
-   * @param sb to be written.
+   * Returns a new, not yet started thread of the specified player.
+   * @param player index (color) of the player
+   * @param runnable to be run by the thread
+   * @return created thread
    */
-  public StringBufferOutputStream(StringBuffer sb) {
-    buffer = sb;
-  }
-  
-  @Override
-  public void write(int b) throws IOException {
-    buffer.append((char)b);
-  }
-
+  public Thread newThread(int player, Runnable runnable);
 }
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package game.engine.utils;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs the tasks of every player on a cached thread pool of the player. On 
+ * timeout the running task is cancelled (interrupted), its thread is handed to 
+ * the {@link Watchdog} and the pool of the player is replaced; the next task 
+ * of the player is started after the timed out one has ended (the player is 
+ * not called concurrently).
+ */
+public final class PoolTaskExecutor implements TaskExecutor {
+  private final PlayerThreadFactory factory;
+  private ExecutorService[] services = new ExecutorService[0];
+  // quarantined threads of the timed out tasks, indexed by player
+  private Thread[] stale = new Thread[0];
+
+  /**
+   * Creates the executor, the threads of the pools are created by the 
+   * specified factory.
+   * @param factory creates the threads
+   */
+  public PoolTaskExecutor(final ThreadFactory factory) {
+    this(new PlayerThreadFactory() {
+      @Override
+      public Thread newThread(int player, Runnable runnable) {
+        return factory.newThread(runnable);
+      }
+    });
+  }
+
+  /**
+   * Creates the executor, the threads of the pool of a player are created by 
+   * the specified factory.
+   * @param factory creates the threads of the players
+   */
+  public PoolTaskExecutor(PlayerThreadFactory factory) {
+    this.factory = factory;
+  }
+
+  @Override
+  public <R> R execute(int player, TimeOutTask<R> task, long timeout) throws InterruptedException, ExecutionException, TimeoutException {
+    if (player < stale.length && stale[player] != null) {
+      // the player times out again, if its previous task can not be stopped
+      if (!Watchdog.await(stale[player])) {
+        throw new TimeoutException();
+      }
+      stale[player] = null;
+    }
+    Running<R> running = new Running<R>(task);
+    Future<R> future = service(player).submit(running);
+    try {
+      return future.get(timeout, TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      Thread thread = running.thread;
+      if (thread != null) {
+        // the thread of the pool ends after the task, the pool is not reused
+        services[player].shutdown();
+        services[player] = null;
+        Watchdog.quarantine(thread);
+        stale = set(stale, player, thread);
+      }
+      throw e;
+    } finally {
+      future.cancel(true);
+    }
+  }
+  
+  /**
+   * Sets the specified element of the specified array, the array is grown if 
+   * necessary.
+   * @param threads array to be set
+   * @param player index of the element
+   * @param thread value of the element
+   * @return the array or its grown copy
+   */
+  static Thread[] set(Thread[] threads, int player, Thread thread) {
+    if (threads.length <= player) {
+      Thread[] tmp = new Thread[player + 1];
+      System.arraycopy(threads, 0, tmp, 0, threads.length);
+      threads = tmp;
+    }
+    threads[player] = thread;
+    return threads;
+  }
+
+  /**
+   * Returns the pool of the specified player, creates it if necessary.
+   * @param player index of the player
+   * @return pool of the player
+   */
+  private ExecutorService service(final int player) {
+    if (services.length <= player) {
+      ExecutorService[] tmp = new ExecutorService[player + 1];
+      System.arraycopy(services, 0, tmp, 0, services.length);
+      services = tmp;
+    }
+    if (services[player] == null) {
+      services[player] = Executors.newCachedThreadPool(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+          return factory.newThread(player, runnable);
+        }
+      });
+    }
+    return services[player];
+  }
+
+  /**
+   * Task that records the thread running it, so the thread can be 
+   * quarantined on timeout.
+   * @param <R> result type
+   */
+  private static final class Running<R> implements Callable<R> {
+    private final TimeOutTask<R> task;
+    private volatile Thread thread = null;
+    
+    /**
+     * Creates the recording task.
+     * @param task to be run
+     */
+    private Running(TimeOutTask<R> task) {
+      this.task = task;
+    }
+    
+    @Override
+    public R call() throws Exception {
+      thread = Thread.currentThread();
+      try {
+        return task.call();
+      } finally {
+        thread = null;
+      }
+    }
+  }
+
+  @Override
+  public void shutdown() {
+    for (ExecutorService service : services) {
+      if (service != null) {
+        service.shutdown();
+      }
+    }
+  }
+
+}
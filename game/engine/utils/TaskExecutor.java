@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package game.engine.utils;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs the tasks of the players (construction and actions) with timeout.
+ */
+public interface TaskExecutor {
+  /**
+   * Runs the specified task on behalf of the specified player and returns its 
+   * result. 
+   * @param <R> result type
+   * @param player index (color) of the player the task belongs to
+   * @param task to be run
+   * @param timeout maximal waiting time in nanoseconds
+   * @return result of the task
+   * @throws InterruptedException if the waiting thread was interrupted
+   * @throws ExecutionException if the task has thrown an exception
+   * @throws TimeoutException if the task has not been finished in time
+   */
+  public <R> R execute(int player, TimeOutTask<R> task, long timeout) throws InterruptedException, ExecutionException, TimeoutException;
+  
+  /**
+   * Releases the threads of the executor, no more tasks can be executed.
+   */
+  public void shutdown();
+}
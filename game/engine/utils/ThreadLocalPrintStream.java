@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package game.engine.utils;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Locale;
+
+/**
+ * Print stream that routes the prints of a thread to the print stream was 
+ * bound to the thread. The binding is inherited by the threads started by a 
+ * bound thread (e.g. the helper threads and the fork-join workers of a 
+ * player), so their prints go to the same stream. Prints of unbound threads 
+ * go to the fallback stream. 
+ * The stream does not lock itself (as {@link PrintStream} does), so the 
+ * threads bound to different streams do not block each other.
+ */
+public final class ThreadLocalPrintStream extends PrintStream {
+  private final PrintStream fallback;
+  private final ThreadLocal<PrintStream> target = new InheritableThreadLocal<PrintStream>();
+
+  /**
+   * Creates the stream with the specified fallback.
+   * @param fallback printed by the unbound threads
+   */
+  public ThreadLocalPrintStream(PrintStream fallback) {
+    super(OutputStream.nullOutputStream());
+    this.fallback = fallback;
+  }
+
+  /**
+   * Binds the specified stream to the current thread and to the threads it 
+   * starts afterwards.
+   * @param stream to be printed by the current thread
+   */
+  public void set(PrintStream stream) {
+    target.set(stream);
+  }
+
+  /**
+   * Unbinds the stream of the current thread.
+   */
+  public void remove() {
+    target.remove();
+  }
+
+  /**
+   * Returns the stream of the current thread.
+   * @return bound stream or the fallback
+   */
+  private PrintStream current() {
+    PrintStream stream = target.get();
+    return stream == null ? fallback : stream;
+  }
+
+  @Override
+  public void write(int b) {
+    current().write(b);
+  }
+
+  @Override
+  public void write(byte[] buf, int off, int len) {
+    current().write(buf, off, len);
+  }
+
+  @Override
+  public void flush() {
+    current().flush();
+  }
+
+  @Override
+  public void close() {
+    current().close();
+  }
+
+  @Override
+  public boolean checkError() {
+    return current().checkError();
+  }
+
+  @Override
+  public void print(boolean b) {
+    current().print(b);
+  }
+
+  @Override
+  public void print(char c) {
+    current().print(c);
+  }
+
+  @Override
+  public void print(int i) {
+    current().print(i);
+  }
+
+  @Override
+  public void print(long l) {
+    current().print(l);
+  }
+
+  @Override
+  public void print(float f) {
+    current().print(f);
+  }
+
+  @Override
+  public void print(double d) {
+    current().print(d);
+  }
+
+  @Override
+  public void print(char[] s) {
+    current().print(s);
+  }
+
+  @Override
+  public void print(String s) {
+    current().print(s);
+  }
+
+  @Override
+  public void print(Object obj) {
+    current().print(obj);
+  }
+
+  @Override
+  public void println() {
+    current().println();
+  }
+
+  @Override
+  public void println(boolean x) {
+    current().println(x);
+  }
+
+  @Override
+  public void println(char x) {
+    current().println(x);
+  }
+
+  @Override
+  public void println(int x) {
+    current().println(x);
+  }
+
+  @Override
+  public void println(long x) {
+    current().println(x);
+  }
+
+  @Override
+  public void println(float x) {
+    current().println(x);
+  }
+
+  @Override
+  public void println(double x) {
+    current().println(x);
+  }
+
+  @Override
+  public void println(char[] x) {
+    current().println(x);
+  }
+
+  @Override
+  public void println(String x) {
+    current().println(x);
+  }
+
+  @Override
+  public void println(Object x) {
+    current().println(x);
+  }
+
+  @Override
+  public PrintStream printf(String format, Object... args) {
+    current().printf(format, args);
+    return this;
+  }
+
+  @Override
+  public PrintStream printf(Locale l, String format, Object... args) {
+    current().printf(l, format, args);
+    return this;
+  }
+
+  @Override
+  public PrintStream format(String format, Object... args) {
+    current().format(format, args);
+    return this;
+  }
+
+  @Override
+  public PrintStream format(Locale l, String format, Object... args) {
+    current().format(l, format, args);
+    return this;
+  }
+
+  @Override
+  public PrintStream append(CharSequence csq) {
+    current().append(csq);
+    return this;
+  }
+
+  @Override
+  public PrintStream append(CharSequence csq, int start, int end) {
+    current().append(csq, start, end);
+    return this;
+  }
+
+  @Override
+  public PrintStream append(char c) {
+    current().append(c);
+    return this;
+  }
+
+}
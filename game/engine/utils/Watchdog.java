@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package game.engine.utils;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Keeps the threads of the timed out players in quarantine: they get the 
+ * lowest priority and are interrupted periodically, and are stopped if they 
+ * are still running after a grace period, so that they can not steal the 
+ * processor from the players of the later turns.
+ */
+public final class Watchdog implements Runnable {
+  /** period of the checks in milliseconds */
+  public static final long PERIOD = 50;
+  /** time to stop on interrupt voluntarily in nanoseconds */
+  public static final long GRACE = 1000000000L;
+  
+  private static Watchdog instance = null;
+  private final List<Pair<Thread, Long>> threads = new LinkedList<Pair<Thread, Long>>();
+  private long stopped = 0;
+  
+  private Watchdog() {
+  }
+  
+  /**
+   * Puts the specified thread into quarantine, starts the watchdog thread if 
+   * it is not running.
+   * @param thread to be quarantined
+   */
+  public static synchronized void quarantine(Thread thread) {
+    if (instance == null) {
+      instance = new Watchdog();
+      Thread watchdog = new Thread(instance, "watchdog");
+      watchdog.setDaemon(true);
+      watchdog.setPriority(Thread.MAX_PRIORITY);
+      watchdog.start();
+    }
+    thread.setPriority(Thread.MIN_PRIORITY);
+    thread.interrupt();
+    instance.threads.add(new Pair<Thread, Long>(thread, System.nanoTime()));
+  }
+  
+  /**
+   * Waits until the specified quarantined thread ends, at most until its 
+   * grace period is over and the watchdog has stopped it.
+   * @param thread quarantined thread
+   * @return true, if the thread has ended
+   * @throws InterruptedException if the waiting thread was interrupted
+   */
+  public static boolean await(Thread thread) throws InterruptedException {
+    long since = System.nanoTime() - GRACE;
+    synchronized (Watchdog.class) {
+      if (instance != null) {
+        for (Pair<Thread, Long> pair : instance.threads) {
+          if (pair.first == thread) {
+            since = pair.second;
+          }
+        }
+      }
+    }
+    long wait = GRACE + 2 * PERIOD * 1000000L - (System.nanoTime() - since);
+    thread.join(Math.max(1, wait / 1000000L));
+    return !thread.isAlive();
+  }
+  
+  /**
+   * Returns the number of threads are still alive in quarantine.
+   * @return number of quarantined threads
+   */
+  public static synchronized int size() {
+    return instance == null ? 0 : instance.threads.size();
+  }
+  
+  /**
+   * Returns the number of threads had to be stopped by force.
+   * @return number of stopped threads
+   */
+  public static synchronized long stopped() {
+    return instance == null ? 0 : instance.stopped;
+  }
+
+  @Override
+  public void run() {
+    while (true) {
+      try {
+        Thread.sleep(PERIOD);
+      } catch (InterruptedException e) {
+        return;
+      }
+      synchronized (Watchdog.class) {
+        Iterator<Pair<Thread, Long>> it = threads.iterator();
+        while (it.hasNext()) {
+          Pair<Thread, Long> pair = it.next();
+          if (!pair.first.isAlive()) {
+            it.remove();
+          } else if (GRACE < System.nanoTime() - pair.second) {
+            stop(pair.first);
+            stopped++;
+            it.remove();
+          } else {
+            pair.first.interrupt();
+          }
+        }
+      }
+    }
+  }
+  
+  /**
+   * Stops the specified thread by force, if the JVM still supports it, 
+   * otherwise the thread runs on with the lowest priority.
+   * @param thread to be stopped
+   */
+  @SuppressWarnings({ "deprecation", "removal" })
+  private static void stop(Thread thread) {
+    try {
+      thread.stop();
+    } catch (UnsupportedOperationException e) {
+      thread.interrupt();
+    }
+  }
+
+}
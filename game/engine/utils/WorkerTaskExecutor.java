@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package game.engine.utils;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs the tasks of every player on a dedicated, long-lived worker thread of 
+ * the player. The task is handed over by volatile fields and thread parking 
+ * instead of a queue and a future. On timeout the worker is handed to the 
+ * {@link Watchdog} and a new worker is started for the next task of the player, 
+ * after the timed out task has ended (the player is not called concurrently).
+ */
+public final class WorkerTaskExecutor implements TaskExecutor {
+  /** number of busy-wait iterations before parking, spinning is useless on a single core */
+  private static final int SPINS = Runtime.getRuntime().availableProcessors() > 1 ? 1 << 12 : 0;
+  private final PlayerThreadFactory factory;
+  private Worker[] workers = new Worker[0];
+  // quarantined workers of the timed out tasks, indexed by player
+  private Thread[] stale = new Thread[0];
+  
+  /**
+   * Creates the executor, the worker threads are created by the specified 
+   * factory.
+   * @param factory creates the worker threads
+   */
+  public WorkerTaskExecutor(final ThreadFactory factory) {
+    this(new PlayerThreadFactory() {
+      @Override
+      public Thread newThread(int player, Runnable runnable) {
+        return factory.newThread(runnable);
+      }
+    });
+  }
+  
+  /**
+   * Creates the executor, the worker threads of a player are created by the 
+   * specified factory.
+   * @param factory creates the worker threads of the players
+   */
+  public WorkerTaskExecutor(PlayerThreadFactory factory) {
+    this.factory = factory;
+  }
+
+  @Override
+  public <R> R execute(int player, TimeOutTask<R> task, long timeout) throws InterruptedException, ExecutionException, TimeoutException {
+    if (player < stale.length && stale[player] != null) {
+      // the player times out again, if its previous task can not be stopped
+      if (!Watchdog.await(stale[player])) {
+        throw new TimeoutException();
+      }
+      stale[player] = null;
+    }
+    Worker worker = worker(player);
+    try {
+      return worker.execute(task, timeout);
+    } catch (TimeoutException e) {
+      workers[player] = null;
+      worker.stopped = true;
+      Watchdog.quarantine(worker.thread);
+      stale = PoolTaskExecutor.set(stale, player, worker.thread);
+      throw e;
+    }
+  }
+  
+  /**
+   * Returns the worker of the specified player, creates it if necessary.
+   * @param player index of the player
+   * @return worker of the player
+   */
+  private Worker worker(int player) {
+    if (workers.length <= player) {
+      Worker[] tmp = new Worker[player + 1];
+      System.arraycopy(workers, 0, tmp, 0, workers.length);
+      workers = tmp;
+    }
+    if (workers[player] == null) {
+      workers[player] = new Worker(factory, player);
+    }
+    return workers[player];
+  }
+
+  @Override
+  public void shutdown() {
+    for (int i = 0; i < workers.length; i++) {
+      if (workers[i] != null) {
+        workers[i].stopped = true;
+        LockSupport.unpark(workers[i].thread);
+        workers[i] = null;
+      }
+    }
+  }
+  
+  /**
+   * Long-lived thread of a player, runs one task at a time.
+   */
+  private static final class Worker implements Runnable {
+    private final Thread thread;
+    private volatile boolean stopped = false;
+    private volatile TimeOutTask<?> task = null;
+    private volatile boolean done = false;
+    private volatile Thread caller = null;
+    // published by the volatile write of done
+    private Object result;
+    private Throwable error;
+    
+    /**
+     * Creates and starts the worker thread by the specified factory.
+     * @param factory creates the thread
+     * @param player index of the player
+     */
+    private Worker(PlayerThreadFactory factory, int player) {
+      thread = factory.newThread(player, this);
+      thread.setName("player-" + player + "-worker");
+      thread.start();
+    }
+    
+    /**
+     * Hands over the specified task to the worker thread and waits for its 
+     * result at most the specified time.
+     * @param <R> result type
+     * @param task to be run
+     * @param timeout maximal waiting time in nanoseconds
+     * @return result of the task
+     * @throws InterruptedException if the waiting thread was interrupted
+     * @throws ExecutionException if the task has thrown an exception
+     * @throws TimeoutException if the task has not been finished in time
+     */
+    @SuppressWarnings("unchecked")
+    private <R> R execute(TimeOutTask<R> task, long timeout) throws InterruptedException, ExecutionException, TimeoutException {
+      long start = System.nanoTime();
+      result = null;
+      error = null;
+      done = false;
+      caller = Thread.currentThread();
+      this.task = task;
+      LockSupport.unpark(thread);
+      for (int spin = 0; !done && spin < SPINS; spin++) {
+        Thread.onSpinWait();
+      }
+      while (!done) {
+        long remaining = timeout - (System.nanoTime() - start);
+        if (remaining <= 0) {
+          throw new TimeoutException();
+        }
+        LockSupport.parkNanos(this, remaining);
+        if (Thread.interrupted()) {
+          throw new InterruptedException();
+        }
+      }
+      if (error != null) {
+        throw new ExecutionException(error);
+      }
+      return (R) result;
+    }
+
+    @Override
+    public void run() {
+      while (!stopped) {
+        TimeOutTask<?> current = task;
+        if (current == null) {
+          LockSupport.park(this);
+          continue;
+        }
+        // clear the interrupts of the previous task, as thread pools do
+        Thread.interrupted();
+        try {
+          result = current.call();
+        } catch (Throwable e) {
+          error = e;
+        }
+        task = null;
+        done = true;
+        LockSupport.unpark(caller);
+      }
+    }
+  }
+
+}
@@ -19,39 +19,58 @@
 package game.racetrack;
 
 import java.awt.Color;
+import java.awt.Dimension;
 import java.awt.Frame;
+import java.awt.Graphics;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.PrintStream;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.TreeMap;
 
+import javax.swing.UIManager;
+
 import game.engine.Action;
+import game.engine.ActionCodec;
+import game.engine.Checkpointable;
 import game.engine.Game;
 import game.engine.ui.Drawable;
 import game.engine.ui.GameFrame;
 import game.engine.ui.GameObject;
+import game.engine.ui.Renderable;
 import game.engine.utils.Pair;
 import game.engine.utils.Utils;
 import game.racetrack.players.DummyPlayer;
 import game.racetrack.players.HumanPlayer;
 import game.racetrack.ui.FilledOvalObject;
 import game.racetrack.ui.RaceTrackCanvas;
+import game.racetrack.ui.TrackRenderer;
 import game.racetrack.ui.FilledRectangleObject;
 import game.racetrack.utils.Cell;
 import game.racetrack.utils.Coin;
+import game.racetrack.utils.DirtyCells;
+import game.racetrack.utils.PackedState;
 import game.racetrack.utils.PathCell;
 import game.racetrack.utils.PlayerState;
+import game.racetrack.utils.TrackAnalysis;
+import game.racetrack.utils.TrackGrid;
+import game.racetrack.utils.TrackPack;
 
 /**
  * https://en.wikipedia.org/wiki/Racetrack_(game)
  * https://3dpancakes.typepad.com/ernie/2009/06/how-hard-is-optimal-racing.html
  * https://harmmade.com/vectorracer/
  */
-public class RaceTrackGame implements Game<RaceTrackPlayer, Direction>, Drawable {
+public class RaceTrackGame implements Game<RaceTrackPlayer, Direction>, ActionCodec<Direction>, Checkpointable, Drawable, Renderable {
   
   
   private static final int[] directions = new int[] {-2, -1, 1, 2};
@@ -122,8 +141,8 @@ public class RaceTrackGame implements Game<RaceTrackPlayer, Direction>, Drawable
   /** maximal timeout of the player */
   public final long timeout;
   
-  /** matrix of the track */
-  private final int[][] track;
+  /** cells of the track */
+  private final TrackGrid track;
   
   private final List<PathCell> path;
   private final Coin[] coins;
@@ -140,12 +159,18 @@ public class RaceTrackGame implements Game<RaceTrackPlayer, Direction>, Drawable
   private final int maxIterations;
   
   private final PrintStream errStream;
-  private final RaceTrackCanvas canvas;
+  private RaceTrackCanvas canvas;
+  private TrackRenderer renderer;
+  // changed cells to be redrawn by the renderer, null while there is no renderer
+  private volatile DirtyCells dirty;
+  private TrackAnalysis analysis;
+  private int[] line = new int[64];
   /**
    * Constructs the game object by the specified parameters.
    * @param errStream used for logs
    * @param isReplay the game is a replay
    * @param params command line parameters
+   * @throws IllegalArgumentException if the number of parameters is invalid
    */
   public RaceTrackGame(PrintStream errStream, boolean isReplay, String[] params) {
     this.errStream = errStream;
@@ -160,7 +185,7 @@ public class RaceTrackGame implements Game<RaceTrackPlayer, Direction>, Drawable
       errStream.println("\t- random seed            : controls the sequence of the random numbers");
       errStream.println("\t- timeout                : play-time for a player in milliseconds");
       errStream.println("\t- player class           : player class (max " + PLAYERS.length + ")");
-      System.exit(1);
+      throw new IllegalArgumentException("invalid number of game parameters: " + params.length);
     }
     
     this.n = Integer.parseInt(params[0]);
@@ -172,34 +197,24 @@ public class RaceTrackGame implements Game<RaceTrackPlayer, Direction>, Drawable
     this.timeout = Long.parseLong(params[6]) * 1000000;
     this.isReplay = isReplay;
     
-    Random random = new Random(seed);
     iteration = 0;
-    Cell start = new Cell(0, 1);
-    Cell finish = new Cell(0, m - 2);
-    playerStart = new Cell(start.i * scale + scale / 2, start.j * scale + scale / 2);
-    int[][] smallTrack = init(n, m);
-    smallTrack[start.i][start.j] ^= WALL;
-    smallTrack[start.i][start.j] |= EMPTY;
-    smallTrack[finish.i][finish.j] ^= WALL;
-    smallTrack[finish.i][finish.j] |= FINISH | EMPTY;
-    
-    
-    generate(1, 1, smallTrack, random);
-    makeHoles(smallTrack, 1, cleanProb, random);
-    replace(smallTrack, INIT, EMPTY);
-    track = scale(smallTrack, scale);
-    cutCorners(track);
-    replace(track, INIT, EMPTY);
-    path = BFS(playerStart.i, playerStart.j, track);
-    coins = addCoins(track, numCoins, scale, random, path);
+    playerStart = playerStart(scale);
+    // the layout is attached from the track pack, if it has been built ahead
+    TrackPack.Key key = new TrackPack.Key(n, m, scale, cleanProb, numCoins, seed);
+    TrackPack pack = TrackPack.system();
+    TrackPack.Layout layout = pack == null ? null : pack.get(key);
+    if (layout == null) {
+      layout = createLayout(key);
+    }
+    track = layout.track;
+    path = layout.path;
+    coins = layout.coins;
     int maxIter = path.size();
     for (Coin c : coins) {
       maxIter += c.value;
     }
     this.maxIterations = maxIter;
     
-    canvas = new RaceTrackCanvas(track.length, track[0].length, this);
-    
     playerClasses = new String[params.length - numParams];
     remainingTimes = new long[params.length - numParams];
     players = new RaceTrackPlayer[params.length - numParams];
@@ -208,11 +223,47 @@ public class RaceTrackGame implements Game<RaceTrackPlayer, Direction>, Drawable
     for (int playerIdx = 0; playerIdx < params.length - numParams; playerIdx++) {
       playerClasses[playerIdx] = params[numParams + playerIdx];
       remainingTimes[playerIdx] = this.timeout;
-      track[playerStart.i][playerStart.j] |= PLAYERS[playerIdx];
+      track.or(playerStart.i, playerStart.j, PLAYERS[playerIdx]);
       scores[playerIdx] = -path.size() + 1;
     }
     currentPlayer = 0;
   }
+  /**
+   * Returns the start cell of the players on a track of the specified scale.
+   * @param scale factor of the track upscale
+   * @return start cell
+   */
+  private static Cell playerStart(int scale) {
+    Cell start = new Cell(0, 1);
+    return new Cell(start.i * scale + scale / 2, start.j * scale + scale / 2);
+  }
+  /**
+   * Generates the layout of the track of the specified parameters: the 
+   * track, the baseline path from the start to the finish and the coins.
+   * @param key parameters of the track
+   * @return generated layout
+   */
+  public static TrackPack.Layout createLayout(TrackPack.Key key) {
+    Random random = new Random(key.seed);
+    Cell start = new Cell(0, 1);
+    Cell finish = new Cell(0, key.m - 2);
+    Cell playerStart = playerStart(key.scale);
+    TrackGrid smallTrack = initGrid(key.n, key.m);
+    smallTrack.xor(start.i, start.j, WALL);
+    smallTrack.or(start.i, start.j, EMPTY);
+    smallTrack.xor(finish.i, finish.j, WALL);
+    smallTrack.or(finish.i, finish.j, FINISH | EMPTY);
+    
+    generate(1, 1, smallTrack, random);
+    makeHoles(smallTrack, 1, key.cleanProb, random);
+    replace(smallTrack, INIT, EMPTY);
+    TrackGrid track = scale(smallTrack, key.scale);
+    cutCorners(track);
+    replace(track, INIT, EMPTY);
+    List<PathCell> path = BFS(playerStart.i, playerStart.j, track);
+    Coin[] coins = addCoins(track, key.numCoins, key.scale, random, path);
+    return new TrackPack.Layout(track, path, coins);
+  }
   /**
    * Returns an initial matrix of a labyrinth where every cell on odd 
    * coordinates are empty and the rest are walls.
@@ -221,38 +272,110 @@ public class RaceTrackGame implements Game<RaceTrackPlayer, Direction>, Drawable
    * @return initial labyrinth
    */
   public static int[][] init(int n, int m) {
-    int[][] track = new int[n][m];
+    return initGrid(n, m).toArray();
+  }
+  /**
+   * Returns an initial grid of a labyrinth where every cell on odd 
+   * coordinates are empty and the rest are walls.
+   * @param n number of rows
+   * @param m number of columns
+   * @return initial labyrinth
+   */
+  public static TrackGrid initGrid(int n, int m) {
+    TrackGrid track = new TrackGrid(n, m);
     for (int i = 0; i < n; i++) {
       for (int j = 0; j < m; j++) {
-        if (i % 2 != 1 || j % 2 != 1) {
-          track[i][j] |= WALL;
-        } else {
-          track[i][j] |= EMPTY;
-        }
+        track.set(i, j, i % 2 != 1 || j % 2 != 1 ? WALL : EMPTY);
       }
     }
     return track;
   }
   /**
    * Generates a perfect maze by random depth-first-search, from the specified 
-   * coordinates on the specified and initialized {@link RaceTrackGame#init(int, int)}
+   * coordinates on the specified and initialized {@link RaceTrackGame#init(int, int)}, 
+   * see {@link RaceTrackGame#generate(int, int, TrackGrid, Random)}.
    * @param i row index of start position
    * @param j column index of start position
    * @param maze to be prepared
    * @param random random number generator
    */
   public static void generate(int i, int j, int[][] maze, Random random) {
-    maze[i][j] = INIT;
-    int[] dirs = Utils.copyShuffle(directions, 0, directions.length, random);
-    for (int d = 0; d < dirs.length; d++) {
-      int di = 2 * (dirs[d] / 2);
-      int dj = 2 * (dirs[d] % 2);
-      if (0 < i + di && 0 < j + dj && i + di < maze.length && j + dj < maze[i + di].length && mask(maze[i + di][j + dj], EMPTY)) {
-        maze[i + (di / 2)][j + (dj / 2)] ^= WALL;
-        maze[i + (di / 2)][j + (dj / 2)] |= EMPTY;
-        generate(i + di, j + dj, maze, random);
+    TrackGrid grid = new TrackGrid(maze);
+    generate(i, j, grid, random);
+    grid.copyTo(maze);
+  }
+  /**
+   * Generates a perfect maze by random depth-first-search, from the specified 
+   * coordinates on the specified and initialized {@link RaceTrackGame#initGrid(int, int)}
+   * The search uses an explicit stack (a frame packs the cell, the shuffled 
+   * order of the directions and the next direction to be tried into a long), 
+   * the random numbers are drawn in the same order as by the recursive 
+   * search, so the maze of a seed is the same.
+   * @param i row index of start position
+   * @param j column index of start position
+   * @param maze to be prepared
+   * @param random random number generator
+   */
+  public static void generate(int i, int j, TrackGrid maze, Random random) {
+    int[] order = new int[directions.length];
+    long[] stack = new long[64];
+    int size = 0;
+    maze.set(i, j, INIT);
+    stack[size++] = frame(i, j, permutation(order, random));
+    while (0 < size) {
+      long top = stack[size - 1];
+      int d = (int) (top & 7);
+      if (d == directions.length) {
+        size--;
+        continue;
       }
+      // the next direction of the frame is tried at the next visit
+      stack[size - 1] = top + 1;
+      i = (int) (top >>> 37);
+      j = (int) ((top >>> 11) & ((1 << 26) - 1));
+      int dir = directions[(int) (top >>> (3 + 2 * d)) & 3];
+      int di = 2 * (dir / 2);
+      int dj = 2 * (dir % 2);
+      if (0 < i + di && 0 < j + dj && i + di < maze.n && j + dj < maze.m && maze.mask(i + di, j + dj, EMPTY)) {
+        maze.xor(i + (di / 2), j + (dj / 2), WALL);
+        maze.or(i + (di / 2), j + (dj / 2), EMPTY);
+        maze.set(i + di, j + dj, INIT);
+        if (size == stack.length) {
+          stack = Arrays.copyOf(stack, 2 * size);
+        }
+        stack[size++] = frame(i + di, j + dj, permutation(order, random));
+      }
+    }
+  }
+  /**
+   * Packs a frame of the maze generation: row (26 bits), column (26 bits), 
+   * order of the directions (4 x 2 bits) and the index of the next direction 
+   * to be tried (3 bits, zero).
+   * @param i row index
+   * @param j column index
+   * @param permutation packed order of the directions
+   * @return packed frame
+   */
+  private static long frame(int i, int j, int permutation) {
+    return ((long) i << 37) | ((long) j << 11) | (permutation << 3);
+  }
+  /**
+   * Shuffles the indices of the directions (as {@link Utils#copyShuffle(int[], int, int, Random)} 
+   * shuffles the directions) and packs them 2 bits each.
+   * @param order work array for the indices
+   * @param random random number generator
+   * @return packed order of the directions
+   */
+  private static int permutation(int[] order, Random random) {
+    for (int idx = 0; idx < order.length; idx++) {
+      order[idx] = idx;
+    }
+    Utils.shuffle(order, 0, order.length, random);
+    int result = 0;
+    for (int idx = 0; idx < order.length; idx++) {
+      result |= order[idx] << (2 * idx);
     }
+    return result;
   }
   /**
    * center could be removed, on NOT SCALED track
@@ -267,19 +390,37 @@ public class RaceTrackGame implements Game<RaceTrackPlayer, Direction>, Drawable
    * @param random generates random numbers
    */
   public static void makeHoles(int[][] track, int iterations, double probability, Random random) {
+    TrackGrid grid = new TrackGrid(track);
+    makeHoles(grid, iterations, probability, random);
+    grid.copyTo(track);
+  }
+  /**
+   * Makes holes on the walls of a labyrinth according to the specified 
+   * probability, see {@link RaceTrackGame#makeHoles(int[][], int, double, Random)}.
+   * @param track to be holed
+   * @param iterations number of repeats of the process
+   * @param probability probability of making a hole
+   * @param random generates random numbers
+   */
+  public static void makeHoles(TrackGrid track, int iterations, double probability, Random random) {
     for (int iter = 0; iter < iterations; iter++) {
-      for (int i = 2; i < track.length - 1; i++) {
-        for (int j = 2; j < track[i].length - 1; j++) {
-          if (mask(track[i][j], WALL) &&
-              ((!mask(track[i - 1][j], WALL) && !mask(track[i + 1][j], WALL) && !mask(track[i][j - 1], WALL) && !mask(track[i][j + 1], WALL)) ||
-               (mask(track[i - 1][j], WALL) && mask(track[i + 1][j], WALL) && !mask(track[i][j - 1], WALL) && !mask(track[i][j + 1], WALL)) || 
-               (!mask(track[i - 1][j], WALL) && !mask(track[i + 1][j], WALL) && mask(track[i][j - 1], WALL) && mask(track[i][j + 1], WALL)) || 
-               (mask(track[i - 1][j], WALL) && !mask(track[i + 1][j], WALL) && !mask(track[i][j - 1], WALL) && !mask(track[i][j + 1], WALL)) ||
-               (!mask(track[i - 1][j], WALL) && !mask(track[i + 1][j], WALL) && !mask(track[i][j - 1], WALL) && mask(track[i][j + 1], WALL)) ||
-               (!mask(track[i - 1][j], WALL) && !mask(track[i + 1][j], WALL) && mask(track[i][j - 1], WALL) && !mask(track[i][j + 1], WALL)) ||
-               (!mask(track[i - 1][j], WALL) && mask(track[i + 1][j], WALL) && !mask(track[i][j - 1], WALL) && !mask(track[i][j + 1], WALL))) &&
-               random.nextDouble() < probability) {
-            track[i][j] = INIT;
+      for (int i = 2; i < track.n - 1; i++) {
+        for (int j = 2; j < track.m - 1; j++) {
+          if (track.mask(i, j, WALL)) {
+            boolean up = track.mask(i - 1, j, WALL);
+            boolean down = track.mask(i + 1, j, WALL);
+            boolean left = track.mask(i, j - 1, WALL);
+            boolean right = track.mask(i, j + 1, WALL);
+            if (((!up && !down && !left && !right) ||
+                 (up && down && !left && !right) || 
+                 (!up && !down && left && right) || 
+                 (up && !down && !left && !right) ||
+                 (!up && !down && !left && right) ||
+                 (!up && !down && left && !right) ||
+                 (!up && down && !left && !right)) &&
+                 random.nextDouble() < probability) {
+              track.set(i, j, INIT);
+            }
           }
         }
       }
@@ -292,12 +433,23 @@ public class RaceTrackGame implements Game<RaceTrackPlayer, Direction>, Drawable
    * @return up-scaled track
    */
   public static int[][] scale(int[][] track, int scale) {
-    int[][] scaled = new int[scale * track.length][scale * track[0].length];
-    for (int i = 0; i < track.length; i++) {
-      for (int j = 0; j < track[i].length; j++) {
+    return scale(new TrackGrid(track), scale).toArray();
+  }
+  /**
+   * Up-scales the the specified track by the specified scale factor. 
+   * @param track to be scaled up
+   * @param scale scale factor
+   * @return up-scaled track
+   */
+  public static TrackGrid scale(TrackGrid track, int scale) {
+    TrackGrid scaled = new TrackGrid(scale * track.n, scale * track.m);
+    for (int i = 0; i < track.n; i++) {
+      for (int j = 0; j < track.m; j++) {
+        int value = track.get(i, j);
         for (int si = 0; si < scale; si++) {
+          int idx = scaled.index(i * scale + si, j * scale);
           for (int sj = 0; sj < scale; sj++) {
-            scaled[i * scale + si][j * scale + sj] = track[i][j];
+            scaled.set(idx + sj, value);
           }
         }
       }
@@ -314,14 +466,24 @@ public class RaceTrackGame implements Game<RaceTrackPlayer, Direction>, Drawable
    * @param track to be maintained
    */
   public static void cutCorners(int[][] track) {
-    for (int i = 1; i < track.length - 1; i++) {
-      for (int j = 1; j < track[i].length - 1; j++) {
-        if (mask(track[i][j], WALL) &&
-            ((mask(track[i - 1][j], WALL) && mask(track[i + 1][j], EMPTY) && mask(track[i][j - 1], WALL) && mask(track[i][j + 1], EMPTY)) ||
-             (mask(track[i - 1][j], EMPTY) && mask(track[i + 1][j], WALL) && mask(track[i][j - 1], WALL) && mask(track[i][j + 1], EMPTY)) ||
-             (mask(track[i - 1][j], EMPTY) && mask(track[i + 1][j], WALL) && mask(track[i][j - 1], EMPTY) && mask(track[i][j + 1], WALL)) ||
-             (mask(track[i - 1][j], WALL) && mask(track[i + 1][j], EMPTY) && mask(track[i][j - 1], EMPTY) && mask(track[i][j + 1], WALL)))){
-          track[i][j] = INIT;
+    TrackGrid grid = new TrackGrid(track);
+    cutCorners(grid);
+    grid.copyTo(track);
+  }
+  /**
+   * Reduces the sharpness of the corners on a scaled track, see 
+   * {@link RaceTrackGame#cutCorners(int[][])}.
+   * @param track to be maintained
+   */
+  public static void cutCorners(TrackGrid track) {
+    for (int i = 1; i < track.n - 1; i++) {
+      for (int j = 1; j < track.m - 1; j++) {
+        if (track.mask(i, j, WALL) &&
+            ((track.mask(i - 1, j, WALL) && track.mask(i + 1, j, EMPTY) && track.mask(i, j - 1, WALL) && track.mask(i, j + 1, EMPTY)) ||
+             (track.mask(i - 1, j, EMPTY) && track.mask(i + 1, j, WALL) && track.mask(i, j - 1, WALL) && track.mask(i, j + 1, EMPTY)) ||
+             (track.mask(i - 1, j, EMPTY) && track.mask(i + 1, j, WALL) && track.mask(i, j - 1, EMPTY) && track.mask(i, j + 1, WALL)) ||
+             (track.mask(i - 1, j, WALL) && track.mask(i + 1, j, EMPTY) && track.mask(i, j - 1, EMPTY) && track.mask(i, j + 1, WALL)))){
+          track.set(i, j, INIT);
         }
       }
     }
@@ -338,46 +500,93 @@ public class RaceTrackGame implements Game<RaceTrackPlayer, Direction>, Drawable
    * @return list of the added coins
    */
   public static Coin[] addCoins(int[][] track, int numCoins, int scale, Random random, List<PathCell> path) {
+    TrackGrid grid = new TrackGrid(track);
+    Coin[] coins = addCoins(grid, numCoins, scale, random, path);
+    grid.copyTo(track);
+    return coins;
+  }
+  /**
+   * Adds the specified number of coins to the specified track, see 
+   * {@link RaceTrackGame#addCoins(int[][], int, int, Random, List)}.
+   * @param track coins to be placed on
+   * @param numCoins number of coins to be added
+   * @param scale to avoid the start and finish parts of the track
+   * @param random random number generator
+   * @param path used to get the values of the coins
+   * @return list of the added coins
+   * @throws IllegalArgumentException if there is no empty cell for the coins
+   */
+  public static Coin[] addCoins(TrackGrid track, int numCoins, int scale, Random random, List<PathCell> path) {
     Coin[] coins = new Coin[numCoins];
+    if (numCoins == 0) {
+      return coins;
+    }
+    // a coin does not clear the empty flag, so the number of the candidate 
+    // cells does not change while placing
+    int candidates = 0;
+    for (int i = scale; i < track.n; i++) {
+      for (int j = scale; j < track.m; j++) {
+        if (track.mask(i, j, EMPTY)) {
+          candidates++;
+        }
+      }
+    }
+    if (candidates == 0) {
+      throw new IllegalArgumentException("no empty cell for the coins on the track");
+    }
+    int[] distances = pathDistances(track, path);
     int addedCoins = 0;
     while (numCoins != addedCoins) {
-      int i = scale + random.nextInt(track.length - scale);
-      int j = scale + random.nextInt(track[i].length - scale);
-      if (mask(track[i][j], EMPTY)) {
-        track[i][j] |= COIN;
-        coins[addedCoins] = new Coin(i, j, 3 * distance(i, j, path));
+      int i = scale + random.nextInt(track.n - scale);
+      int j = scale + random.nextInt(track.m - scale);
+      if (track.mask(i, j, EMPTY)) {
+        track.or(i, j, COIN);
+        coins[addedCoins] = new Coin(i, j, 3 * distances[track.index(i, j)]);
         addedCoins ++;
       }
     }
     return coins;
   }
   /**
-   * Returns the minimal distance (manhattan) between the specified coordinates 
-   * and the cells of the specified path.
-   * @param i row coordinate
-   * @param j column coordinate
-   * @param path distance measured to
-   * @return minimal distance to the path
-   */
-  private static int distance(int i, int j, List<PathCell> path) {
-    return distance(new Cell(i, j), path);
-  }
-  /**
-   * Returns the minimal distance (manhattan) between the specified cell and 
-   * the cells of the specified path.
-   * @param cell distance measured from
-   * @param path distance measured to
-   * @return minimal distance to the path
+   * Returns the minimal distance (manhattan) between the cells of the 
+   * specified track and the cells of the specified path. The distances are 
+   * computed by a forward and a backward scan of the track (L1 distance 
+   * transform), the result is a row-major array (see {@link TrackGrid#index(int, int)}).
+   * @param track distances measured on
+   * @param path distances measured to
+   * @return minimal distances to the path
    */
-  private static int distance(Cell cell, List<PathCell> path) {
-    int minDist = Integer.MAX_VALUE;
+  public static int[] pathDistances(TrackGrid track, List<? extends Cell> path) {
+    int n = track.n;
+    int m = track.m;
+    int[] distances = new int[track.size()];
+    Arrays.fill(distances, Integer.MAX_VALUE / 2);
     for (Cell c : path) {
-      int dist = manhattanDistance(cell, c);
-      if (dist < minDist) {
-        minDist = dist;
+      distances[track.index(c.i, c.j)] = 0;
+    }
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < m; j++) {
+        int idx = i * m + j;
+        if (0 < i && distances[idx - m] + 1 < distances[idx]) {
+          distances[idx] = distances[idx - m] + 1;
+        }
+        if (0 < j && distances[idx - 1] + 1 < distances[idx]) {
+          distances[idx] = distances[idx - 1] + 1;
+        }
+      }
+    }
+    for (int i = n - 1; 0 <= i; i--) {
+      for (int j = m - 1; 0 <= j; j--) {
+        int idx = i * m + j;
+        if (i < n - 1 && distances[idx + m] + 1 < distances[idx]) {
+          distances[idx] = distances[idx + m] + 1;
+        }
+        if (j < m - 1 && distances[idx + 1] + 1 < distances[idx]) {
+          distances[idx] = distances[idx + 1] + 1;
+        }
       }
     }
-    return minDist;
+    return distances;
   }
   /**
    * Adds the specified path to the specified track by marking the cells of the 
@@ -398,10 +607,22 @@ public class RaceTrackGame implements Game<RaceTrackPlayer, Direction>, Drawable
    * @param with replaced with
    */
   public static void replace(int[][] track, int what, int with) {
-    for (int i = 0; i < track.length - 1; i++) {
-      for (int j = 0; j < track[i].length - 1; j++) {
-        if (track[i][j] == what) {
-          track[i][j] = with;
+    TrackGrid grid = new TrackGrid(track);
+    replace(grid, what, with);
+    grid.copyTo(track);
+  }
+  /**
+   * Replaces cells of the track contain the specified value with the specified
+   * other value (the last row and column are kept as they are).
+   * @param track to be checked
+   * @param what to be replaced
+   * @param with replaced with
+   */
+  public static void replace(TrackGrid track, int what, int with) {
+    for (int i = 0; i < track.n - 1; i++) {
+      for (int j = 0; j < track.m - 1; j++) {
+        if (track.get(i, j) == what) {
+          track.set(i, j, with);
         }
       }
     }
@@ -425,29 +646,58 @@ public class RaceTrackGame implements Game<RaceTrackPlayer, Direction>, Drawable
    * @return path from the start to a finish
    */
   public static List<PathCell> BFS(int i, int j, int[][] track) {
-    LinkedList<PathCell> path = new LinkedList<PathCell>();
-    LinkedList<PathCell> open = new LinkedList<PathCell>();
-    LinkedList<PathCell> close = new LinkedList<PathCell>();
-    PathCell current = new PathCell(i, j, null);
-    open.add(current);
-    while (!open.isEmpty()) {
-      current = open.pollFirst();
-      if (mask(track[current.i][current.j], FINISH)) {
+    return BFS(i, j, new TrackGrid(track));
+  }
+  /**
+   * Performs a breadth-first-search from the specified position on the 
+   * specified track while one of a {@link RaceTrackGame#FINISH} cell has been
+   * reached.
+   * @param i row index of start
+   * @param j column index of start
+   * @param track to be searched on
+   * @return path from the start to a finish
+   */
+  public static List<PathCell> BFS(int i, int j, TrackGrid track) {
+    // every cell is queued at most once, so the queue can not overrun
+    int[] queue = new int[track.size()];
+    int[] parents = new int[track.size()];
+    BitSet visited = new BitSet(track.size());
+    int head = 0;
+    int tail = 0;
+    int current = track.index(i, j);
+    parents[current] = -1;
+    visited.set(current);
+    queue[tail++] = current;
+    while (head != tail) {
+      current = queue[head++];
+      int ci = current / track.m;
+      int cj = current % track.m;
+      if (track.mask(ci, cj, FINISH)) {
         break;
       }
-      close.add(current);
       for (int idx = 0; idx < DIRECTIONS.length; idx++) {
-        i = current.i + DIRECTIONS[idx].i;
-        j = current.j + DIRECTIONS[idx].j;
-        PathCell neighbor = new PathCell(i, j, current);
-        if (isNotWall(i, j, track) && !close.contains(neighbor) && !open.contains(neighbor)) {
-          open.add(neighbor);
+        i = ci + DIRECTIONS[idx].i;
+        j = cj + DIRECTIONS[idx].j;
+        if (isNotWall(i, j, track)) {
+          int neighbor = track.index(i, j);
+          if (!visited.get(neighbor)) {
+            visited.set(neighbor);
+            parents[neighbor] = current;
+            queue[tail++] = neighbor;
+          }
         }
       }
     }
-    while (current != null) {
-      path.addFirst(current);
-      current = current.parent;
+    int length = 0;
+    for (int idx = current; idx != -1; idx = parents[idx]) {
+      queue[length++] = idx;
+    }
+    List<PathCell> path = new ArrayList<PathCell>(length);
+    PathCell parent = null;
+    while (0 < length) {
+      int idx = queue[--length];
+      parent = new PathCell(idx / track.m, idx % track.m, parent);
+      path.add(parent);
     }
     return path;
   }
@@ -462,6 +712,17 @@ public class RaceTrackGame implements Game<RaceTrackPlayer, Direction>, Drawable
   public static boolean isNotWall(int i, int j, int[][] track) {
     return 0 <= i && i < track.length && 0 <= j && j < track[i].length && !mask(track[i][j], WALL);
   }
+  /**
+   * Returns true, iff the cell of the specified track is not a wall at the 
+   * specified position.
+   * @param i row index of the position to be checked
+   * @param j column index of the position to be checked
+   * @param track to be checked on
+   * @return true, if not a wall
+   */
+  public static boolean isNotWall(int i, int j, TrackGrid track) {
+    return track.contains(i, j) && !track.mask(i, j, WALL);
+  }
   /**
    * Returns true, iff the specified cell of the specified track is not a wall.
    * @param cell to be checked
@@ -471,6 +732,15 @@ public class RaceTrackGame implements Game<RaceTrackPlayer, Direction>, Drawable
   public static boolean isNotWall(Cell cell, int[][] track) {
     return isNotWall(cell.i, cell.j, track);
   }
+  /**
+   * Returns true, iff the specified cell of the specified track is not a wall.
+   * @param cell to be checked
+   * @param track to be checked on
+   * @return true, if not a wall
+   */
+  public static boolean isNotWall(Cell cell, TrackGrid track) {
+    return isNotWall(cell.i, cell.j, track);
+  }
   /**
    * Returns true, iff none of the cells of specified list are walls on the 
    * specified track.
@@ -582,17 +852,31 @@ public class RaceTrackGame implements Game<RaceTrackPlayer, Direction>, Drawable
     int dj = to.j - from.j < 0 ? -1 : 1;
     for (int i = from.i; i != to.i + di; i += di) {
       for (int j = from.j; j != to.j + dj; j += dj) {
-        int sides = side(from.i * 2 + 1, from.j * 2 + 1, to.i * 2 + 1, to.j * 2 + 1, i * 2, j * 2) + 
-                    side(from.i * 2 + 1, from.j * 2 + 1, to.i * 2 + 1, to.j * 2 + 1, i * 2 + 2, j * 2) + 
-                    side(from.i * 2 + 1, from.j * 2 + 1, to.i * 2 + 1, to.j * 2 + 1, i * 2, j * 2 + 2) + 
-                    side(from.i * 2 + 1, from.j * 2 + 1, to.i * 2 + 1, to.j * 2 + 1, i * 2 + 2, j * 2 + 2);
-        if (sides != 4 && sides != -4) {
+        if (isCrossed(from.i, from.j, to.i, to.j, i, j)) {
           result.add(new Cell(i, j));
         }
       }
     }
     return result;
   }
+  /**
+   * Returns true, iff the specified cell is crossed or touched (its corner is 
+   * on the line) by the line between the centers of the specified cells.
+   * @param fromI row index of the line start
+   * @param fromJ column index of the line start
+   * @param toI row index of the line end
+   * @param toJ column index of the line end
+   * @param i row index of the cell to be checked
+   * @param j column index of the cell to be checked
+   * @return true, if crossed or touched
+   */
+  public static boolean isCrossed(int fromI, int fromJ, int toI, int toJ, int i, int j) {
+    int sides = side(fromI * 2 + 1, fromJ * 2 + 1, toI * 2 + 1, toJ * 2 + 1, i * 2, j * 2) + 
+                side(fromI * 2 + 1, fromJ * 2 + 1, toI * 2 + 1, toJ * 2 + 1, i * 2 + 2, j * 2) + 
+                side(fromI * 2 + 1, fromJ * 2 + 1, toI * 2 + 1, toJ * 2 + 1, i * 2, j * 2 + 2) + 
+                side(fromI * 2 + 1, fromJ * 2 + 1, toI * 2 + 1, toJ * 2 + 1, i * 2 + 2, j * 2 + 2);
+    return sides != 4 && sides != -4;
+  }
   /**
    * Moves the specified player on the specified track using its state and the 
    * specified direction. The method checks the wall collisions and updates the 
@@ -638,6 +922,83 @@ public class RaceTrackGame implements Game<RaceTrackPlayer, Direction>, Drawable
     }*/
     player.step(direction);
   }
+  /**
+   * Moves the specified player on the specified track using its state and the 
+   * specified direction, see {@link RaceTrackGame#move(RaceTrackPlayer, Direction, int[][])}. 
+   * The state is moved packed (see {@link PackedState}), if it fits.
+   * @param player to be moved
+   * @param direction direction to be applied
+   * @param track to be moved on
+   */
+  public static void move(RaceTrackPlayer player, Direction direction, TrackGrid track) {
+    PlayerState state = player.state;
+    if (PackedState.fits(track) && PackedState.fits(state.i, state.j, state.vi + direction.i, state.vj + direction.j)) {
+      PackedState.unpack(move(PackedState.pack(state), direction, track), state);
+      return;
+    }
+    int i = state.i + state.vi + direction.i;
+    int j = state.j + state.vj + direction.j;
+    // check wall collision
+    Cell cell = null;
+    for (Cell c : line8connect(toCell(player), new Cell(i, j))) {
+      if (isNotWall(c, track)) {
+        cell = c;
+      } else {
+        direction = null;
+        break;
+      }
+    }
+    // wall collision has been occurred
+    if (direction == null) {
+      state.vi = cell.i - state.i;
+      state.vj = cell.j - state.j;
+      direction = new Direction(0, 0);
+    }
+    player.step(direction);
+  }
+  /**
+   * Returns the state of a player after moving from the specified state by 
+   * the specified direction on the specified track, see {@link RaceTrackGame#move(RaceTrackPlayer, Direction, int[][])}. 
+   * The states are packed by {@link PackedState}, the method does not 
+   * allocate objects.
+   * @param state packed state of the player before the move
+   * @param direction direction to be applied
+   * @param track to be moved on
+   * @return packed state of the player after the move
+   */
+  public static long move(long state, Direction direction, TrackGrid track) {
+    int fromI = PackedState.i(state);
+    int fromJ = PackedState.j(state);
+    int vi = PackedState.vi(state) + direction.i;
+    int vj = PackedState.vj(state) + direction.j;
+    int di = Math.abs(vi);
+    int dj = Math.abs(vj);
+    int ii = 0 < vi ? 1 : -1;
+    int ij = 0 < vj ? 1 : -1;
+    int e = di - dj;
+    int i = fromI;
+    int j = fromJ;
+    int lastI = fromI;
+    int lastJ = fromJ;
+    // check wall collision, the player stops at the last free cell
+    for (int k = 0; k < Math.max(di, dj) + 1; k++) {
+      if (!isNotWall(i, j, track)) {
+        return PackedState.pack(lastI, lastJ, lastI - fromI, lastJ - fromJ);
+      }
+      lastI = i;
+      lastJ = j;
+      int e2 = 2 * e;
+      if (e2 < di) {
+        j = j + ij;
+        e = e + di;
+      }
+      if (-dj < e2) {
+        i = i + ii;
+        e = e - dj;
+      }
+    }
+    return PackedState.pack(fromI + vi, fromJ + vj, vi, vj);
+  }
   /**
    * Returns the manhattan distance between the specified positions.
    * @param a position a
@@ -697,10 +1058,10 @@ public class RaceTrackGame implements Game<RaceTrackPlayer, Direction>, Drawable
   @Override
   public String toString() {
     StringBuffer sb = new StringBuffer();
-    for (int i = 0; i < track.length; i++) {
-      for (int j = 0; j < track[i].length; j++) {
+    for (int i = 0; i < track.n; i++) {
+      for (int j = 0; j < track.m; j++) {
         int mask = 1 << VIEW.size();
-        while (0 < mask && 0 == (mask & track[i][j])) {
+        while (0 < mask && 0 == (mask & track.get(i, j))) {
           mask >>>= 1;
         }
         sb.append(VIEW.get(mask));
@@ -723,14 +1084,22 @@ public class RaceTrackGame implements Game<RaceTrackPlayer, Direction>, Drawable
       } else {
         clazz = Class.forName(playerClasses[i]).asSubclass(RaceTrackPlayer.class);
       }
-      Constructor<? extends RaceTrackPlayer> constructor =  clazz.getConstructor(PlayerState.class, Random.class, int[][].class, Coin[].class, int.class);
       PlayerState state = new PlayerState(playerStart.i, playerStart.j, 0, 0);
       states[i] = state;
       Coin[] coinsCopy = new Coin[numCoins];
       for (int ci = 0; ci < numCoins; ci++) {
         coinsCopy[ci] = new Coin(coins[ci]);
       }
-      result.add(new Pair<Constructor<? extends RaceTrackPlayer>, Object[]>(constructor, new Object[] {state.clone(), new Random(seed), Utils.copy(track), coinsCopy, i}));
+      Constructor<? extends RaceTrackPlayer> constructor;
+      Object[] params;
+      try {
+        constructor = clazz.getConstructor(PlayerState.class, Random.class, int[][].class, Coin[].class, int.class, TrackAnalysis.class);
+        params = new Object[] {state.clone(), new Random(seed), track.toArray(), coinsCopy, i, getAnalysis()};
+      } catch (NoSuchMethodException e) {
+        constructor = clazz.getConstructor(PlayerState.class, Random.class, int[][].class, Coin[].class, int.class);
+        params = new Object[] {state.clone(), new Random(seed), track.toArray(), coinsCopy, i};
+      }
+      result.add(new Pair<Constructor<? extends RaceTrackPlayer>, Object[]>(constructor, params));
     }
     return result;
   }
@@ -781,31 +1150,61 @@ public class RaceTrackGame implements Game<RaceTrackPlayer, Direction>, Drawable
       remainingTimes[currentPlayer] = -1;
       return;
     }
-    Cell currentPosition = toCell(player);
-    track[currentPosition.i][currentPosition.j] ^= PLAYERS[player.color];
-    track[currentPosition.i][currentPosition.j] |= TRACE;
+    int fromI = player.state.i;
+    int fromJ = player.state.j;
+    track.xor(fromI, fromJ, PLAYERS[player.color]);
+    track.or(fromI, fromJ, TRACE);
     
     // move and check wall collision and update player velocity and direction
-    move(player, action, track);
-    for (Cell cell : line8connect(currentPosition, toCell(player))) {
-      track[cell.i][cell.j] |= TRACE;
+    int toI = fromI + player.state.vi + action.i;
+    int toJ = fromJ + player.state.vj + action.j;
+    int length = walk(fromI, fromJ, toI, toJ, true);
+    if (length <= Math.max(Math.abs(toI - fromI), Math.abs(toJ - fromJ))) {
+      // wall collision, the line to the last free cell is not a prefix of the 
+      // walked one, so it has to be drawn again for the trace
+      int last = line[length - 1];
+      player.state.vi = last / track.m - fromI;
+      player.state.vj = last % track.m - fromJ;
+      player.step(DIRECTIONS[0]);
+      length = walk(fromI, fromJ, player.state.i, player.state.j, false);
+    } else {
+      player.step(action);
+    }
+    for (int idx = 0; idx < length; idx++) {
+      track.set(line[idx], track.get(line[idx]) | TRACE);
+    }
+    DirtyCells dirty = this.dirty;
+    if (dirty != null) {
+      dirty.add(track.index(fromI, fromJ));
+      dirty.add(line, length);
     }
     
-    // check other collisions
-    for (Cell cell : lineCrossing(currentPosition, toCell(player))) {
-      //track[cell.i][cell.j] |= TRACE;
-      if (mask(track[cell.i][cell.j], COIN)) {
-        track[cell.i][cell.j] ^= COIN;
-        for (Coin coin : coins) {
-          if (cell.same(coin)) {
-            scores[player.color] -= coin.value;
+    // check other collisions (only the coin cells are checked for crossing)
+    toI = player.state.i;
+    toJ = player.state.j;
+    int di = toI - fromI < 0 ? -1 : 1;
+    int dj = toJ - fromJ < 0 ? -1 : 1;
+    for (int i = fromI; i != toI + di; i += di) {
+      for (int j = fromJ; j != toJ + dj; j += dj) {
+        if (track.mask(i, j, COIN) && isCrossed(fromI, fromJ, toI, toJ, i, j)) {
+          track.xor(i, j, COIN);
+          if (dirty != null) {
+            dirty.add(track.index(i, j));
+          }
+          for (Coin coin : coins) {
+            if (coin.i == i && coin.j == j) {
+              scores[player.color] -= coin.value;
+            }
           }
         }
       }
     }
     
     // update game state
-    track[player.state.i][player.state.j] |= PLAYERS[player.color];
+    track.or(player.state.i, player.state.j, PLAYERS[player.color]);
+    if (dirty != null) {
+      dirty.add(track.index(player.state.i, player.state.j));
+    }
     scores[player.color]++;
     remainingTimes[player.color] -= time;
     states[currentPlayer].set(player.state);
@@ -816,59 +1215,211 @@ public class RaceTrackGame implements Game<RaceTrackPlayer, Direction>, Drawable
       iteration++;
     }
   }
+  /**
+   * Stores the indices of the cells of the line between the specified points 
+   * to the line buffer (see {@link RaceTrackGame#line8connect(Cell, Cell)}), 
+   * and returns the number of the stored cells. If the walls are checked, the 
+   * line is stopped before its first wall (or off track) cell.
+   * @param fromI row index of the line start
+   * @param fromJ column index of the line start
+   * @param toI row index of the line end
+   * @param toJ column index of the line end
+   * @param walls the line stops at the walls
+   * @return number of the cells in the buffer
+   */
+  private int walk(int fromI, int fromJ, int toI, int toJ, boolean walls) {
+    int di = Math.abs(toI - fromI);
+    int dj = Math.abs(toJ - fromJ);
+    int length = Math.max(di, dj) + 1;
+    if (line.length < length) {
+      line = new int[Math.max(length, 2 * line.length)];
+    }
+    int ii = fromI < toI ? 1 : -1;
+    int ij = fromJ < toJ ? 1 : -1;
+    int e = di - dj;
+    int i = fromI;
+    int j = fromJ;
+    
+    for (int k = 0; k < length; k++) {
+      if (walls && !isNotWall(i, j, track)) {
+        return k;
+      }
+      line[k] = track.index(i, j);
+      int e2 = 2 * e;
+      if (e2 < di) {
+        j = j + ij;
+        e = e + di;
+      }
+      if (-dj < e2) {
+        i = i + ii;
+        e = e - dj;
+      }
+    }
+    return length;
+  }
   @Override
   public long getRemainingTime(RaceTrackPlayer player) {
     return player == null ? -1 : remainingTimes[player.color];
   }
   @Override
   public boolean isFinished() {
-    return maxIterations < iteration || remainingTimes[currentPlayer] <= 0 || mask(track[players[currentPlayer].state.i][players[currentPlayer].state.j], FINISH);
+    return maxIterations < iteration || remainingTimes[currentPlayer] <= 0 || track.mask(players[currentPlayer].state.i, players[currentPlayer].state.j, FINISH);
   }
   @Override
   public double getScore(RaceTrackPlayer player) {
-    return player == null || remainingTimes[player.color] <= 0 ? scale * track.length * track[0].length : scores[player.color];
+    return player == null || remainingTimes[player.color] <= 0 ? scale * track.n * track.m : scores[player.color];
   }
   @Override
   public Class<? extends Action> getActionClass() {
     return Direction.class;
   }
+  /**
+   * Encodes the specified direction by its index in 
+   * {@link RaceTrackGame#DIRECTIONS} plus one, null is encoded as zero.
+   */
+  @Override
+  public int encode(Direction action) {
+    if (action == null) {
+      return 0;
+    }
+    for (int idx = 0; idx < DIRECTIONS.length; idx++) {
+      if (DIRECTIONS[idx].same(action)) {
+        return idx + 1;
+      }
+    }
+    throw new IllegalArgumentException("unknown direction: " + action);
+  }
+  @Override
+  public Direction decode(int code) {
+    return code == 0 ? null : DIRECTIONS[code - 1];
+  }
+  /**
+   * Saves the cells of the track (as shorts), the states, scores and remaining times of 
+   * the players, the current player and the iteration.
+   */
+  @Override
+  public void saveState(DataOutput out) throws IOException {
+    out.writeInt(track.n);
+    out.writeInt(track.m);
+    out.writeInt(players.length);
+    for (int idx = 0; idx < track.size(); idx++) {
+      out.writeShort(track.get(idx));
+    }
+    for (int idx = 0; idx < players.length; idx++) {
+      out.writeInt(states[idx].i);
+      out.writeInt(states[idx].j);
+      out.writeInt(states[idx].vi);
+      out.writeInt(states[idx].vj);
+      out.writeInt(scores[idx]);
+      out.writeLong(remainingTimes[idx]);
+    }
+    out.writeInt(currentPlayer);
+    out.writeInt(iteration);
+  }
+  @Override
+  public void loadState(DataInput in) throws IOException {
+    if (in.readInt() != track.n || in.readInt() != track.m || in.readInt() != players.length) {
+      throw new IOException("the state belongs to an other game");
+    }
+    for (int idx = 0; idx < track.size(); idx++) {
+      track.set(idx, in.readUnsignedShort());
+    }
+    if (dirty != null) {
+      dirty.invalidate();
+    }
+    for (int idx = 0; idx < players.length; idx++) {
+      states[idx].i = in.readInt();
+      states[idx].j = in.readInt();
+      states[idx].vi = in.readInt();
+      states[idx].vj = in.readInt();
+      scores[idx] = in.readInt();
+      remainingTimes[idx] = in.readLong();
+      if (players[idx] != null) {
+        players[idx].state.set(states[idx]);
+      }
+    }
+    currentPlayer = in.readInt();
+    iteration = in.readInt();
+  }
+  /**
+   * Returns the analysis of the track, it is computed at the first call and 
+   * shared by the players (it depends only on the walls and the finish, 
+   * those do not change during the game).
+   * @return analysis of the track
+   */
+  public synchronized TrackAnalysis getAnalysis() {
+    if (analysis == null) {
+      analysis = new TrackAnalysis(track, playerStart, coins);
+    }
+    return analysis;
+  }
+  /**
+   * Returns the canvas of the game, it is created at the first call, so 
+   * headless games (e.g. verified replays) do not create GUI components. 
+   * The canvas is painted by the renderer of the game.
+   * @return canvas of the game
+   */
+  public synchronized RaceTrackCanvas getCanvas() {
+    if (canvas == null) {
+      canvas = new RaceTrackCanvas(track.n, track.m, getRenderer(), this);
+    }
+    return canvas;
+  }
+  /**
+   * Returns the renderer of the track, it is created at the first call (the 
+   * changed cells are marked from then on). The cells are as large as on the 
+   * canvas, but at least one pixel.
+   * @return renderer of the track
+   */
+  public synchronized TrackRenderer getRenderer() {
+    if (renderer == null) {
+      Color background = UIManager.getColor("Panel.background");
+      dirty = new DirtyCells(track);
+      renderer = new TrackRenderer(track, dirty, Math.max(1, RaceTrackCanvas.HEIGHT / track.n), background == null ? Color.white : background);
+    }
+    return renderer;
+  }
+  @Override
+  public Dimension getRenderSize() {
+    TrackRenderer renderer = getRenderer();
+    return new Dimension(renderer.width, renderer.height);
+  }
+  @Override
+  public void render(Graphics graphics) {
+    getRenderer().paint(graphics);
+  }
   @Override
   public Frame getFrame() {
     String iconPath = "/game/engine/ui/resources/icon-game.png";
-    return new GameFrame("RaceTrack", iconPath, canvas);
+    return new GameFrame("RaceTrack", iconPath, getCanvas());
   }
   @Override
   public List<GameObject> getGameObjects() {
+    RaceTrackCanvas canvas = getCanvas();
     LinkedList<GameObject> gos = new LinkedList<GameObject>();
-    for (int i = 0; i < track.length; i++) {
-      for (int j = 0; j < track[i].length; j++) {
+    for (int i = 0; i < track.n; i++) {
+      for (int j = 0; j < track.m; j++) {
+        int value = track.get(i, j);
         int x = (int) Math.round(canvas.multiplier * (j + 0.1));
         int y = (int) Math.round(canvas.multiplier * (i + 0.1));
         int w = (int) Math.round(canvas.multiplier * 0.8);
         int h = (int) Math.round(canvas.multiplier * 0.8);
-        if (mask(track[i][j], WALL)) {
-          gos.add(new FilledRectangleObject(x, y, w, h, Color.darkGray));
-        }
-        if (mask(track[i][j], TRACE)) {
-          gos.add(new FilledOvalObject(x, y, w, h, Color.lightGray));
+        if (mask(value, WALL)) {
+          gos.add(new FilledRectangleObject(x, y, w, h, TrackRenderer.WALL_COLOR));
         }
-        if (mask(track[i][j], FINISH)) {
-          gos.add(new FilledRectangleObject(x, y, w, h, Color.pink));
+        if (mask(value, TRACE)) {
+          gos.add(new FilledOvalObject(x, y, w, h, TrackRenderer.TRACE_COLOR));
         }
-        if (mask(track[i][j], COIN)) {
-          gos.add(new FilledOvalObject(x, y, w, h, new Color(244, 180, 0)));
+        if (mask(value, FINISH)) {
+          gos.add(new FilledRectangleObject(x, y, w, h, TrackRenderer.FINISH_COLOR));
         }
-        if (mask(track[i][j], PLAYERS[0])) {
-          gos.add(new FilledOvalObject(x, y, w, h, new Color(219, 68, 55)));
+        if (mask(value, COIN)) {
+          gos.add(new FilledOvalObject(x, y, w, h, TrackRenderer.COIN_COLOR));
         }
-        if (mask(track[i][j], PLAYERS[1])) {
-          gos.add(new FilledOvalObject(x, y, w, h, new Color(15, 157, 88)));
-        }
-        if (mask(track[i][j], PLAYERS[2])) {
-          gos.add(new FilledOvalObject(x, y, w, h, new Color(66, 133, 244)));
-        }
-        if (mask(track[i][j], PLAYERS[3])) {
-          gos.add(new FilledOvalObject(x, y, w, h, Color.gray));
+        for (int color = 0; color < PLAYERS.length; color++) {
+          if (mask(value, PLAYERS[color])) {
+            gos.add(new FilledOvalObject(x, y, w, h, TrackRenderer.PLAYER_COLORS[color]));
+          }
         }
       }
     }
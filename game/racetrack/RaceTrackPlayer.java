@@ -25,6 +25,7 @@ import game.engine.Player;
 import game.engine.utils.Pair;
 import game.racetrack.utils.Coin;
 import game.racetrack.utils.PlayerState;
+import game.racetrack.utils.TrackAnalysis;
 
 /**
  * Represents a player of the {@link RaceTrackGame} game.
@@ -40,6 +41,8 @@ public abstract class RaceTrackPlayer implements Player<Direction> {
   public final Coin[] coins;
   /** the color of the player */
   public final int color;
+  /** analysis of the track shared by the players, null if the player was not constructed with it */
+  public final TrackAnalysis analysis;
   /**
    * Creates a player and sets the specified values.
    * @param state position and velocity
@@ -49,11 +52,27 @@ public abstract class RaceTrackPlayer implements Player<Direction> {
    * @param color player color
    */
   public RaceTrackPlayer(PlayerState state, Random random, int[][] track, Coin[] coins, int color) {
+    this(state, random, track, coins, color, null);
+  }
+  /**
+   * Creates a player and sets the specified values. The game constructs the 
+   * players by this constructor, if the subclass has one with the same 
+   * parameters; the analysis is computed once by the game, outside the 
+   * construction time of the players.
+   * @param state position and velocity
+   * @param random random generator
+   * @param track game track
+   * @param coins list of coins on the map
+   * @param color player color
+   * @param analysis read-only analysis of the track
+   */
+  public RaceTrackPlayer(PlayerState state, Random random, int[][] track, Coin[] coins, int color, TrackAnalysis analysis) {
     this.state = state;
     this.random = random;
     this.track = track;
     this.coins = coins;
     this.color = color;
+    this.analysis = analysis;
   }
   /**
    * Updates the state of the player and applies the specified modification on 
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+
+package game.racetrack.bench;
+
+import java.lang.reflect.Field;
+
+import game.engine.bench.Benchmark;
+import game.racetrack.Direction;
+import game.racetrack.RaceTrackGame;
+import game.racetrack.players.AStarPlayer;
+import game.racetrack.search.AStar;
+import game.racetrack.utils.PackedState;
+import game.racetrack.utils.PlayerState;
+import game.racetrack.utils.TrackAnalysis;
+import game.racetrack.utils.TrackGrid;
+
+/**
+ * Measures the {@link AStar} search from the start of generated tracks (scale 
+ * 10, so the largest default track is 410 x 410 cells). The plans are 
+ * checked by replaying them with {@link RaceTrackGame#move(long, Direction, TrackGrid)}, 
+ * and on the smaller tracks their lengths are compared with the ones of a 
+ * search without heuristic (Dijkstra, if it fits in the node limit). The search with the node limit of the 
+ * {@link AStarPlayer} (that follows the partial plans) is measured too.
+ */
+public final class AStarBenchmark {
+  /** the search without heuristic is only run on tracks up to this number of cells */
+  private static final int DIJKSTRA_LIMIT = 50000;
+  
+  private AStarBenchmark() {
+  }
+  
+  /**
+   * Returns the private track of the game.
+   * @param game to be checked
+   * @return track of the game
+   * @throws Exception reflection
+   */
+  private static TrackGrid track(RaceTrackGame game) throws Exception {
+    Field field = RaceTrackGame.class.getDeclaredField("track");
+    field.setAccessible(true);
+    return (TrackGrid) field.get(game);
+  }
+  
+  /**
+   * Returns true, iff the specified plan leads from the specified state to a 
+   * finish cell.
+   * @param plan to be checked
+   * @param start state of the player
+   * @param track moves are made on
+   * @return true, if the plan reaches the finish
+   */
+  private static boolean reaches(Direction[] plan, PlayerState start, TrackGrid track) {
+    long state = PackedState.pack(start);
+    for (Direction direction : plan) {
+      state = RaceTrackGame.move(state, direction, track);
+    }
+    return track.mask(PackedState.i(state), PackedState.j(state), RaceTrackGame.FINISH);
+  }
+  
+  /**
+   * Entry point of the benchmark.
+   * @param args sizes of the square mazes (optional)
+   * @throws Exception anything the game throws
+   */
+  public static void main(String[] args) throws Exception {
+    int[] sizes = new int[] {11, 21, 41};
+    if (0 < args.length) {
+      sizes = new int[args.length];
+      for (int idx = 0; idx < args.length; idx++) {
+        sizes[idx] = Integer.parseInt(args[idx]);
+      }
+    }
+    for (int size : sizes) {
+      for (String clean : new String[] {"0.2", "1.0"}) {
+        String[] params = new String[] {"" + size, "" + size, "10", clean, "0", "" + size, "1000", "x"};
+        RaceTrackGame game = new RaceTrackGame(System.err, false, params);
+        TrackGrid track = track(game);
+        TrackAnalysis analysis = game.getAnalysis();
+        final PlayerState start = new PlayerState(5, 15, 0, 0);
+        final AStar search = new AStar(analysis);
+        String name = track.n + "x" + track.m + "." + clean;
+        
+        Direction[] plan = search.search(start);
+        if (plan != null && !reaches(plan, start, track)) {
+          throw new IllegalStateException("the plan does not reach the finish on track: " + name);
+        }
+        System.out.println("{\"name\":\"plan." + name + "\",\"turns\":" + (plan == null ? -1 : plan.length) + ",\"expanded\":" + search.getExpanded() + ",\"nodes\":" + search.getNodes() + "}");
+        if (plan != null && track.size() <= DIJKSTRA_LIMIT) {
+          AStar dijkstra = new AStar(analysis) {
+            @Override
+            protected int heuristic(int distance, int vi, int vj) {
+              return 0;
+            }
+          };
+          Direction[] optimal = dijkstra.search(start);
+          if (optimal != null && optimal.length != plan.length) {
+            throw new IllegalStateException("the plan is not optimal on track: " + name);
+          }
+          System.out.println("{\"name\":\"dijkstra." + name + "\",\"turns\":" + (optimal == null ? -1 : optimal.length) + ",\"expanded\":" + dijkstra.getExpanded() + "}");
+        }
+        System.out.println(Benchmark.run("astar." + name, 1, 3, new Benchmark.Operation() {
+          @Override
+          public void run() {
+            search.search(start);
+          }
+        }));
+        final AStar limited = new AStar(analysis, AStarPlayer.MAX_NODES);
+        System.out.println(Benchmark.run("limited." + name, 1, 5, new Benchmark.Operation() {
+          @Override
+          public void run() {
+            if (limited.search(start) == null) {
+              limited.getPartialPlan();
+            }
+          }
+        }));
+      }
+    }
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+package game.racetrack.bench;
+
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.zip.ZipOutputStream;
+
+import game.engine.bench.Benchmark;
+import game.engine.ui.FrameExporter;
+import game.engine.utils.Utils;
+import game.racetrack.RaceTrackGame;
+import game.racetrack.RaceTrackPlayer;
+import game.racetrack.ui.TrackRenderer;
+
+/**
+ * Measures the frames per second of the headless {@link TrackRenderer} on 
+ * tracks of different sizes: a frame is a turn of the player (see 
+ * {@link RenderBenchmark}) and the render into an image, then also the PNG 
+ * export of the frames by a {@link FrameExporter} into a discarded zip.
+ */
+public final class FrameRateBenchmark {
+  
+  /**
+   * Frame rate of a benchmark.
+   */
+  public static final class FrameRate {
+    /** name of the benchmark */
+    public final String name;
+    /** width of the frames */
+    public final int width;
+    /** height of the frames */
+    public final int height;
+    /** number of frames */
+    public final int frames;
+    /** frames per second */
+    public final double fps;
+    
+    private FrameRate(String name, Dimension size, int frames, double fps) {
+      this.name = name;
+      this.width = size.width;
+      this.height = size.height;
+      this.frames = frames;
+      this.fps = fps;
+    }
+    
+    @Override
+    public String toString() {
+      return Utils.jsonSerialize(this);
+    }
+  }
+  
+  private FrameRateBenchmark() {
+  }
+  
+  /**
+   * Returns the operation that plays a turn of the specified game and renders 
+   * it into an image of the specified exporter, or into the specified image, 
+   * if the exporter is null.
+   * @param game to be played
+   * @param exporter frames are submitted to, can be null
+   * @param image rendered into, if there is no exporter
+   * @param speed of the player
+   * @return operation
+   */
+  private static Benchmark.Operation frame(final RaceTrackGame game, final FrameExporter exporter, final BufferedImage image, final int speed) {
+    final RaceTrackPlayer player = game.getPlayers()[0];
+    final Random random = new Random(speed);
+    final int[] heading = new int[4];
+    final Dimension size = game.getRenderSize();
+    return new Benchmark.Operation() {
+      @Override
+      public void run() throws Exception {
+        game.setAction(player, MoveBenchmark.control(player.state, speed, random, heading), 0);
+        BufferedImage target = exporter == null ? image : exporter.acquire(size.width, size.height);
+        Graphics graphics = target.getGraphics();
+        game.render(graphics);
+        graphics.dispose();
+        if (exporter != null) {
+          exporter.submit(target);
+        }
+      }
+    };
+  }
+  
+  /**
+   * Entry point of the benchmark.
+   * @param args number of measured frames, speed of the player (optional)
+   * @throws Exception anything the game throws
+   */
+  public static void main(String[] args) throws Exception {
+    System.setProperty("java.awt.headless", "true");
+    int frames = args.length < 1 ? 500 : Integer.parseInt(args[0]);
+    int speed = args.length < 2 ? 4 : Integer.parseInt(args[1]);
+    int[][] sizes = new int[][] {{21, 41, 3}, {51, 51, 5}, {81, 101, 5}, {101, 201, 7}};
+    for (int[] size : sizes) {
+      String suffix = "." + size[0] + "x" + size[1] + "x" + size[2];
+      RaceTrackGame game = RenderBenchmark.game(size[0], size[1], size[2]);
+      Dimension dimension = game.getRenderSize();
+      BufferedImage image = new BufferedImage(dimension.width, dimension.height, BufferedImage.TYPE_INT_RGB);
+      Benchmark.Result render = Benchmark.run("render" + suffix, frames / 10, frames, frame(game, null, image, speed));
+      System.out.println(render);
+      System.out.println(new FrameRate("render" + suffix, dimension, frames, 1E9 / render.mean));
+      // the encoders run behind the turns, the rate is measured by the exporter
+      game = RenderBenchmark.game(size[0], size[1], size[2]);
+      FrameExporter exporter = new FrameExporter(new ZipOutputStream(OutputStream.nullOutputStream()));
+      Benchmark.Operation operation = frame(game, exporter, null, speed);
+      for (int i = 0; i < frames; i++) {
+        operation.run();
+      }
+      exporter.close();
+      System.out.println(new FrameRate("export" + suffix, dimension, exporter.getFrames(), exporter.getFps()));
+    }
+  }
+}
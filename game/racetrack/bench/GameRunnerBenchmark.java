@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+package game.racetrack.bench;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import game.engine.EngineOptions;
+import game.engine.GameResult;
+import game.engine.GameRunner;
+import game.engine.bench.Benchmark;
+import game.engine.log.ReplayIndex;
+import game.racetrack.RaceTrackGame;
+import game.racetrack.players.Agent;
+import game.racetrack.players.RandomPlayer;
+
+/**
+ * Measures the throughput of the {@link GameRunner} (games per second) by 1
+ * to 2 x (number of processors) threads. A batch of small race track games
+ * of different seeds is played at every thread count, the speedup is relative
+ * to one thread. The speedup is bounded by the number of processors (printed
+ * first), on a single processor the curve shows only the overhead of the
+ * concurrent engines. The gameplay logs of the batches are deleted.
+ */
+public final class GameRunnerBenchmark {
+
+  private GameRunnerBenchmark() {
+  }
+
+  /**
+   * Plays the specified number of games on the specified runner and deletes
+   * their logs.
+   * @param runner plays the games
+   * @param games number of games
+   * @param options settings of the engines
+   */
+  private static void batch(GameRunner runner, int games, EngineOptions options) {
+    List<CompletableFuture<GameResult>> results = new ArrayList<CompletableFuture<GameResult>>(games);
+    for (int idx = 0; idx < games; idx++) {
+      String[] params = new String[] {"21", "21", "3", "0.5", "30", "" + (idx + 1), "1000", RandomPlayer.class.getName(), Agent.class.getName()};
+      results.add(runner.submit(RaceTrackGame.class.getName(), params, options));
+    }
+    for (CompletableFuture<GameResult> result : results) {
+      File log = new File(result.join().logFile);
+      log.delete();
+      ReplayIndex.of(log).delete();
+    }
+  }
+
+  /**
+   * Entry point of the benchmark.
+   * @param args number of games of a batch, number of measured batches (optional)
+   * @throws Exception if a game has failed
+   */
+  public static void main(String[] args) throws Exception {
+    final int games = args.length < 1 ? 32 : Integer.parseInt(args[0]);
+    int iterations = args.length < 2 ? 3 : Integer.parseInt(args[1]);
+    int processors = Runtime.getRuntime().availableProcessors();
+    final EngineOptions options = EngineOptions.fromSystemProperties();
+    System.out.println("{\"name\":\"processors\",\"count\":" + processors + "}");
+    double single = 0;
+    for (int count = 1; count <= 2 * processors; count *= 2) {
+      final GameRunner runner = new GameRunner(count);
+      Benchmark.Result result = Benchmark.run("runner.g" + games + ".t" + count, 1, iterations, new Benchmark.Operation() {
+        @Override
+        public void run() {
+          batch(runner, games, options);
+        }
+      });
+      runner.shutdown();
+      if (count == 1) {
+        single = result.mean;
+      }
+      System.out.println(result);
+      System.out.println("{\"name\":\"throughput.g" + games + ".t" + count + "\",\"games/s\":" + (games * 1E9 / result.mean) + ",\"speedup\":" + (single / result.mean) + "}");
+    }
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package game.racetrack.bench;
+
+import java.util.Random;
+
+import game.engine.bench.Benchmark;
+import game.engine.utils.Utils;
+import game.racetrack.RaceTrackGame;
+import game.racetrack.utils.TrackGrid;
+
+/**
+ * Measures the maze generation of {@link RaceTrackGame#generate(int, int, TrackGrid, Random)} 
+ * from 100 x 100 to 10k x 10k cells, and checks that the mazes are the same 
+ * as the ones of the former recursive generator (on the sizes it can handle).
+ */
+public final class MazeBenchmark {
+  private static final int[] directions = new int[] {-2, -1, 1, 2};
+  
+  private MazeBenchmark() {
+  }
+  
+  /**
+   * The former recursive generator, kept for checking the mazes.
+   * @param i row index of start position
+   * @param j column index of start position
+   * @param maze to be prepared
+   * @param random random number generator
+   */
+  private static void generateRecursive(int i, int j, int[][] maze, Random random) {
+    maze[i][j] = RaceTrackGame.INIT;
+    int[] dirs = Utils.copyShuffle(directions, 0, directions.length, random);
+    for (int d = 0; d < dirs.length; d++) {
+      int di = 2 * (dirs[d] / 2);
+      int dj = 2 * (dirs[d] % 2);
+      if (0 < i + di && 0 < j + dj && i + di < maze.length && j + dj < maze[i + di].length && RaceTrackGame.mask(maze[i + di][j + dj], RaceTrackGame.EMPTY)) {
+        maze[i + (di / 2)][j + (dj / 2)] ^= RaceTrackGame.WALL;
+        maze[i + (di / 2)][j + (dj / 2)] |= RaceTrackGame.EMPTY;
+        generateRecursive(i + di, j + dj, maze, random);
+      }
+    }
+  }
+  
+  /**
+   * Returns true, if the recursive and the iterative generators make the 
+   * same maze of the specified size and seed. The recursive one runs on a 
+   * thread with a large stack.
+   * @param n number of rows
+   * @param m number of columns
+   * @param seed random seed
+   * @return true, if the mazes are the same
+   * @throws InterruptedException if interrupted
+   */
+  private static boolean same(int n, int m, final long seed) throws InterruptedException {
+    final int[][] expected = RaceTrackGame.init(n, m);
+    Thread thread = new Thread(null, new Runnable() {
+      @Override
+      public void run() {
+        generateRecursive(1, 1, expected, new Random(seed));
+      }
+    }, "recursive", 1L << 30);
+    thread.start();
+    thread.join();
+    TrackGrid maze = RaceTrackGame.initGrid(n, m);
+    RaceTrackGame.generate(1, 1, maze, new Random(seed));
+    return new TrackGrid(expected).equals(maze);
+  }
+  
+  /**
+   * Entry point of the benchmark.
+   * @param args sizes of the square mazes (optional)
+   * @throws Exception interrupted
+   */
+  public static void main(String[] args) throws Exception {
+    int[] sizes = new int[] {101, 1001, 3001, 10001};
+    if (0 < args.length) {
+      sizes = new int[args.length];
+      for (int idx = 0; idx < args.length; idx++) {
+        sizes[idx] = Integer.parseInt(args[idx]);
+      }
+    }
+    for (int seed = 0; seed < 20; seed++) {
+      if (!same(21 + seed, 41 + 2 * seed, seed) || !same(301, 301, seed)) {
+        throw new IllegalStateException("the mazes differ for seed: " + seed);
+      }
+    }
+    System.out.println("mazes are the same as the recursive ones");
+    for (final int size : sizes) {
+      final TrackGrid maze = RaceTrackGame.initGrid(size, size);
+      final Random random = new Random(size);
+      int iterations = (int) Math.max(3, Math.min(100, 1E7 / ((double) size * size)));
+      System.out.println(Benchmark.run("generate." + size, Math.min(2, iterations), iterations, new Benchmark.Operation() {
+        @Override
+        public void run() {
+          // the reset (as init does it) is part of the measured time
+          for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+              maze.set(i, j, i % 2 != 1 || j % 2 != 1 ? RaceTrackGame.WALL : RaceTrackGame.EMPTY);
+            }
+          }
+          RaceTrackGame.generate(1, 1, maze, random);
+        }
+      }));
+    }
+  }
+}
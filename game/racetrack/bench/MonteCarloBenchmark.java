@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package game.racetrack.bench;
+
+import java.lang.reflect.Constructor;
+import java.util.LinkedList;
+import java.util.List;
+
+import game.engine.utils.Pair;
+import game.racetrack.Direction;
+import game.racetrack.RaceTrackGame;
+import game.racetrack.RaceTrackPlayer;
+import game.racetrack.players.Agent;
+import game.racetrack.players.MonteCarloPlayer;
+import game.racetrack.players.RandomPlayer;
+import game.racetrack.search.MonteCarloSearch;
+
+/**
+ * Plays single player games of the {@link MonteCarloPlayer}, the 
+ * {@link RandomPlayer} and the {@link Agent} on generated tracks of fixed 
+ * seeds (without the engine and its logs), and prints their scores (lower is 
+ * better), the number of turns and the rollouts per second of the 
+ * {@link MonteCarloSearch}.
+ */
+public final class MonteCarloBenchmark {
+  
+  private MonteCarloBenchmark() {
+  }
+  
+  /**
+   * Plays a game and returns the player.
+   * @param params parameters of the game
+   * @return game and player after the game
+   * @throws Exception anything the game throws
+   */
+  @SuppressWarnings("unchecked")
+  private static Pair<RaceTrackGame, RaceTrackPlayer> play(String[] params) throws Exception {
+    RaceTrackGame game = new RaceTrackGame(System.err, false, params);
+    List<Pair<? extends RaceTrackPlayer, Long>> players = new LinkedList<Pair<? extends RaceTrackPlayer, Long>>();
+    for (Pair<Constructor<? extends RaceTrackPlayer>, Object[]> pair : game.getPlayerConstructors()) {
+      long start = System.nanoTime();
+      RaceTrackPlayer player = pair.first.newInstance(pair.second);
+      players.add(new Pair<RaceTrackPlayer, Long>(player, System.nanoTime() - start));
+    }
+    game.setPlayers(players);
+    while (!game.isFinished()) {
+      RaceTrackPlayer player = game.getNextPlayer();
+      long start = System.nanoTime();
+      Direction direction = player.getDirection(game.getRemainingTime(player));
+      game.setAction(player, direction, System.nanoTime() - start);
+    }
+    return new Pair<RaceTrackGame, RaceTrackPlayer>(game, game.getPlayers()[0]);
+  }
+  
+  /**
+   * Entry point of the benchmark.
+   * @param args number of seeds and timeout of the players in milliseconds (optional)
+   * @throws Exception anything the game throws
+   */
+  public static void main(String[] args) throws Exception {
+    int seeds = args.length < 1 ? 5 : Integer.parseInt(args[0]);
+    String timeout = args.length < 2 ? "2000" : args[1];
+    String[] tracks = new String[] {"11 11 10 0.5 10", "21 21 10 0.5 30"};
+    Class<?>[] classes = new Class<?>[] {MonteCarloPlayer.class, RandomPlayer.class, Agent.class};
+    for (String track : tracks) {
+      for (Class<?> clazz : classes) {
+        double sum = 0;
+        for (int seed = 1; seed <= seeds; seed++) {
+          String[] params = (track + " " + seed + " " + timeout + " " + clazz.getName()).split(" ");
+          Pair<RaceTrackGame, RaceTrackPlayer> result = play(params);
+          double score = result.first.getScore(result.second);
+          sum += score;
+          String stats = "";
+          if (result.second instanceof MonteCarloPlayer) {
+            MonteCarloSearch search = ((MonteCarloPlayer) result.second).getSearch();
+            stats = ",\"rolloutsPerSecond\":" + search.getTotalRolloutsPerSecond() + ",\"nodes\":" + search.getNodes();
+          }
+          System.out.println("{\"name\":\"" + clazz.getSimpleName() + "." + track.replace(' ', '_') + "." + seed + "\",\"score\":" + score 
+              + ",\"finished\":" + result.second.state + stats + "}");
+        }
+        System.out.println("{\"name\":\"" + clazz.getSimpleName() + "." + track.replace(' ', '_') + "\",\"meanScore\":" + (sum / seeds) + "}");
+      }
+    }
+  }
+}
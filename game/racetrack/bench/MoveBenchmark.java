@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+
+package game.racetrack.bench;
+
+import java.lang.reflect.Constructor;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import game.engine.bench.Benchmark;
+import game.engine.utils.Pair;
+import game.racetrack.Direction;
+import game.racetrack.RaceTrackGame;
+import game.racetrack.RaceTrackPlayer;
+import game.racetrack.players.DummyPlayer;
+import game.racetrack.utils.Cell;
+import game.racetrack.utils.Coin;
+import game.racetrack.utils.PlayerState;
+import game.racetrack.utils.TrackGrid;
+
+/**
+ * Measures the cost of {@link RaceTrackGame#setAction(RaceTrackPlayer, Direction, long)} 
+ * against the velocity of the player, and compares it with the former turn, 
+ * which drew the line of the move twice and collected the crossed cells of 
+ * the bounding box to lists. The player drives around on an open track 
+ * (every removable wall is removed) and keeps accelerating to the target 
+ * speed towards a randomly changing heading, it slows down at the walls.
+ */
+public final class MoveBenchmark {
+  
+  private MoveBenchmark() {
+  }
+  
+  /**
+   * Chooses the action of the player to keep it at the specified speed. The 
+   * heading is changed randomly and after the wall collisions.
+   * @param state of the player
+   * @param speed target speed
+   * @param random changes the heading
+   * @param heading current heading (row and column direction) and the 
+   * expected velocity (row and column) of the player, updated
+   * @return action to be applied
+   */
+  static Direction control(PlayerState state, int speed, Random random, int[] heading) {
+    boolean collided = state.vi != heading[2] || state.vj != heading[3];
+    if (collided || random.nextInt(32) == 0 || (heading[0] == 0 && heading[1] == 0)) {
+      Direction direction = RaceTrackGame.DIRECTIONS[1 + random.nextInt(RaceTrackGame.DIRECTIONS.length - 1)];
+      heading[0] = direction.i;
+      heading[1] = direction.j;
+    }
+    int ai = Integer.signum(heading[0] * speed - state.vi);
+    int aj = Integer.signum(heading[1] * speed - state.vj);
+    heading[2] = state.vi + ai;
+    heading[3] = state.vj + aj;
+    for (Direction direction : RaceTrackGame.DIRECTIONS) {
+      if (direction.i == ai && direction.j == aj) {
+        return direction;
+      }
+    }
+    return RaceTrackGame.DIRECTIONS[0];
+  }
+  
+  /**
+   * The former turn, kept for comparison: moves the player and marks the 
+   * trace, then collects the coins of the crossed cells.
+   * @param track to be moved on
+   * @param player to be moved
+   * @param action to be applied
+   * @param coins on the track
+   * @return value of the collected coins
+   */
+  private static int legacyTurn(TrackGrid track, RaceTrackPlayer player, Direction action, Coin[] coins) {
+    int collected = 0;
+    Cell currentPosition = RaceTrackGame.toCell(player);
+    track.xor(currentPosition.i, currentPosition.j, RaceTrackGame.PLAYERS[player.color]);
+    track.or(currentPosition.i, currentPosition.j, RaceTrackGame.TRACE);
+    RaceTrackGame.move(player, action, track);
+    for (Cell cell : RaceTrackGame.line8connect(currentPosition, RaceTrackGame.toCell(player))) {
+      track.or(cell.i, cell.j, RaceTrackGame.TRACE);
+    }
+    for (Cell cell : RaceTrackGame.lineCrossing(currentPosition, RaceTrackGame.toCell(player))) {
+      if (track.mask(cell.i, cell.j, RaceTrackGame.COIN)) {
+        track.xor(cell.i, cell.j, RaceTrackGame.COIN);
+        for (Coin coin : coins) {
+          if (cell.same(coin)) {
+            collected += coin.value;
+          }
+        }
+      }
+    }
+    track.or(player.state.i, player.state.j, RaceTrackGame.PLAYERS[player.color]);
+    return collected;
+  }
+  
+  /**
+   * Entry point of the benchmark.
+   * @param args number of turns per speed (optional), speeds (optional)
+   * @throws Exception anything the game throws
+   */
+  public static void main(String[] args) throws Exception {
+    final int turns = args.length < 1 ? 200000 : Integer.parseInt(args[0]);
+    int[] speeds = new int[] {1, 2, 4, 8, 16, 32};
+    if (1 < args.length) {
+      speeds = new int[args.length - 1];
+      for (int idx = 1; idx < args.length; idx++) {
+        speeds[idx - 1] = Integer.parseInt(args[idx]);
+      }
+    }
+    String[] params = new String[] {"21", "41", "10", "1.0", "400", "1", "1000", DummyPlayer.class.getName()};
+    for (final int speed : speeds) {
+      // the fused turn of the game
+      final RaceTrackGame game = new RaceTrackGame(System.err, false, params);
+      Pair<Constructor<? extends RaceTrackPlayer>, Object[]> constructor = game.getPlayerConstructors().get(0);
+      final RaceTrackPlayer player = constructor.first.newInstance(constructor.second);
+      PlayerState start = player.state.clone();
+      List<Pair<? extends RaceTrackPlayer, Long>> players = new LinkedList<Pair<? extends RaceTrackPlayer, Long>>();
+      players.add(new Pair<RaceTrackPlayer, Long>(player, 0L));
+      game.setPlayers(players);
+      final Random random = new Random(speed);
+      final int[] heading = new int[4];
+      final long[] distance = new long[1];
+      double initialScore = game.getScore(player);
+      System.out.println(Benchmark.run("setAction.v" + speed, turns / 10, turns, new Benchmark.Operation() {
+        @Override
+        public void run() {
+          int i = player.state.i;
+          int j = player.state.j;
+          game.setAction(player, control(player.state, speed, random, heading), 0);
+          distance[0] += Math.max(Math.abs(player.state.i - i), Math.abs(player.state.j - j));
+        }
+      }));
+      
+      // the former turn on the same track, with the same actions
+      final TrackGrid track = new TrackGrid(player.track);
+      final DummyPlayer legacyPlayer = new DummyPlayer(start, null, null, null, 0);
+      final Coin[] coins = player.coins;
+      final Random legacyRandom = new Random(speed);
+      final int[] legacyHeading = new int[4];
+      final int[] collected = new int[1];
+      System.out.println(Benchmark.run("legacy.v" + speed, turns / 10, turns, new Benchmark.Operation() {
+        @Override
+        public void run() {
+          collected[0] += legacyTurn(track, legacyPlayer, control(legacyPlayer.state, speed, legacyRandom, legacyHeading), coins);
+        }
+      }));
+      int numTurns = turns / 10 + turns;
+      if (!player.state.same(legacyPlayer.state) || game.getScore(player) != initialScore + numTurns - collected[0]) {
+        throw new IllegalStateException("the turns diverged at speed: " + speed);
+      }
+      System.out.println("{\"name\":\"speed.v" + speed + "\",\"mean\":" + ((double) distance[0] / numTurns) + ",\"collected\":" + collected[0] + "}");
+    }
+  }
+}
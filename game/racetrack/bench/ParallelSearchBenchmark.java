@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+
+package game.racetrack.bench;
+
+import game.engine.bench.Benchmark;
+import game.racetrack.Direction;
+import game.racetrack.RaceTrackGame;
+import game.racetrack.search.AStar;
+import game.racetrack.search.ParallelSearch;
+import game.racetrack.utils.PlayerState;
+import game.racetrack.utils.TrackAnalysis;
+
+/**
+ * Measures the speedup curve of the {@link ParallelSearch} from the start of 
+ * generated tracks (scale 10, up to 410 x 410 cells) by 1 to 16 threads. The 
+ * lengths of the plans are compared with the ones of the {@link AStar} search.
+ * The heuristic is weak on mazes, so only the small ones are searched, the 
+ * larger tracks are open.
+ * <p>
+ * The speedup is bounded by the number of processors (printed first), the 
+ * thread counts above it only show the overhead of the threads. The curve 
+ * has not been measured on more than one processor yet.
+ */
+public final class ParallelSearchBenchmark {
+  /** mazes are only generated up to this size */
+  private static final int MAZE_LIMIT = 11;
+  
+  private ParallelSearchBenchmark() {
+  }
+  
+  /**
+   * Entry point of the benchmark.
+   * @param args sizes of the square mazes (optional)
+   * @throws Exception anything the game throws
+   */
+  public static void main(String[] args) throws Exception {
+    int[] sizes = new int[] {11, 21, 41};
+    if (0 < args.length) {
+      sizes = new int[args.length];
+      for (int idx = 0; idx < args.length; idx++) {
+        sizes[idx] = Integer.parseInt(args[idx]);
+      }
+    }
+    int[] threads = new int[] {1, 2, 4, 8, 16};
+    int processors = Runtime.getRuntime().availableProcessors();
+    System.out.println("{\"name\":\"processors\",\"count\":" + processors + "}");
+    if (processors < threads[threads.length - 1]) {
+      System.err.println("only " + processors + " processor(s): the speedup above " + processors + " thread(s) is not measured, only the overhead");
+    }
+    for (int size : sizes) {
+      for (String clean : size <= MAZE_LIMIT ? new String[] {"0.2", "1.0"} : new String[] {"1.0"}) {
+        String[] params = new String[] {"" + size, "" + size, "10", clean, "0", "" + size, "1000", "x"};
+        RaceTrackGame game = new RaceTrackGame(System.err, false, params);
+        TrackAnalysis analysis = game.getAnalysis();
+        final PlayerState start = new PlayerState(5, 15, 0, 0);
+        String name = analysis.n + "x" + analysis.m + "." + clean;
+        Direction[] optimal = new AStar(analysis).search(start);
+        double single = 0;
+        for (int count : threads) {
+          final ParallelSearch search = new ParallelSearch(analysis, count);
+          Direction[] plan = search.search(start);
+          if (plan != null && optimal != null && plan.length != optimal.length) {
+            throw new IllegalStateException("the plan is not optimal on track: " + name);
+          }
+          System.out.println("{\"name\":\"plan." + name + ".t" + count + "\",\"turns\":" + (plan == null ? -1 : plan.length) + ",\"astar\":" + (optimal == null ? -1 : optimal.length) + ",\"expanded\":" + search.getExpanded() + ",\"iterations\":" + search.getIterations() + "}");
+          Benchmark.Result result = Benchmark.run("parallel." + name + ".t" + count, 1, 3, new Benchmark.Operation() {
+            @Override
+            public void run() {
+              search.search(start);
+            }
+          });
+          if (count == 1) {
+            single = result.mean;
+          }
+          System.out.println(result);
+          System.out.println("{\"name\":\"speedup." + name + ".t" + count + "\",\"speedup\":" + (single / result.mean) + "}");
+          search.shutdown();
+        }
+      }
+    }
+  }
+}
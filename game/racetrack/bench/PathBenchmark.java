@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+
+package game.racetrack.bench;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import game.engine.bench.Benchmark;
+import game.racetrack.RaceTrackGame;
+import game.racetrack.utils.PathCell;
+import game.racetrack.utils.TrackGrid;
+
+/**
+ * Compares the baseline path search of {@link RaceTrackGame#BFS(int, int, TrackGrid)} 
+ * with the former list based search on scaled tracks, checks that they find 
+ * the same path, and measures the creation of a game (where the path search 
+ * used to dominate) on large tracks.
+ */
+public final class PathBenchmark {
+  /** the former search is only measured on tracks up to this number of cells */
+  private static final int LEGACY_LIMIT = 20000;
+  
+  private PathBenchmark() {
+  }
+  
+  /**
+   * The former search, kept for checking the paths.
+   * @param i row index of start
+   * @param j column index of start
+   * @param track to be searched on
+   * @return path from the start to a finish
+   */
+  private static List<PathCell> legacyBFS(int i, int j, TrackGrid track) {
+    LinkedList<PathCell> path = new LinkedList<PathCell>();
+    LinkedList<PathCell> open = new LinkedList<PathCell>();
+    LinkedList<PathCell> close = new LinkedList<PathCell>();
+    PathCell current = new PathCell(i, j, null);
+    open.add(current);
+    while (!open.isEmpty()) {
+      current = open.pollFirst();
+      if (track.mask(current.i, current.j, RaceTrackGame.FINISH)) {
+        break;
+      }
+      close.add(current);
+      for (int idx = 0; idx < RaceTrackGame.DIRECTIONS.length; idx++) {
+        i = current.i + RaceTrackGame.DIRECTIONS[idx].i;
+        j = current.j + RaceTrackGame.DIRECTIONS[idx].j;
+        PathCell neighbor = new PathCell(i, j, current);
+        if (RaceTrackGame.isNotWall(i, j, track) && !close.contains(neighbor) && !open.contains(neighbor)) {
+          open.add(neighbor);
+        }
+      }
+    }
+    while (current != null) {
+      path.addFirst(current);
+      current = current.parent;
+    }
+    return path;
+  }
+  
+  /**
+   * Returns the track as the game builds it (without the coins).
+   * @param n number of rows
+   * @param m number of columns
+   * @param scale factor of upscale
+   * @param seed random seed
+   * @return the track
+   */
+  private static TrackGrid track(int n, int m, int scale, long seed) {
+    Random random = new Random(seed);
+    TrackGrid small = RaceTrackGame.initGrid(n, m);
+    small.xor(0, 1, RaceTrackGame.WALL);
+    small.or(0, 1, RaceTrackGame.EMPTY);
+    small.xor(0, m - 2, RaceTrackGame.WALL);
+    small.or(0, m - 2, RaceTrackGame.FINISH | RaceTrackGame.EMPTY);
+    RaceTrackGame.generate(1, 1, small, random);
+    RaceTrackGame.makeHoles(small, 1, 0.2, random);
+    RaceTrackGame.replace(small, RaceTrackGame.INIT, RaceTrackGame.EMPTY);
+    TrackGrid track = RaceTrackGame.scale(small, scale);
+    RaceTrackGame.cutCorners(track);
+    RaceTrackGame.replace(track, RaceTrackGame.INIT, RaceTrackGame.EMPTY);
+    return track;
+  }
+  
+  /**
+   * Entry point of the benchmark.
+   * @param args rows, columns and scale of the tracks (optional, triples)
+   * @throws Exception anything the games throw
+   */
+  public static void main(String[] args) throws Exception {
+    int[] sizes = new int[] {21, 41, 3, 51, 51, 5, 101, 201, 5, 301, 301, 10};
+    if (2 < args.length) {
+      sizes = new int[args.length - args.length % 3];
+      for (int idx = 0; idx < sizes.length; idx++) {
+        sizes[idx] = Integer.parseInt(args[idx]);
+      }
+    }
+    for (int seed = 0; seed < 20; seed++) {
+      int scale = 2 + seed % 3;
+      TrackGrid track = track(11 + 2 * seed, 21 + 2 * seed, scale, seed);
+      if (!RaceTrackGame.BFS(scale / 2, scale + scale / 2, track).equals(legacyBFS(scale / 2, scale + scale / 2, track))) {
+        throw new IllegalStateException("the paths differ for seed: " + seed);
+      }
+    }
+    System.out.println("paths are the same as the former ones");
+    for (int idx = 0; idx < sizes.length; idx += 3) {
+      final int n = sizes[idx];
+      final int m = sizes[idx + 1];
+      final int scale = sizes[idx + 2];
+      final TrackGrid track = track(n, m, scale, idx);
+      final int si = scale / 2;
+      final int sj = scale + scale / 2;
+      String name = n + "x" + m + "x" + scale;
+      List<PathCell> path = RaceTrackGame.BFS(si, sj, track);
+      int iterations = (int) Math.max(3, Math.min(100, 1E7 / track.size()));
+      if (track.size() <= LEGACY_LIMIT) {
+        if (!path.equals(legacyBFS(si, sj, track))) {
+          throw new IllegalStateException("the paths differ on track: " + name);
+        }
+        System.out.println(Benchmark.run("legacy." + name, 1, 3, new Benchmark.Operation() {
+          @Override
+          public void run() {
+            legacyBFS(si, sj, track);
+          }
+        }));
+      }
+      System.out.println("path length: " + path.size() + " cells: " + track.size());
+      System.out.println(Benchmark.run("bfs." + name, Math.min(5, iterations), iterations, new Benchmark.Operation() {
+        @Override
+        public void run() {
+          RaceTrackGame.BFS(si, sj, track);
+        }
+      }));
+      final String[] params = new String[] {"" + n, "" + m, "" + scale, "0.2", "10", "" + idx, "1000", "x"};
+      System.out.println(Benchmark.run("game." + name, 1, Math.min(10, iterations), new Benchmark.Operation() {
+        @Override
+        public void run() {
+          new RaceTrackGame(System.err, false, params);
+        }
+      }));
+    }
+  }
+}
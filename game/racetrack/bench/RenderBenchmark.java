@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package game.racetrack.bench;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.lang.reflect.Constructor;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import game.engine.bench.Benchmark;
+import game.engine.utils.Pair;
+import game.racetrack.RaceTrackGame;
+import game.racetrack.RaceTrackPlayer;
+import game.racetrack.players.DummyPlayer;
+import game.racetrack.ui.RaceTrackCanvas;
+
+/**
+ * Measures the repaint of the {@link RaceTrackCanvas} after a turn on tracks 
+ * of different sizes: drawing all {@link RaceTrackGame#getGameObjects()} 
+ * against the incremental paint, that redraws only the changed cells. The 
+ * player keeps the specified speed on an open track (see {@link MoveBenchmark}), 
+ * a measured run is a turn and a paint into an image (run headless).
+ */
+public final class RenderBenchmark {
+  
+  private RenderBenchmark() {
+  }
+  
+  /**
+   * Returns a game of one player on an open track of the specified size.
+   * @param n number of rows of the maze
+   * @param m number of columns of the maze
+   * @param scale of the track
+   * @return game
+   * @throws Exception anything the game throws
+   */
+  static RaceTrackGame game(int n, int m, int scale) throws Exception {
+    String[] params = new String[] {Integer.toString(n), Integer.toString(m), Integer.toString(scale), "1.0", "20", "1", "1000", DummyPlayer.class.getName()};
+    RaceTrackGame game = new RaceTrackGame(System.err, false, params);
+    Pair<Constructor<? extends RaceTrackPlayer>, Object[]> constructor = game.getPlayerConstructors().get(0);
+    List<Pair<? extends RaceTrackPlayer, Long>> players = new LinkedList<Pair<? extends RaceTrackPlayer, Long>>();
+    players.add(new Pair<RaceTrackPlayer, Long>(constructor.first.newInstance(constructor.second), 0L));
+    game.setPlayers(players);
+    return game;
+  }
+  
+  /**
+   * Returns the operation that plays a turn of the specified game and paints 
+   * the specified canvas into the specified image.
+   * @param game to be played
+   * @param canvas to be painted
+   * @param image painted into
+   * @param speed of the player
+   * @return operation
+   */
+  private static Benchmark.Operation turn(final RaceTrackGame game, final RaceTrackCanvas canvas, final BufferedImage image, final int speed) {
+    final RaceTrackPlayer player = game.getPlayers()[0];
+    final Random random = new Random(speed);
+    final int[] heading = new int[4];
+    return new Benchmark.Operation() {
+      @Override
+      public void run() {
+        game.setAction(player, MoveBenchmark.control(player.state, speed, random, heading), 0);
+        Graphics graphics = image.getGraphics();
+        graphics.setColor(canvas.getBackground());
+        graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+        canvas.paintObjects(graphics);
+        graphics.dispose();
+      }
+    };
+  }
+  
+  /**
+   * Entry point of the benchmark.
+   * @param args number of measured turns, speed of the player (optional)
+   * @throws Exception anything the game throws
+   */
+  public static void main(String[] args) throws Exception {
+    System.setProperty("java.awt.headless", "true");
+    int turns = args.length < 1 ? 500 : Integer.parseInt(args[0]);
+    int speed = args.length < 2 ? 4 : Integer.parseInt(args[1]);
+    int[][] sizes = new int[][] {{21, 41, 3}, {51, 51, 5}, {81, 101, 5}, {101, 201, 7}};
+    for (int[] size : sizes) {
+      String suffix = "." + size[0] + "x" + size[1] + "x" + size[2];
+      RaceTrackGame legacyGame = game(size[0], size[1], size[2]);
+      RaceTrackCanvas legacy = new RaceTrackCanvas(size[0] * size[2], size[1] * size[2], legacyGame);
+      BufferedImage image = new BufferedImage(Math.max(1, size[1] * size[2] * legacy.multiplier), Math.max(1, size[0] * size[2] * legacy.multiplier), BufferedImage.TYPE_INT_RGB);
+      System.out.println(Benchmark.run("objects" + suffix, turns / 10, turns, turn(legacyGame, legacy, image, speed)));
+      RaceTrackGame game = game(size[0], size[1], size[2]);
+      System.out.println(Benchmark.run("incremental" + suffix, turns / 10, turns, turn(game, game.getCanvas(), image, speed)));
+    }
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package game.racetrack.bench;
+
+import java.util.Random;
+
+import game.engine.bench.Benchmark;
+import game.racetrack.Direction;
+import game.racetrack.RaceTrackGame;
+import game.racetrack.players.DummyPlayer;
+import game.racetrack.utils.Cell;
+import game.racetrack.utils.Coin;
+import game.racetrack.utils.PlayerState;
+import game.racetrack.utils.TrackGrid;
+
+/**
+ * Compares the memory footprint and the turn throughput of the 
+ * {@link TrackGrid} and the former <code>int[][]</code> track on large scaled 
+ * tracks. A turn is what {@link RaceTrackGame#setAction(game.racetrack.RaceTrackPlayer, Direction, long)} 
+ * does on the track: moves a player by a random direction (with the wall 
+ * checks), marks the traces of the step and checks the crossed cells for 
+ * coins.
+ */
+public final class TrackGridBenchmark {
+  
+  private TrackGridBenchmark() {
+  }
+  
+  /**
+   * Returns the used heap after garbage collection.
+   * @return used bytes
+   */
+  private static long used() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+  
+  /**
+   * Entry point of the benchmark.
+   * @param args rows, columns and scale of the track, number of turns (optional)
+   * @throws Exception anything the turns throw
+   */
+  public static void main(String[] args) throws Exception {
+    int n = args.length < 1 ? 501 : Integer.parseInt(args[0]);
+    int m = args.length < 2 ? 1001 : Integer.parseInt(args[1]);
+    int scale = args.length < 3 ? 5 : Integer.parseInt(args[2]);
+    int turns = args.length < 4 ? 1000000 : Integer.parseInt(args[3]);
+    
+    // the track as the game builds it (without the path and the coins)
+    Random random = new Random(n * 31 + m);
+    TrackGrid small = RaceTrackGame.initGrid(n, m);
+    RaceTrackGame.generate(1, 1, small, random);
+    RaceTrackGame.makeHoles(small, 1, 0.2, random);
+    RaceTrackGame.replace(small, RaceTrackGame.INIT, RaceTrackGame.EMPTY);
+    TrackGrid track = RaceTrackGame.scale(small, scale);
+    RaceTrackGame.cutCorners(track);
+    RaceTrackGame.replace(track, RaceTrackGame.INIT, RaceTrackGame.EMPTY);
+    small = null;
+    
+    long before = used();
+    final int[][] array = track.toArray();
+    long arrayBytes = used() - before;
+    before = used();
+    final TrackGrid grid = new TrackGrid(track);
+    long gridBytes = used() - before;
+    track = null;
+    System.out.println("{\"name\":\"memory\",\"rows\":" + grid.n + ",\"columns\":" + grid.m + ",\"array\":" + arrayBytes + ",\"grid\":" + gridBytes + "}");
+    
+    final int start = scale / 2;
+    final DummyPlayer arrayPlayer = new DummyPlayer(new PlayerState(scale + start, scale + start, 0, 0), new Random(1), null, new Coin[0], 0);
+    final DummyPlayer gridPlayer = new DummyPlayer(new PlayerState(scale + start, scale + start, 0, 0), new Random(1), null, new Coin[0], 0);
+    final Random arrayRandom = new Random(7);
+    final Random gridRandom = new Random(7);
+    System.out.println(Benchmark.run("turn.array", turns / 10, turns, new Benchmark.Operation() {
+      @Override
+      public void run() {
+        Cell from = RaceTrackGame.toCell(arrayPlayer);
+        Direction direction = RaceTrackGame.DIRECTIONS[arrayRandom.nextInt(RaceTrackGame.DIRECTIONS.length)];
+        RaceTrackGame.move(arrayPlayer, direction, array);
+        for (Cell cell : RaceTrackGame.line8connect(from, RaceTrackGame.toCell(arrayPlayer))) {
+          array[cell.i][cell.j] |= RaceTrackGame.TRACE;
+        }
+        for (Cell cell : RaceTrackGame.lineCrossing(from, RaceTrackGame.toCell(arrayPlayer))) {
+          if (RaceTrackGame.mask(array[cell.i][cell.j], RaceTrackGame.COIN)) {
+            array[cell.i][cell.j] ^= RaceTrackGame.COIN;
+          }
+        }
+      }
+    }));
+    System.out.println(Benchmark.run("turn.grid", turns / 10, turns, new Benchmark.Operation() {
+      @Override
+      public void run() {
+        Cell from = RaceTrackGame.toCell(gridPlayer);
+        Direction direction = RaceTrackGame.DIRECTIONS[gridRandom.nextInt(RaceTrackGame.DIRECTIONS.length)];
+        RaceTrackGame.move(gridPlayer, direction, grid);
+        for (Cell cell : RaceTrackGame.line8connect(from, RaceTrackGame.toCell(gridPlayer))) {
+          grid.or(cell.i, cell.j, RaceTrackGame.TRACE);
+        }
+        for (Cell cell : RaceTrackGame.lineCrossing(from, RaceTrackGame.toCell(gridPlayer))) {
+          if (grid.mask(cell.i, cell.j, RaceTrackGame.COIN)) {
+            grid.xor(cell.i, cell.j, RaceTrackGame.COIN);
+          }
+        }
+      }
+    }));
+    if (!arrayPlayer.state.same(gridPlayer.state) || !new TrackGrid(array).equals(grid)) {
+      throw new IllegalStateException("the representations diverged");
+    }
+  }
+}
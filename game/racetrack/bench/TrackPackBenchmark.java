@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package game.racetrack.bench;
+
+import java.io.File;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import game.engine.bench.Benchmark;
+import game.racetrack.RaceTrackGame;
+import game.racetrack.utils.Coin;
+import game.racetrack.utils.TrackPack;
+
+/**
+ * Compares the generation of the track layouts with attaching them from a 
+ * {@link TrackPack} (written to a temporary file), and checks that the 
+ * attached layouts are the same as the generated ones.
+ */
+public final class TrackPackBenchmark {
+  
+  private TrackPackBenchmark() {
+  }
+  
+  /**
+   * Returns true, iff the specified layouts are the same.
+   * @param a first layout
+   * @param b second layout
+   * @return true, if they are the same
+   */
+  private static boolean same(TrackPack.Layout a, TrackPack.Layout b) {
+    if (!a.track.equals(b.track) || a.path.size() != b.path.size() || a.coins.length != b.coins.length) {
+      return false;
+    }
+    for (int idx = 0; idx < a.path.size(); idx++) {
+      if (!a.path.get(idx).same(b.path.get(idx))) {
+        return false;
+      }
+    }
+    for (int idx = 0; idx < a.coins.length; idx++) {
+      Coin c = a.coins[idx];
+      Coin d = b.coins[idx];
+      if (!c.same(d) || c.value != d.value) {
+        return false;
+      }
+    }
+    return true;
+  }
+  
+  /**
+   * Entry point of the benchmark.
+   * @param args sizes of the square mazes (optional)
+   * @throws Exception anything the game throws
+   */
+  public static void main(String[] args) throws Exception {
+    int[] sizes = new int[] {41, 101, 201};
+    if (0 < args.length) {
+      sizes = new int[args.length];
+      for (int idx = 0; idx < args.length; idx++) {
+        sizes[idx] = Integer.parseInt(args[idx]);
+      }
+    }
+    Set<TrackPack.Key> keys = new LinkedHashSet<TrackPack.Key>();
+    for (int size : sizes) {
+      for (int seed = 1; seed <= 3; seed++) {
+        keys.add(new TrackPack.Key(size, size, 10, 0.3, 20, seed));
+      }
+    }
+    File file = File.createTempFile("tracks", ".pack");
+    file.deleteOnExit();
+    long start = System.nanoTime();
+    TrackPack.write(file, keys, Runtime.getRuntime().availableProcessors());
+    System.out.println("{\"name\":\"write\",\"layouts\":" + keys.size() + ",\"bytes\":" + file.length() + ",\"seconds\":" + (System.nanoTime() - start) / 1E9 + "}");
+    final TrackPack pack = new TrackPack(file);
+    for (final TrackPack.Key key : keys) {
+      if (!same(pack.get(key), RaceTrackGame.createLayout(key))) {
+        throw new IllegalStateException("the attached layout differs from the generated one: " + key);
+      }
+    }
+    for (int size : sizes) {
+      final TrackPack.Key key = new TrackPack.Key(size, size, 10, 0.3, 20, 1);
+      String name = (size * 10) + "x" + (size * 10);
+      System.out.println(Benchmark.run("generate." + name, 1, 5, new Benchmark.Operation() {
+        @Override
+        public void run() {
+          RaceTrackGame.createLayout(key);
+        }
+      }));
+      System.out.println(Benchmark.run("attach." + name, 3, 20, new Benchmark.Operation() {
+        @Override
+        public void run() {
+          pack.get(key);
+        }
+      }));
+    }
+    pack.close();
+  }
+}
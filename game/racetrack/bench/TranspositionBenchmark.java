@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+
+package game.racetrack.bench;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import game.engine.bench.Benchmark;
+import game.racetrack.search.TranspositionTable;
+import game.racetrack.utils.PackedState;
+import game.racetrack.utils.PlayerState;
+
+/**
+ * Compares the {@link TranspositionTable} with a {@link ConcurrentHashMap} of 
+ * {@link PlayerState} keys on the access pattern of a search: a probe and a 
+ * store of a random state of a 400 x 400 track, by one and by more threads 
+ * sharing the table.
+ */
+public final class TranspositionBenchmark {
+  
+  private TranspositionBenchmark() {
+  }
+  
+  /**
+   * Returns the random states of the benchmark.
+   * @param count number of states
+   * @param seed random seed
+   * @return packed states
+   */
+  private static long[] states(int count, long seed) {
+    Random random = new Random(seed);
+    long[] result = new long[count];
+    for (int idx = 0; idx < count; idx++) {
+      result[idx] = PackedState.pack(random.nextInt(400), random.nextInt(400), random.nextInt(21) - 10, random.nextInt(21) - 10);
+    }
+    return result;
+  }
+  
+  /**
+   * Runs the specified operation on the specified number of threads at the 
+   * same time and waits for them.
+   * @param threads number of threads
+   * @param operation run by every thread with the index of the thread
+   * @throws InterruptedException if interrupted
+   */
+  private static void parallel(int threads, final Worker operation) throws InterruptedException {
+    final CountDownLatch done = new CountDownLatch(threads);
+    for (int t = 0; t < threads; t++) {
+      final int thread = t;
+      new Thread(new Runnable() {
+        @Override
+        public void run() {
+          operation.run(thread);
+          done.countDown();
+        }
+      }).start();
+    }
+    done.await();
+  }
+  
+  /**
+   * Work of a thread of the benchmark.
+   */
+  private static interface Worker {
+    /**
+     * Runs the work of the specified thread.
+     * @param thread index of the thread
+     */
+    public void run(int thread);
+  }
+  
+  /**
+   * Entry point of the benchmark.
+   * @param args size of the table in megabytes, number of operations per 
+   * thread, number of threads (all optional)
+   * @throws Exception interrupted
+   */
+  public static void main(String[] args) throws Exception {
+    int megabytes = args.length < 1 ? 64 : Integer.parseInt(args[0]);
+    final int operations = args.length < 2 ? 1000000 : Integer.parseInt(args[1]);
+    int maxThreads = args.length < 3 ? Math.max(2, Runtime.getRuntime().availableProcessors()) : Integer.parseInt(args[2]);
+    final long[][] states = new long[maxThreads][];
+    for (int t = 0; t < maxThreads; t++) {
+      states[t] = states(operations, t % 2);
+    }
+    for (final TranspositionTable.Replacement replacement : TranspositionTable.Replacement.values()) {
+      for (final int threads : new int[] {1, maxThreads}) {
+        final TranspositionTable table = new TranspositionTable(megabytes, replacement);
+        Benchmark.Result result = Benchmark.run("table." + replacement + "." + threads, 1, 5, new Benchmark.Operation() {
+          @Override
+          public void run() throws Exception {
+            parallel(threads, new Worker() {
+              @Override
+              public void run(int thread) {
+                long[] keys = states[thread];
+                for (int idx = 0; idx < keys.length; idx++) {
+                  long data = table.probe(keys[idx]);
+                  int cost = data == TranspositionTable.MISS ? 0 : TranspositionTable.cost(data) + 1;
+                  table.store(keys[idx], cost, TranspositionTable.EXACT, idx % 9, idx & 0xFF);
+                }
+              }
+            });
+          }
+        });
+        System.out.println(result);
+        System.out.println(table);
+      }
+    }
+    for (final int threads : new int[] {1, maxThreads}) {
+      final Map<PlayerState, long[]> map = new ConcurrentHashMap<PlayerState, long[]>();
+      System.out.println(Benchmark.run("map." + threads, 1, 5, new Benchmark.Operation() {
+        @Override
+        public void run() throws Exception {
+          parallel(threads, new Worker() {
+            @Override
+            public void run(int thread) {
+              long[] keys = states[thread];
+              for (int idx = 0; idx < keys.length; idx++) {
+                PlayerState state = PackedState.unpack(keys[idx], new PlayerState(0, 0, 0, 0));
+                long[] entry = map.get(state);
+                long cost = entry == null ? 0 : entry[0] + 1;
+                map.put(state, new long[] {cost, idx % 9, idx & 0xFF});
+              }
+            }
+          });
+        }
+      }));
+    }
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+
+package game.racetrack.players;
+
+import java.util.Random;
+
+import game.engine.AnytimePlayer;
+import game.engine.Deadline;
+import game.racetrack.Direction;
+import game.racetrack.RaceTrackGame;
+import game.racetrack.RaceTrackPlayer;
+import game.racetrack.search.AStar;
+import game.racetrack.utils.Cell;
+import game.racetrack.utils.Coin;
+import game.racetrack.utils.PackedState;
+import game.racetrack.utils.PlayerState;
+import game.racetrack.utils.TrackAnalysis;
+import game.racetrack.utils.TrackGrid;
+
+/**
+ * Represents a {@link RaceTrackPlayer} that follows an optimal plan to the 
+ * finish found by the {@link AStar} search (the coins are not collected). 
+ * The plan is searched again, if the player is not where the plan expects. 
+ * If the search gives up on a large track, the player follows the plan to 
+ * the best state the search has reached and searches again from there.
+ * <p>
+ * As an {@link AnytimePlayer}, the player publishes a greedy direction before 
+ * a search and the first direction to the best state of the search as it 
+ * improves, and gives up the search at the soft deadline.
+ */
+public class AStarPlayer extends RaceTrackPlayer implements AnytimePlayer {
+  /** maximal number of nodes of a search */
+  public static final int MAX_NODES = 1 << 18;
+  private final AStar search;
+  private Direction[] plan;
+  private int step;
+  private long expected;
+  private Deadline deadline;
+
+  /**
+   * Creates the player by the specified values, the analysis of the track 
+   * is computed by the player.
+   * @param state state of the player (position and velocity)
+   * @param random random number generator
+   * @param track matrix, that represents the track
+   * @param coins list of coins on the track
+   * @param color the color of the player
+   */
+  public AStarPlayer(PlayerState state, Random random, int[][] track, Coin[] coins, int color) {
+    this(state, random, track, coins, color, new TrackAnalysis(new TrackGrid(track), new Cell(state.i, state.j), coins));
+  }
+
+  /**
+   * Creates the player by the specified values.
+   * @param state state of the player (position and velocity)
+   * @param random random number generator
+   * @param track matrix, that represents the track
+   * @param coins list of coins on the track
+   * @param color the color of the player
+   * @param analysis analysis of the track
+   */
+  public AStarPlayer(PlayerState state, Random random, int[][] track, Coin[] coins, int color, TrackAnalysis analysis) {
+    super(state, random, track, coins, color, analysis);
+    search = new AStar(analysis, MAX_NODES);
+  }
+
+  @Override
+  public void setDeadline(Deadline deadline) {
+    this.deadline = deadline;
+  }
+
+  @Override
+  public Direction getDirection(long remainingTime) {
+    if (deadline == null) {
+      return next(null, 0);
+    }
+    // the search of a timed out move may still be running until it notices
+    int move = deadline.getMove();
+    deadline.publish(move, greedy());
+    return next(deadline, move);
+  }
+
+  /**
+   * Returns the next direction of the plan, the plan is searched again if 
+   * the player is not where the plan expects.
+   * @param deadline token of the player, can be null
+   * @param move index of the move
+   * @return next direction
+   */
+  private synchronized Direction next(Deadline deadline, int move) {
+    long current = PackedState.pack(state);
+    if (plan == null || plan.length <= step || current != expected) {
+      plan = search.search(state, deadline, move);
+      if (plan == null) {
+        plan = search.getPartialPlan();
+      }
+      step = 0;
+    }
+    if (plan.length <= step) {
+      return RaceTrackGame.DIRECTIONS[0];
+    }
+    Direction direction = plan[step++];
+    expected = analysis.getTransitions().move(current, direction);
+    return direction;
+  }
+
+  /**
+   * Returns the direction, that moves the player closest to the finish.
+   * @return greedy direction
+   */
+  private Direction greedy() {
+    long current = PackedState.pack(state);
+    Direction result = RaceTrackGame.DIRECTIONS[0];
+    int min = Integer.MAX_VALUE;
+    for (Direction direction : RaceTrackGame.DIRECTIONS) {
+      long next = analysis.getTransitions().move(current, direction);
+      int distance = analysis.distanceToFinish(PackedState.i(next), PackedState.j(next));
+      if (distance != TrackAnalysis.UNREACHABLE && distance < min) {
+        min = distance;
+        result = direction;
+      }
+    }
+    return result;
+  }
+
+}
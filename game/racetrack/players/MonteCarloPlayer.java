@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package game.racetrack.players;
+
+import java.util.Random;
+
+import game.racetrack.Direction;
+import game.racetrack.RaceTrackGame;
+import game.racetrack.RaceTrackPlayer;
+import game.racetrack.search.AStar;
+import game.racetrack.search.MonteCarloSearch;
+import game.racetrack.utils.Cell;
+import game.racetrack.utils.Coin;
+import game.racetrack.utils.PackedState;
+import game.racetrack.utils.PlayerState;
+import game.racetrack.utils.TrackAnalysis;
+import game.racetrack.utils.TrackGrid;
+
+/**
+ * Represents a {@link RaceTrackPlayer} that chooses its directions by a 
+ * {@link MonteCarloSearch}, so it makes detours for the coins, if they are 
+ * worth the turns. The tree is reused by the next move. The time of a move 
+ * is the remaining time divided by the estimated number of the remaining 
+ * moves (at most {@link MonteCarloPlayer#MAX_MOVE_TIME}); if it is less than 
+ * {@link MonteCarloPlayer#MIN_MOVE_TIME}, the player moves greedily to the 
+ * finish without search.
+ */
+public class MonteCarloPlayer extends RaceTrackPlayer {
+  /** maximal number of nodes of the tree */
+  public static final int MAX_NODES = MonteCarloSearch.DEFAULT_MAX_NODES;
+  /** maximal time of a move in nanoseconds */
+  public static final long MAX_MOVE_TIME = 1000000000L;
+  /** minimal time of a searched move in nanoseconds */
+  public static final long MIN_MOVE_TIME = 1000000L;
+  /** number of moves are added to the estimated ones, when the time of a move is computed */
+  public static final int RESERVE = 20;
+  private final MonteCarloSearch search;
+  private long collected;
+  private int turn;
+  private int prevI;
+  private int prevJ;
+
+  /**
+   * Creates the player by the specified values, the analysis of the track 
+   * is computed by the player.
+   * @param state state of the player (position and velocity)
+   * @param random random number generator
+   * @param track matrix, that represents the track
+   * @param coins list of coins on the track
+   * @param color the color of the player
+   */
+  public MonteCarloPlayer(PlayerState state, Random random, int[][] track, Coin[] coins, int color) {
+    this(state, random, track, coins, color, new TrackAnalysis(new TrackGrid(track), new Cell(state.i, state.j), coins));
+  }
+
+  /**
+   * Creates the player by the specified values.
+   * @param state state of the player (position and velocity)
+   * @param random random number generator
+   * @param track matrix, that represents the track
+   * @param coins list of coins on the track
+   * @param color the color of the player
+   * @param analysis analysis of the track
+   */
+  public MonteCarloPlayer(PlayerState state, Random random, int[][] track, Coin[] coins, int color, TrackAnalysis analysis) {
+    super(state, random, track, coins, color, analysis);
+    search = new MonteCarloSearch(analysis, coins, MAX_NODES, random.nextLong());
+    prevI = state.i;
+    prevJ = state.j;
+  }
+
+  @Override
+  public Direction getDirection(long remainingTime) {
+    collected = search.collect(collected, prevI, prevJ, state.i, state.j);
+    prevI = state.i;
+    prevJ = state.j;
+    int distance = analysis.distanceToFinish(state.i, state.j);
+    int moves = (distance < 0 ? 0 : AStar.turns(distance, Math.max(Math.abs(state.vi), Math.abs(state.vj)))) + coins.length + RESERVE;
+    long time = Math.min(MAX_MOVE_TIME, remainingTime / moves);
+    long current = PackedState.pack(state);
+    int idx = time < MIN_MOVE_TIME ? search.greedyDirection(current) : search.search(current, collected, turn, System.nanoTime() + time);
+    turn++;
+    return RaceTrackGame.DIRECTIONS[idx];
+  }
+
+  /**
+   * Returns the search of the player.
+   * @return search
+   */
+  public MonteCarloSearch getSearch() {
+    return search;
+  }
+
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package game.racetrack.players;
+
+import java.util.Random;
+
+import game.racetrack.Direction;
+import game.racetrack.RaceTrackGame;
+import game.racetrack.RaceTrackPlayer;
+import game.racetrack.search.AStar;
+import game.racetrack.search.ParallelSearch;
+import game.racetrack.utils.Cell;
+import game.racetrack.utils.Coin;
+import game.racetrack.utils.PackedState;
+import game.racetrack.utils.PlayerState;
+import game.racetrack.utils.TrackAnalysis;
+import game.racetrack.utils.TrackGrid;
+
+/**
+ * Represents a {@link RaceTrackPlayer} that follows an optimal plan to the 
+ * finish found by the {@link ParallelSearch} on several threads (the coins 
+ * are not collected). The plan is searched again, if the player is not where 
+ * the plan expects. If the search gives up, the player follows the partial 
+ * plan of an {@link AStar} search, as the {@link AStarPlayer}.
+ * <p>
+ * The number of threads is set by the <code>racetrack.threads</code> system 
+ * property (default: the number of processors). The engine charges the CPU 
+ * time of the helper threads only with <code>-Dengine.cpu=group</code>. The 
+ * threads are stopped, when the engine closes the player at the end of the 
+ * game.
+ */
+public class ParallelPlayer extends RaceTrackPlayer implements AutoCloseable {
+  /** system property of the number of threads */
+  public static final String THREADS = "racetrack.threads";
+  /** maximal number of expanded states of a search */
+  public static final long MAX_NODES = 1L << 20;
+  private final ParallelSearch search;
+  private final AStar fallback;
+  private Direction[] plan;
+  private int step;
+  private long expected;
+
+  /**
+   * Creates the player by the specified values, the analysis of the track 
+   * is computed by the player.
+   * @param state state of the player (position and velocity)
+   * @param random random number generator
+   * @param track matrix, that represents the track
+   * @param coins list of coins on the track
+   * @param color the color of the player
+   */
+  public ParallelPlayer(PlayerState state, Random random, int[][] track, Coin[] coins, int color) {
+    this(state, random, track, coins, color, new TrackAnalysis(new TrackGrid(track), new Cell(state.i, state.j), coins));
+  }
+
+  /**
+   * Creates the player by the specified values.
+   * @param state state of the player (position and velocity)
+   * @param random random number generator
+   * @param track matrix, that represents the track
+   * @param coins list of coins on the track
+   * @param color the color of the player
+   * @param analysis analysis of the track
+   */
+  public ParallelPlayer(PlayerState state, Random random, int[][] track, Coin[] coins, int color, TrackAnalysis analysis) {
+    super(state, random, track, coins, color, analysis);
+    int threads = Integer.getInteger(THREADS, Runtime.getRuntime().availableProcessors());
+    search = new ParallelSearch(analysis, Math.max(1, Math.min(threads, ParallelSearch.MAX_THREADS)), MAX_NODES, ParallelSearch.tableSize(analysis, MAX_NODES));
+    fallback = new AStar(analysis, AStarPlayer.MAX_NODES);
+  }
+
+  @Override
+  public Direction getDirection(long remainingTime) {
+    long current = PackedState.pack(state);
+    if (plan == null || plan.length <= step || current != expected) {
+      plan = search.search(state);
+      if (plan == null) {
+        plan = fallback.search(state);
+      }
+      if (plan == null) {
+        plan = fallback.getPartialPlan();
+      }
+      step = 0;
+    }
+    if (plan.length <= step) {
+      return RaceTrackGame.DIRECTIONS[0];
+    }
+    Direction direction = plan[step++];
+    expected = analysis.getTransitions().move(current, direction);
+    return direction;
+  }
+
+  @Override
+  public void close() {
+    search.shutdown();
+  }
+
+}
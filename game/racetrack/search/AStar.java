@@ -0,0 +1,393 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+
+package game.racetrack.search;
+
+import java.util.Arrays;
+
+import game.engine.Deadline;
+import game.racetrack.Direction;
+import game.racetrack.RaceTrackGame;
+import game.racetrack.utils.PackedState;
+import game.racetrack.utils.PlayerState;
+import game.racetrack.utils.TrackAnalysis;
+import game.racetrack.utils.TransitionCache;
+
+/**
+ * A* search over the states (position and velocity) of a player, the moves 
+ * follow the rules of the game (wall collisions included) by the 
+ * {@link TransitionCache} of the track. A turn costs one, the search finds a 
+ * plan with the minimal number of turns to a finish cell.
+ * <p>
+ * The heuristic is the minimal number of turns the distance to the finish 
+ * (see {@link TrackAnalysis#distanceToFinish(int, int)}) can be covered in 
+ * by accelerating from the current speed (see {@link AStar#turns(int, int)}). 
+ * The cells of a move form an 8-connected path of speed steps, and the speed 
+ * can grow by one in a turn, so the heuristic is admissible.
+ * <p>
+ * The states are packed longs, the open set is a binary heap of longs, the 
+ * closed set is an open addressing hash table of node indices, the arrays are 
+ * kept between the searches.
+ */
+public class AStar {
+  /** default maximal number of nodes of a search */
+  public static final int DEFAULT_MAX_NODES = 1 << 22;
+  
+  private static final int COST_BITS = 20;
+  private static final int NODE_BITS = 24;
+  private static final int MAX_COST = (1 << COST_BITS) - 1;
+  private static final int CHECK_MASK = (1 << 8) - 1;
+  
+  private final TrackAnalysis analysis;
+  private final TransitionCache transitions;
+  private final int maxNodes;
+  
+  private long[] states = new long[1 << 12];
+  private int[] parents = new int[1 << 12];
+  private int[] costs = new int[1 << 12];
+  private byte[] actions = new byte[1 << 12];
+  private int size;
+  private int[] table = new int[1 << 13];
+  private long[] heap = new long[1 << 12];
+  private int heapSize;
+  private int expanded;
+  private int best;
+  private int bestEstimate;
+  
+  /**
+   * Creates a search on the track of the specified analysis.
+   * @param analysis of the track
+   */
+  public AStar(TrackAnalysis analysis) {
+    this(analysis, DEFAULT_MAX_NODES);
+  }
+  
+  /**
+   * Creates a search on the track of the specified analysis, that gives up 
+   * after the specified number of nodes.
+   * @param analysis of the track
+   * @param maxNodes maximal number of nodes of a search (at most 2^24)
+   */
+  public AStar(TrackAnalysis analysis, int maxNodes) {
+    this.analysis = analysis;
+    this.transitions = analysis.getTransitions();
+    this.maxNodes = Math.min(maxNodes, 1 << NODE_BITS);
+    Arrays.fill(table, -1);
+  }
+  
+  /**
+   * Returns the minimal number of turns, the specified distance can be 
+   * covered in from the specified speed, if the speed grows by one in every 
+   * turn: the minimal t, where t * speed + t * (t + 1) / 2 &gt;= distance.
+   * @param distance to be covered
+   * @param speed current speed
+   * @return minimal number of turns
+   */
+  public static int turns(int distance, int speed) {
+    if (distance <= 0) {
+      return 0;
+    }
+    double b = 2.0 * speed + 1;
+    long t = Math.max(0, (long) Math.ceil((Math.sqrt(b * b + 8.0 * distance) - b) / 2));
+    while (0 < t && (t - 1) * speed + (t - 1) * t / 2 >= distance) {
+      t--;
+    }
+    while (t * speed + t * (t + 1) / 2 < distance) {
+      t++;
+    }
+    return (int) t;
+  }
+  
+  /**
+   * Returns the estimated number of turns from the specified state to the 
+   * finish, it must not overestimate.
+   * @param distance distance of the position to the finish
+   * @param vi vertical velocity
+   * @param vj horizontal velocity
+   * @return estimated number of turns
+   */
+  protected int heuristic(int distance, int vi, int vj) {
+    return turns(distance, Math.max(Math.abs(vi), Math.abs(vj)));
+  }
+  
+  /**
+   * Returns the number of expanded nodes of the last search.
+   * @return number of expanded nodes
+   */
+  public int getExpanded() {
+    return expanded;
+  }
+  
+  /**
+   * Returns the number of nodes of the last search.
+   * @return number of nodes
+   */
+  public int getNodes() {
+    return size;
+  }
+  
+  /**
+   * Searches an optimal plan from the specified state to the finish.
+   * @param start state of the player
+   * @return directions of the plan (empty if the start is on the finish), 
+   * null if the finish can not be reached or the search has run out of nodes
+   */
+  public Direction[] search(PlayerState start) {
+    return search(start, null, 0);
+  }
+  
+  /**
+   * Searches an optimal plan from the specified state to the finish until the 
+   * specified move of the deadline token expires. The first direction to the 
+   * best node so far (see {@link AStar#getPartialPlan()}) is published to the 
+   * token periodically.
+   * @param start state of the player
+   * @param deadline token of the player, can be null
+   * @param move index of the move the search belongs to
+   * @return directions of the plan (empty if the start is on the finish), 
+   * null if the finish can not be reached, the search has run out of nodes 
+   * or the deadline has expired
+   */
+  public Direction[] search(PlayerState start, Deadline deadline, int move) {
+    clear();
+    long state = PackedState.pack(start);
+    int distance = analysis.distanceToFinish(start.i, start.j);
+    if (distance == TrackAnalysis.UNREACHABLE) {
+      return null;
+    }
+    best = add(state, -1, 0, 0);
+    bestEstimate = heuristic(distance, start.vi, start.vj);
+    push(bestEstimate, 0, best);
+    while (0 < heapSize) {
+      long entry = pop();
+      int node = (int) (entry & ((1 << NODE_BITS) - 1));
+      int cost = MAX_COST - (int) ((entry >>> NODE_BITS) & MAX_COST);
+      if (cost != costs[node]) {
+        // a cheaper path has been found to the node since it was pushed
+        continue;
+      }
+      state = states[node];
+      if (analysis.distanceToFinish(PackedState.i(state), PackedState.j(state)) == 0) {
+        return plan(node);
+      }
+      expanded++;
+      if (deadline != null && (expanded & CHECK_MASK) == 0) {
+        // published first, so the partial plan starts with the published direction
+        if (0 < costs[best]) {
+          deadline.publish(move, firstDirection(best));
+        }
+        if (deadline.isExpired(move)) {
+          return null;
+        }
+      }
+      for (int d = 0; d < RaceTrackGame.DIRECTIONS.length; d++) {
+        long next = transitions.move(state, RaceTrackGame.DIRECTIONS[d]);
+        distance = analysis.distanceToFinish(PackedState.i(next), PackedState.j(next));
+        if (distance == TrackAnalysis.UNREACHABLE) {
+          continue;
+        }
+        int other = find(next);
+        if (other < 0) {
+          if (size == maxNodes || MAX_COST <= cost + 1) {
+            return null;
+          }
+          other = add(next, node, cost + 1, d);
+        } else if (cost + 1 < costs[other]) {
+          costs[other] = cost + 1;
+          parents[other] = node;
+          actions[other] = (byte) d;
+        } else {
+          continue;
+        }
+        int estimate = heuristic(distance, PackedState.vi(next), PackedState.vj(next));
+        if (estimate < bestEstimate || (estimate == bestEstimate && cost + 1 < costs[best])) {
+          best = other;
+          bestEstimate = estimate;
+        }
+        push(cost + 1 + estimate, cost + 1, other);
+      }
+    }
+    return null;
+  }
+  
+  /**
+   * Returns the plan of the last search to the node, that has the lowest 
+   * estimated cost to the finish (the cheaper one of the equal ones). The 
+   * search may give up on large tracks, then the player can follow this 
+   * plan and search again from its end.
+   * @return directions of the plan to the best node of the last search
+   */
+  public Direction[] getPartialPlan() {
+    return size == 0 ? new Direction[0] : plan(best);
+  }
+  
+  /**
+   * Removes the nodes of the previous search, only the used slots of the hash 
+   * table are cleared.
+   */
+  private void clear() {
+    for (int node = 0; node < size; node++) {
+      int slot = slot(states[node]);
+      while (table[slot] != node) {
+        slot = (slot + 1) & (table.length - 1);
+      }
+      table[slot] = -1;
+    }
+    size = 0;
+    heapSize = 0;
+    expanded = 0;
+  }
+  
+  /**
+   * Returns the directions from the start to the specified node.
+   * @param node last node of the plan
+   * @return directions of the plan
+   */
+  private Direction[] plan(int node) {
+    Direction[] result = new Direction[costs[node]];
+    for (int idx = result.length - 1; 0 <= idx; idx--) {
+      result[idx] = RaceTrackGame.DIRECTIONS[actions[node]];
+      node = parents[node];
+    }
+    return result;
+  }
+  
+  /**
+   * Returns the first direction from the start to the specified node.
+   * @param node a node other than the start
+   * @return first direction of the plan to the node
+   */
+  private Direction firstDirection(int node) {
+    while (0 < costs[parents[node]]) {
+      node = parents[node];
+    }
+    return RaceTrackGame.DIRECTIONS[actions[node]];
+  }
+  
+  /**
+   * Returns the slot of the hash table for the specified state.
+   * @param state packed state
+   * @return slot of the state
+   */
+  private int slot(long state) {
+    return (int) ((state * 0x9E3779B97F4A7C15L) >>> 32) & (table.length - 1);
+  }
+  
+  /**
+   * Returns the node of the specified state.
+   * @param state packed state
+   * @return index of the node, -1 if the state has no node
+   */
+  private int find(long state) {
+    for (int slot = slot(state); table[slot] != -1; slot = (slot + 1) & (table.length - 1)) {
+      if (states[table[slot]] == state) {
+        return table[slot];
+      }
+    }
+    return -1;
+  }
+  
+  /**
+   * Adds a node of the specified values.
+   * @param state packed state
+   * @param parent index of the parent node
+   * @param cost number of turns from the start
+   * @param action index of the direction from the parent
+   * @return index of the node
+   */
+  private int add(long state, int parent, int cost, int action) {
+    if (size == states.length) {
+      states = Arrays.copyOf(states, 2 * size);
+      parents = Arrays.copyOf(parents, 2 * size);
+      costs = Arrays.copyOf(costs, 2 * size);
+      actions = Arrays.copyOf(actions, 2 * size);
+    }
+    if (table.length < 2 * (size + 1)) {
+      table = new int[2 * table.length];
+      Arrays.fill(table, -1);
+      for (int node = 0; node < size; node++) {
+        insert(node);
+      }
+    }
+    states[size] = state;
+    parents[size] = parent;
+    costs[size] = cost;
+    actions[size] = (byte) action;
+    insert(size);
+    return size++;
+  }
+  
+  /**
+   * Inserts the specified node to the hash table.
+   * @param node index of the node
+   */
+  private void insert(int node) {
+    int slot = slot(states[node]);
+    while (table[slot] != -1) {
+      slot = (slot + 1) & (table.length - 1);
+    }
+    table[slot] = node;
+  }
+  
+  /**
+   * Pushes the specified node to the open set, the nodes of lower estimated 
+   * total cost come first, then the deeper ones.
+   * @param estimate estimated total cost
+   * @param cost cost from the start
+   * @param node index of the node
+   */
+  private void push(int estimate, int cost, int node) {
+    if (heapSize == heap.length) {
+      heap = Arrays.copyOf(heap, 2 * heapSize);
+    }
+    long entry = ((long) estimate << (COST_BITS + NODE_BITS)) | ((long) (MAX_COST - cost) << NODE_BITS) | node;
+    int idx = heapSize++;
+    while (0 < idx && entry < heap[(idx - 1) >>> 1]) {
+      heap[idx] = heap[(idx - 1) >>> 1];
+      idx = (idx - 1) >>> 1;
+    }
+    heap[idx] = entry;
+  }
+  
+  /**
+   * Removes and returns the first entry of the open set.
+   * @return first entry
+   */
+  private long pop() {
+    long result = heap[0];
+    long entry = heap[--heapSize];
+    int idx = 0;
+    while (true) {
+      int child = 2 * idx + 1;
+      if (heapSize <= child) {
+        break;
+      }
+      if (child + 1 < heapSize && heap[child + 1] < heap[child]) {
+        child++;
+      }
+      if (entry <= heap[child]) {
+        break;
+      }
+      heap[idx] = heap[child];
+      idx = child;
+    }
+    heap[idx] = entry;
+    return result;
+  }
+}
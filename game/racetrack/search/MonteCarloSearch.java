@@ -0,0 +1,501 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+
+package game.racetrack.search;
+
+import java.util.Arrays;
+
+import game.racetrack.RaceTrackGame;
+import game.racetrack.utils.Coin;
+import game.racetrack.utils.PackedState;
+import game.racetrack.utils.TrackAnalysis;
+import game.racetrack.utils.TransitionCache;
+
+/**
+ * Monte Carlo tree search (UCT) over the states of a player, that trades the
+ * turns to the finish against the values of the coins, as the score of the
+ * game does: the reward of a simulation is the value of the collected coins
+ * minus the number of turns (the turns after the end of a rollout are
+ * estimated by {@link AStar#turns(int, int)}).
+ * <p>
+ * The nodes are stored in primitive arrays, the 9 children of a node are a
+ * contiguous block, so a node is its index. The arrays grow up to the
+ * specified number of nodes. The rollouts move by the {@link TransitionCache}
+ * and check the crossed coins by {@link RaceTrackGame#isCrossed(int, int, int, int, int, int)},
+ * so they do not allocate. The collected coins are a bit mask (only the first
+ * 64 coins are taken into account).
+ * <p>
+ * The tree is kept between the moves: if the next search starts from the
+ * chosen child, the child becomes the root, and the nodes out of its subtree
+ * are dropped when the arrays are full (the remaining ones keep their order,
+ * so they can be moved in place).
+ */
+public class MonteCarloSearch {
+  /** default maximal number of nodes */
+  public static final int DEFAULT_MAX_NODES = 1 << 21;
+  /** maximal number of turns of a rollout */
+  public static final int HORIZON = 64;
+  /** exploration constant of the normalized rewards */
+  public static final double EXPLORATION = 0.7;
+
+  private static final int BRANCHING = RaceTrackGame.DIRECTIONS.length;
+  private static final int CHECK_MASK = (1 << 3) - 1;
+
+  private final TrackAnalysis analysis;
+  private final TransitionCache transitions;
+  private final int[] coinI;
+  private final int[] coinJ;
+  private final int[] coinValue;
+  private final int maxNodes;
+
+  private long[] states;
+  private long[] masks;
+  private double[] values;
+  private int[] parents;
+  private int[] children;
+  private int[] visits;
+  private int size;
+  private int root = -1;
+  private int chosen = -1;
+  private double minReward;
+  private double maxReward;
+  private long seed;
+
+  private long rollouts;
+  private long elapsed;
+  private long totalRollouts;
+  private long totalElapsed;
+
+  /**
+   * Creates a search on the track of the specified analysis.
+   * @param analysis of the track
+   * @param coins on the track
+   * @param maxNodes maximal number of nodes of the tree
+   * @param seed of the random numbers of the rollouts
+   */
+  public MonteCarloSearch(TrackAnalysis analysis, Coin[] coins, int maxNodes, long seed) {
+    this.analysis = analysis;
+    this.transitions = analysis.getTransitions();
+    int count = Math.min(coins.length, Long.SIZE);
+    this.coinI = new int[count];
+    this.coinJ = new int[count];
+    this.coinValue = new int[count];
+    for (int idx = 0; idx < count; idx++) {
+      coinI[idx] = coins[idx].i;
+      coinJ[idx] = coins[idx].j;
+      coinValue[idx] = coins[idx].value;
+    }
+    this.maxNodes = Math.max(BRANCHING + 1, maxNodes);
+    int capacity = Math.min(1 << 16, this.maxNodes);
+    states = new long[capacity];
+    masks = new long[capacity];
+    values = new double[capacity];
+    parents = new int[capacity];
+    children = new int[capacity];
+    visits = new int[capacity];
+    this.seed = seed == 0 ? 0x9E3779B97F4A7C15L : seed;
+  }
+
+  /**
+   * Returns the specified mask of the collected coins extended by the coins
+   * of the move between the specified cells.
+   * @param mask collected coins
+   * @param fromI row index of the move start
+   * @param fromJ column index of the move start
+   * @param toI row index of the move end
+   * @param toJ column index of the move end
+   * @return collected coins after the move
+   */
+  public long collect(long mask, int fromI, int fromJ, int toI, int toJ) {
+    int minI = Math.min(fromI, toI);
+    int maxI = Math.max(fromI, toI);
+    int minJ = Math.min(fromJ, toJ);
+    int maxJ = Math.max(fromJ, toJ);
+    for (int idx = 0; idx < coinI.length; idx++) {
+      if ((mask & (1L << idx)) == 0 && minI <= coinI[idx] && coinI[idx] <= maxI && minJ <= coinJ[idx] && coinJ[idx] <= maxJ
+          && RaceTrackGame.isCrossed(fromI, fromJ, toI, toJ, coinI[idx], coinJ[idx])) {
+        mask |= 1L << idx;
+      }
+    }
+    return mask;
+  }
+
+  /**
+   * Returns the total value of the coins of the specified mask.
+   * @param mask collected coins
+   * @return value of the coins
+   */
+  public int value(long mask) {
+    int result = 0;
+    while (mask != 0) {
+      result += coinValue[Long.numberOfTrailingZeros(mask)];
+      mask &= mask - 1;
+    }
+    return result;
+  }
+
+  /**
+   * Searches the best direction from the specified state until the specified
+   * time. The tree of the previous search is reused, if the state is the one
+   * of its chosen child.
+   * @param state packed state of the player
+   * @param mask coins collected by the player
+   * @param turn number of turns the player has made
+   * @param end the search stops at this {@link System#nanoTime()}
+   * @return index of the best direction in {@link RaceTrackGame#DIRECTIONS}
+   */
+  public int search(long state, long mask, int turn, long end) {
+    long start = System.nanoTime();
+    reroot(state, mask);
+    rollouts = 0;
+    do {
+      for (int k = 0; k <= CHECK_MASK; k++) {
+        iterate(turn);
+      }
+    } while (System.nanoTime() - end < 0);
+    elapsed = System.nanoTime() - start;
+    totalRollouts += rollouts;
+    totalElapsed += elapsed;
+    chosen = best();
+    return chosen < 0 ? 0 : chosen - children[root];
+  }
+
+  /**
+   * Makes the chosen child of the previous search the root, if it has the
+   * specified state, or starts a new tree.
+   * @param state packed state of the player
+   * @param mask coins collected by the player
+   */
+  private void reroot(long state, long mask) {
+    if (0 <= chosen && states[chosen] == state && masks[chosen] == mask) {
+      root = chosen;
+      parents[root] = -1;
+      if (states.length <= 2 * size && maxNodes <= states.length) {
+        compact();
+      }
+    } else {
+      size = 0;
+      root = add(state, mask, -1);
+      minReward = Double.POSITIVE_INFINITY;
+      maxReward = Double.NEGATIVE_INFINITY;
+    }
+  }
+
+  /**
+   * Drops the nodes out of the subtree of the root. The blocks of children
+   * are added after their parents, so a forward sweep finds the subtree, and
+   * the kept nodes can be moved to their rank in place.
+   */
+  private void compact() {
+    int[] rank = new int[size];
+    Arrays.fill(rank, -1);
+    rank[root] = 0;
+    int count = 0;
+    for (int node = root; node < size; node++) {
+      if (rank[node] < 0) {
+        continue;
+      }
+      rank[node] = count++;
+      if (0 <= children[node]) {
+        for (int d = 0; d < BRANCHING; d++) {
+          rank[children[node] + d] = 0;
+        }
+      }
+    }
+    for (int node = root; node < size; node++) {
+      int to = rank[node];
+      if (to < 0) {
+        continue;
+      }
+      states[to] = states[node];
+      masks[to] = masks[node];
+      values[to] = values[node];
+      visits[to] = visits[node];
+      parents[to] = parents[node] < 0 ? -1 : rank[parents[node]];
+      children[to] = children[node] < 0 ? -1 : rank[children[node]];
+    }
+    root = 0;
+    size = count;
+  }
+
+  /**
+   * Runs a simulation: selects a path from the root by UCT, expands its leaf,
+   * plays a rollout and propagates the reward back.
+   * @param turn number of turns the player has made before the root
+   */
+  private void iterate(int turn) {
+    int node = root;
+    int depth = 0;
+    double reward;
+    while (true) {
+      long state = states[node];
+      int distance = analysis.distanceToFinish(PackedState.i(state), PackedState.j(state));
+      if (distance == 0) {
+        reward = value(masks[node]) - (turn + depth);
+        break;
+      }
+      if (children[node] < 0 && (visits[node] == 0 || !expand(node))) {
+        reward = rollout(state, masks[node], turn + depth);
+        break;
+      }
+      int next = select(node);
+      if (next < 0) {
+        reward = rollout(state, masks[node], turn + depth);
+        break;
+      }
+      node = next;
+      depth++;
+    }
+    rollouts++;
+    minReward = Math.min(minReward, reward);
+    maxReward = Math.max(maxReward, reward);
+    for (; 0 <= node; node = parents[node]) {
+      visits[node]++;
+      values[node] += reward;
+      if (node == root) {
+        break;
+      }
+    }
+  }
+
+  /**
+   * Adds the children of the specified node, if there is space for them.
+   * @param node to be expanded
+   * @return true, if the node has been expanded
+   */
+  private boolean expand(int node) {
+    if (states.length < size + BRANCHING) {
+      if (maxNodes <= states.length) {
+        return false;
+      }
+      grow(Math.min(maxNodes, 2 * states.length));
+    }
+    long state = states[node];
+    int first = size;
+    for (int d = 0; d < BRANCHING; d++) {
+      long next = transitions.move(state, RaceTrackGame.DIRECTIONS[d]);
+      long mask = collect(masks[node], PackedState.i(state), PackedState.j(state), PackedState.i(next), PackedState.j(next));
+      int child = add(next, mask, node);
+      if (!analysis.isReachable(PackedState.i(next), PackedState.j(next))) {
+        visits[child] = -1;
+      }
+    }
+    children[node] = first;
+    return true;
+  }
+
+  /**
+   * Returns the child of the specified node to be simulated: an unvisited one
+   * or the one of the highest upper confidence bound.
+   * @param node expanded node
+   * @return selected child, -1 if every child is unreachable
+   */
+  private int select(int node) {
+    int first = children[node];
+    int offset = (int) ((nextRandom() >>> 33) % BRANCHING);
+    double range = maxReward - minReward;
+    double log = Math.log(Math.max(1, visits[node]));
+    int result = -1;
+    double max = Double.NEGATIVE_INFINITY;
+    for (int k = 0; k < BRANCHING; k++) {
+      int child = first + (k + offset) % BRANCHING;
+      int count = visits[child];
+      if (count < 0) {
+        continue;
+      }
+      if (count == 0) {
+        return child;
+      }
+      double mean = values[child] / count;
+      double score = (0 < range ? (mean - minReward) / range : 0.5) + EXPLORATION * Math.sqrt(log / count);
+      if (max < score) {
+        max = score;
+        result = child;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Plays a rollout from the specified state: the moves are greedy (to the
+   * finish) or random, half and half.
+   * @param state packed state
+   * @param mask collected coins
+   * @param turns number of turns before the state
+   * @return reward of the rollout
+   */
+  private double rollout(long state, long mask, int turns) {
+    for (int t = 0; t < HORIZON; t++) {
+      int distance = analysis.distanceToFinish(PackedState.i(state), PackedState.j(state));
+      if (distance == 0) {
+        break;
+      }
+      long random = nextRandom();
+      long next = transitions.move(state, RaceTrackGame.DIRECTIONS[(int) ((random >>> 33) % BRANCHING)]);
+      if ((random & 1) == 0 || !analysis.isReachable(PackedState.i(next), PackedState.j(next))) {
+        next = greedy(state);
+      }
+      mask = collect(mask, PackedState.i(state), PackedState.j(state), PackedState.i(next), PackedState.j(next));
+      state = next;
+      turns++;
+    }
+    int distance = analysis.distanceToFinish(PackedState.i(state), PackedState.j(state));
+    int speed = Math.max(Math.abs(PackedState.vi(state)), Math.abs(PackedState.vj(state)));
+    return value(mask) - turns - AStar.turns(distance, speed);
+  }
+
+  /**
+   * Returns the successor of the specified state, that is the closest to the
+   * finish.
+   * @param state packed state
+   * @return closest successor
+   */
+  private long greedy(long state) {
+    long result = state;
+    int min = Integer.MAX_VALUE;
+    for (int d = 0; d < BRANCHING; d++) {
+      long next = transitions.move(state, RaceTrackGame.DIRECTIONS[d]);
+      int distance = analysis.distanceToFinish(PackedState.i(next), PackedState.j(next));
+      if (distance != TrackAnalysis.UNREACHABLE && distance < min) {
+        min = distance;
+        result = next;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the direction, that moves the specified state closest to the 
+   * finish (without search).
+   * @param state packed state
+   * @return index of the greedy direction in {@link RaceTrackGame#DIRECTIONS}
+   */
+  public int greedyDirection(long state) {
+    int result = 0;
+    int min = Integer.MAX_VALUE;
+    for (int d = 0; d < BRANCHING; d++) {
+      long next = transitions.move(state, RaceTrackGame.DIRECTIONS[d]);
+      int distance = analysis.distanceToFinish(PackedState.i(next), PackedState.j(next));
+      if (distance != TrackAnalysis.UNREACHABLE && distance < min) {
+        min = distance;
+        result = d;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the most visited child of the root.
+   * @return best child, -1 if the root has no reachable child
+   */
+  private int best() {
+    if (children[root] < 0) {
+      return -1;
+    }
+    int result = -1;
+    for (int d = 0; d < BRANCHING; d++) {
+      int child = children[root] + d;
+      if (0 <= visits[child] && (result < 0 || visits[result] < visits[child])) {
+        result = child;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Adds a leaf node of the specified values.
+   * @param state packed state
+   * @param mask collected coins
+   * @param parent index of the parent node
+   * @return index of the node
+   */
+  private int add(long state, long mask, int parent) {
+    states[size] = state;
+    masks[size] = mask;
+    values[size] = 0;
+    visits[size] = 0;
+    parents[size] = parent;
+    children[size] = -1;
+    return size++;
+  }
+
+  /**
+   * Resizes the node arrays to the specified capacity.
+   * @param capacity new number of nodes
+   */
+  private void grow(int capacity) {
+    states = Arrays.copyOf(states, capacity);
+    masks = Arrays.copyOf(masks, capacity);
+    values = Arrays.copyOf(values, capacity);
+    parents = Arrays.copyOf(parents, capacity);
+    children = Arrays.copyOf(children, capacity);
+    visits = Arrays.copyOf(visits, capacity);
+  }
+
+  /**
+   * Returns the next random number (xorshift64*).
+   * @return random number
+   */
+  private long nextRandom() {
+    seed ^= seed >>> 12;
+    seed ^= seed << 25;
+    seed ^= seed >>> 27;
+    return seed * 0x2545F4914F6CDD1DL;
+  }
+
+  /**
+   * Returns the number of nodes of the tree.
+   * @return number of nodes
+   */
+  public int getNodes() {
+    return size;
+  }
+
+  /**
+   * Returns the number of visits of the root (the reused ones included).
+   * @return number of visits
+   */
+  public int getRootVisits() {
+    return root < 0 ? 0 : visits[root];
+  }
+
+  /**
+   * Returns the number of rollouts of the last search.
+   * @return number of rollouts
+   */
+  public long getRollouts() {
+    return rollouts;
+  }
+
+  /**
+   * Returns the number of rollouts per second of the last search.
+   * @return rollouts per second
+   */
+  public double getRolloutsPerSecond() {
+    return elapsed == 0 ? 0 : rollouts * 1E9 / elapsed;
+  }
+
+  /**
+   * Returns the number of rollouts per second of all searches.
+   * @return rollouts per second
+   */
+  public double getTotalRolloutsPerSecond() {
+    return totalElapsed == 0 ? 0 : totalRollouts * 1E9 / totalElapsed;
+  }
+}
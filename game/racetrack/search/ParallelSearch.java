@@ -0,0 +1,360 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+
+package game.racetrack.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+import game.engine.utils.CpuLedger;
+import game.racetrack.Direction;
+import game.racetrack.RaceTrackGame;
+import game.racetrack.utils.PackedState;
+import game.racetrack.utils.PlayerState;
+import game.racetrack.utils.TrackAnalysis;
+import game.racetrack.utils.TransitionCache;
+
+/**
+ * Parallel iterative deepening A* search over the states of a player on a
+ * {@link ForkJoinPool} of a fixed number of threads. The plans have the
+ * minimal number of turns, as the plans of {@link AStar} (with the same
+ * heuristic).
+ * <p>
+ * An iteration is a depth-first search, that cuts the states whose estimated
+ * total cost exceeds the threshold of the iteration. The successors of the
+ * states of the first {@link ParallelSearch#SPLIT_DEPTH} turns (the 9
+ * directions of the root, then their successors) are forked as tasks, the
+ * deeper frontiers are searched by the tasks sequentially. The threads share
+ * the visited states by a {@link TranspositionTable}: an entry stores the
+ * lowest cost a state has been entered with and the remaining threshold, a
+ * state is cut, if it has been entered at most as expensively with at least
+ * as much threshold left (also by an earlier iteration). The first plan found
+ * stops all tasks.
+ * <p>
+ * The pool never has more threads than the specified number, the threads are
+ * created in the thread group of the thread that calls the search first.
+ */
+public class ParallelSearch {
+  /** maximal number of threads of a search */
+  public static final int MAX_THREADS = 64;
+  /** number of turns, the successors of which are forked */
+  public static final int SPLIT_DEPTH = 3;
+  /** default maximal number of expanded states of a search */
+  public static final long DEFAULT_MAX_NODES = 1L << 24;
+  /** default size of the transposition table in megabytes */
+  public static final int DEFAULT_TABLE_SIZE = 32;
+  /** estimated number of visited states (velocities) of a cell of the track */
+  public static final int STATES_PER_CELL = 8;
+
+  private static final int FLUSH_MASK = (1 << 12) - 1;
+
+  private final TrackAnalysis analysis;
+  private final TransitionCache transitions;
+  private final TranspositionTable table;
+  private final ForkJoinPool pool;
+  private final int threads;
+  private final long maxNodes;
+  private final LongAdder expanded = new LongAdder();
+
+  // state of the current iteration
+  private volatile int threshold;
+  private volatile boolean stopped;
+  private final AtomicInteger nextThreshold = new AtomicInteger();
+  private final AtomicReference<Direction[]> result = new AtomicReference<Direction[]>();
+  private int iterations;
+
+  /**
+   * Creates a search on the track of the specified analysis with the specified
+   * number of threads.
+   * @param analysis of the track
+   * @param threads number of threads (1 to {@link ParallelSearch#MAX_THREADS})
+   */
+  public ParallelSearch(TrackAnalysis analysis, int threads) {
+    this(analysis, threads, DEFAULT_MAX_NODES, DEFAULT_TABLE_SIZE);
+  }
+
+  /**
+   * Creates a search on the track of the specified analysis with the specified
+   * number of threads, that gives up after the specified number of expanded
+   * states.
+   * @param analysis of the track
+   * @param threads number of threads (1 to {@link ParallelSearch#MAX_THREADS})
+   * @param maxNodes maximal number of expanded states of a search
+   * @param tableSize size of the transposition table in megabytes
+   */
+  public ParallelSearch(TrackAnalysis analysis, int threads, long maxNodes, int tableSize) {
+    if (threads < 1 || MAX_THREADS < threads) {
+      throw new IllegalArgumentException("threads must be between 1 and " + MAX_THREADS + ": " + threads);
+    }
+    this.analysis = analysis;
+    this.transitions = analysis.getTransitions();
+    this.table = new TranspositionTable(tableSize, TranspositionTable.Replacement.DEPTH_AGE);
+    this.threads = threads;
+    this.maxNodes = maxNodes;
+    // no compensating threads: a blocked join runs with fewer threads instead
+    this.pool = new ForkJoinPool(threads, new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+          @Override
+          public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+            return new ForkJoinWorkerThread(pool) {
+              @Override
+              protected void onTermination(Throwable exception) {
+                // the engine charges the time of the worker after its last sample
+                CpuLedger.exit();
+                super.onTermination(exception);
+              }
+            };
+          }
+        }, null, false,
+        threads, threads, 1, new Predicate<ForkJoinPool>() {
+          @Override
+          public boolean test(ForkJoinPool pool) {
+            return true;
+          }
+        }, 60, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Returns the size of the transposition table of a search on the track of 
+   * the specified analysis, that gives up after the specified number of 
+   * expanded states: an entry for every expanded state, but at most 
+   * {@link ParallelSearch#STATES_PER_CELL} for a cell of the track, and at 
+   * most {@link ParallelSearch#DEFAULT_TABLE_SIZE} megabytes.
+   * @param analysis of the track
+   * @param maxNodes maximal number of expanded states of a search
+   * @return size of the table in megabytes
+   */
+  public static int tableSize(TrackAnalysis analysis, long maxNodes) {
+    long states = Math.min(maxNodes, (long) analysis.n * analysis.m * STATES_PER_CELL);
+    // an entry is two longs
+    long megabytes = (16 * states + (1 << 20) - 1) >> 20;
+    return (int) Math.max(1, Math.min(DEFAULT_TABLE_SIZE, megabytes));
+  }
+
+  /**
+   * Searches an optimal plan from the specified state to the finish.
+   * @param start state of the player
+   * @return directions of the plan (empty if the start is on the finish),
+   * null if the finish can not be reached or the search has run out of nodes
+   */
+  public Direction[] search(PlayerState start) {
+    expanded.reset();
+    iterations = 0;
+    int distance = analysis.distanceToFinish(start.i, start.j);
+    if (distance == TrackAnalysis.UNREACHABLE) {
+      return null;
+    }
+    table.newGeneration();
+    if (table.getGeneration() == 0) {
+      // the entries of 256 searches ago would look current
+      table.clear();
+    }
+    long state = PackedState.pack(start);
+    result.set(null);
+    stopped = false;
+    threshold = heuristic(distance, state);
+    while (true) {
+      iterations++;
+      nextThreshold.set(Integer.MAX_VALUE);
+      pool.invoke(new Expansion(state, 0, new byte[0]));
+      if (result.get() != null) {
+        return result.get();
+      }
+      if (stopped || nextThreshold.get() == Integer.MAX_VALUE) {
+        return null;
+      }
+      threshold = nextThreshold.get();
+    }
+  }
+
+  /**
+   * Returns the estimated number of turns from the specified state to the
+   * finish (see {@link AStar#heuristic(int, int, int)}).
+   * @param distance distance of the position to the finish
+   * @param state packed state
+   * @return estimated number of turns
+   */
+  private static int heuristic(int distance, long state) {
+    return AStar.turns(distance, Math.max(Math.abs(PackedState.vi(state)), Math.abs(PackedState.vj(state))));
+  }
+
+  /**
+   * Enters the specified state of the current iteration: records the plan,
+   * if the state is on the finish, or decides whether the successors of the
+   * state have to be searched.
+   * @param state packed state
+   * @param cost number of turns from the start
+   * @param path directions from the start (at least cost long)
+   * @return true, if the successors have to be searched
+   */
+  private boolean enter(long state, int cost, byte[] path) {
+    if (stopped) {
+      return false;
+    }
+    int distance = analysis.distanceToFinish(PackedState.i(state), PackedState.j(state));
+    if (distance == 0) {
+      Direction[] plan = new Direction[cost];
+      for (int idx = 0; idx < cost; idx++) {
+        plan[idx] = RaceTrackGame.DIRECTIONS[path[idx]];
+      }
+      // every plan of the iteration is optimal, the first one is kept
+      result.compareAndSet(null, plan);
+      stopped = true;
+      return false;
+    }
+    int estimate = cost + heuristic(distance, state);
+    int limit = threshold;
+    if (limit < estimate) {
+      int next = nextThreshold.get();
+      while (estimate < next && !nextThreshold.compareAndSet(next, estimate)) {
+        next = nextThreshold.get();
+      }
+      return false;
+    }
+    long data = table.probe(state);
+    if (data != TranspositionTable.MISS && TranspositionTable.generation(data) == table.getGeneration()
+        && TranspositionTable.cost(data) <= cost && limit - cost <= TranspositionTable.depth(data)) {
+      return false;
+    }
+    table.store(state, cost, TranspositionTable.UPPER, TranspositionTable.NO_DIRECTION, limit - cost);
+    return true;
+  }
+
+  /**
+   * Task of a state of the first turns, forks the successors of the state or
+   * searches them sequentially below the split depth.
+   */
+  private final class Expansion extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private final long state;
+    private final int cost;
+    private final byte[] path;
+    private long count;
+
+    /**
+     * Creates the task of the specified state.
+     * @param state packed state
+     * @param cost number of turns from the start
+     * @param path directions from the start
+     */
+    private Expansion(long state, int cost, byte[] path) {
+      this.state = state;
+      this.cost = cost;
+      this.path = path;
+    }
+
+    @Override
+    protected void compute() {
+      if (!enter(state, cost, path)) {
+        return;
+      }
+      expanded.increment();
+      if (cost < SPLIT_DEPTH) {
+        List<Expansion> tasks = new ArrayList<Expansion>(RaceTrackGame.DIRECTIONS.length);
+        for (int d = 0; d < RaceTrackGame.DIRECTIONS.length; d++) {
+          long next = transitions.move(state, RaceTrackGame.DIRECTIONS[d]);
+          if (analysis.isReachable(PackedState.i(next), PackedState.j(next))) {
+            byte[] nextPath = new byte[cost + 1];
+            System.arraycopy(path, 0, nextPath, 0, cost);
+            nextPath[cost] = (byte) d;
+            tasks.add(new Expansion(next, cost + 1, nextPath));
+          }
+        }
+        invokeAll(tasks);
+      } else {
+        byte[] stack = new byte[threshold + 1];
+        System.arraycopy(path, 0, stack, 0, cost);
+        expand(state, cost, stack);
+        expanded.add(count & FLUSH_MASK);
+      }
+    }
+
+    /**
+     * Searches the successors of the specified entered state depth-first.
+     * @param state packed state
+     * @param cost number of turns from the start
+     * @param stack directions from the start
+     */
+    private void expand(long state, int cost, byte[] stack) {
+      for (int d = 0; d < RaceTrackGame.DIRECTIONS.length && !stopped; d++) {
+        long next = transitions.move(state, RaceTrackGame.DIRECTIONS[d]);
+        if (!analysis.isReachable(PackedState.i(next), PackedState.j(next))) {
+          continue;
+        }
+        stack[cost] = (byte) d;
+        if (enter(next, cost + 1, stack)) {
+          if ((++count & FLUSH_MASK) == 0) {
+            expanded.add(FLUSH_MASK + 1);
+            if (maxNodes <= expanded.sum()) {
+              stopped = true;
+              return;
+            }
+          }
+          expand(next, cost + 1, stack);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the number of expanded states of the last search.
+   * @return number of expanded states
+   */
+  public long getExpanded() {
+    return expanded.sum();
+  }
+
+  /**
+   * Returns the number of iterations of the last search.
+   * @return number of iterations
+   */
+  public int getIterations() {
+    return iterations;
+  }
+
+  /**
+   * Returns the number of threads of the search.
+   * @return number of threads
+   */
+  public int getThreads() {
+    return threads;
+  }
+
+  /**
+   * Returns the transposition table of the search.
+   * @return shared table of the visited states
+   */
+  public TranspositionTable getTable() {
+    return table;
+  }
+
+  /**
+   * Stops the threads of the search, it can not be used anymore.
+   */
+  public void shutdown() {
+    pool.shutdown();
+  }
+}
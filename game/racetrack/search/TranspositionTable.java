@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+
+package game.racetrack.search;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import game.racetrack.Direction;
+import game.racetrack.RaceTrackGame;
+import game.racetrack.utils.PackedState;
+
+/**
+ * Fixed-size, lock-free transposition table of the search players, keyed by 
+ * the {@link PackedState} form of the states. An entry stores a cost bound, 
+ * its type, the best direction, the depth of the search the entry comes 
+ * from and the generation of the table, packed into a long.
+ * <p>
+ * A slot is two longs: the key xor the data and the data. The readers check 
+ * the key by the xor, so an entry torn by concurrent writers fails the check 
+ * (but with a negligible probability) and counts as a miss; no locks are 
+ * needed. The table is shared by the threads of a 
+ * search, the size is given in megabytes (16 bytes a slot, rounded down to a 
+ * power of two slots).
+ */
+public final class TranspositionTable {
+  /**
+   * Decides whether a new entry replaces the entry of an other state in the 
+   * same slot (the entry of the same state is always updated).
+   */
+  public static enum Replacement {
+    /** the new entry always replaces the old one */
+    ALWAYS,
+    /** the new entry replaces the old one, if it comes from a search at least as deep */
+    DEPTH,
+    /** as {@link Replacement#DEPTH}, but entries of older generations are always replaced */
+    DEPTH_AGE
+  }
+  
+  /** the cost is exact */
+  public static final int EXACT = 0;
+  /** the cost is a lower bound */
+  public static final int LOWER = 1;
+  /** the cost is an upper bound */
+  public static final int UPPER = 2;
+  /** returned by {@link TranspositionTable#probe(long)} if the state has no entry */
+  public static final long MISS = -1L;
+  /** direction index of the entries without best direction */
+  public static final int NO_DIRECTION = 15;
+  /** maximal depth can be stored */
+  public static final int MAX_DEPTH = 0xFFFF;
+  
+  private static final long VALID = 1L << 30;
+  
+  private final AtomicLongArray slots;
+  private final int mask;
+  private final Replacement replacement;
+  private volatile int generation;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder replaced = new LongAdder();
+  
+  /**
+   * Creates a table of the specified size.
+   * @param megabytes memory cap of the table
+   * @param replacement policy of the slots
+   */
+  public TranspositionTable(int megabytes, Replacement replacement) {
+    long count = Math.max(1, ((long) megabytes << 20) / 16);
+    int size = Integer.highestOneBit((int) Math.min(1 << 27, count));
+    this.slots = new AtomicLongArray(2 * size);
+    this.mask = size - 1;
+    this.replacement = replacement;
+  }
+  
+  /**
+   * Returns the data of the entry of the specified state.
+   * @param state packed state
+   * @return data of the entry, {@link TranspositionTable#MISS} if the state has no entry
+   */
+  public long probe(long state) {
+    int slot = 2 * index(state);
+    long data = slots.get(slot + 1);
+    if ((data & VALID) != 0 && (slots.get(slot) ^ data) == state) {
+      hits.increment();
+      return data;
+    }
+    misses.increment();
+    return MISS;
+  }
+  
+  /**
+   * Stores an entry of the specified state, if the replacement policy allows 
+   * it.
+   * @param state packed state
+   * @param cost cost bound of the state
+   * @param bound type of the bound ({@link TranspositionTable#EXACT}, {@link TranspositionTable#LOWER} or {@link TranspositionTable#UPPER})
+   * @param direction index of the best direction in {@link RaceTrackGame#DIRECTIONS}, {@link TranspositionTable#NO_DIRECTION} if unknown
+   * @param depth depth of the search the entry comes from
+   * @return true, if the entry has been stored
+   */
+  public boolean store(long state, int cost, int bound, int direction, int depth) {
+    int slot = 2 * index(state);
+    long old = slots.get(slot + 1);
+    if ((old & VALID) != 0 && (slots.get(slot) ^ old) != state) {
+      switch (replacement) {
+      case DEPTH:
+        if (depth(old) > depth) {
+          return false;
+        }
+        break;
+      case DEPTH_AGE:
+        if (generation(old) == (generation & 0xFF) && depth(old) > depth) {
+          return false;
+        }
+        break;
+      default:
+        break;
+      }
+      replaced.increment();
+    }
+    long data = ((long) cost << 32) | VALID | ((long) Math.min(depth, MAX_DEPTH) << 14) | ((long) (generation & 0xFF) << 6) | ((long) bound << 4) | direction;
+    slots.set(slot + 1, data);
+    slots.set(slot, state ^ data);
+    return true;
+  }
+  
+  /**
+   * Starts a new generation of entries, the entries of the older generations 
+   * are replaced first by the {@link Replacement#DEPTH_AGE} policy.
+   */
+  public void newGeneration() {
+    generation++;
+  }
+  
+  /**
+   * Returns the current generation of the table.
+   * @return generation (modulo 256)
+   */
+  public int getGeneration() {
+    return generation & 0xFF;
+  }
+  
+  /**
+   * Removes all entries.
+   */
+  public void clear() {
+    for (int idx = 0; idx < slots.length(); idx++) {
+      slots.set(idx, 0);
+    }
+  }
+  
+  /**
+   * Returns the slot index of the specified state.
+   * @param state packed state
+   * @return index of the slot
+   */
+  private int index(long state) {
+    return (int) ((state * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+  }
+  
+  /**
+   * Returns the cost bound of the specified entry data.
+   * @param data of an entry
+   * @return cost bound
+   */
+  public static int cost(long data) {
+    return (int) (data >> 32);
+  }
+  
+  /**
+   * Returns the type of the cost bound of the specified entry data.
+   * @param data of an entry
+   * @return type of the bound
+   */
+  public static int bound(long data) {
+    return (int) (data >>> 4) & 0x3;
+  }
+  
+  /**
+   * Returns the index of the best direction of the specified entry data.
+   * @param data of an entry
+   * @return index of the direction, {@link TranspositionTable#NO_DIRECTION} if unknown
+   */
+  public static int directionIndex(long data) {
+    return (int) data & 0xF;
+  }
+  
+  /**
+   * Returns the best direction of the specified entry data.
+   * @param data of an entry
+   * @return best direction, null if unknown
+   */
+  public static Direction direction(long data) {
+    int idx = directionIndex(data);
+    return idx == NO_DIRECTION ? null : RaceTrackGame.DIRECTIONS[idx];
+  }
+  
+  /**
+   * Returns the search depth of the specified entry data.
+   * @param data of an entry
+   * @return depth
+   */
+  public static int depth(long data) {
+    return (int) (data >>> 14) & MAX_DEPTH;
+  }
+  
+  /**
+   * Returns the generation of the specified entry data.
+   * @param data of an entry
+   * @return generation (modulo 256)
+   */
+  public static int generation(long data) {
+    return (int) (data >>> 6) & 0xFF;
+  }
+  
+  /**
+   * Returns the number of slots.
+   * @return capacity of the table
+   */
+  public int getCapacity() {
+    return mask + 1;
+  }
+  
+  /**
+   * Returns the number of the probes found an entry.
+   * @return number of hits
+   */
+  public long getHits() {
+    return hits.sum();
+  }
+  
+  /**
+   * Returns the number of the probes found no entry.
+   * @return number of misses
+   */
+  public long getMisses() {
+    return misses.sum();
+  }
+  
+  /**
+   * Returns the number of entries have been replaced by other states.
+   * @return number of replacements
+   */
+  public long getReplaced() {
+    return replaced.sum();
+  }
+  
+  @Override
+  public String toString() {
+    return "{\"capacity\":" + getCapacity() + ",\"replacement\":\"" + replacement + "\",\"hits\":" + getHits() + ",\"misses\":" + getMisses() + ",\"replaced\":" + getReplaced() + "}";
+  }
+}
@@ -18,6 +18,7 @@
 
 package game.racetrack.ui;
 
+import java.awt.Color;
 import java.awt.Graphics;
 
 import game.engine.ui.BoardGameCanvas;
@@ -26,26 +27,62 @@ import game.racetrack.RaceTrackGame;
 
 /**
  * Represents the canvas for the {@link RaceTrackGame} game.
+ * <p>
+ * If the canvas is created with a {@link TrackRenderer}, the track is 
+ * painted incrementally by the renderer instead of drawing all 
+ * {@link RaceTrackGame#getGameObjects()} (the result is the same).
  */
 public class RaceTrackCanvas extends BoardGameCanvas {
   private static final long serialVersionUID = 7870778539016899188L;
   /** maximal screen height */
   public static final int HEIGHT = 800;
+  
+  private final transient TrackRenderer renderer;
 
   /**
-   * Creates the canvas for the game.
+   * Creates the canvas for the game, that draws all game objects at every 
+   * paint.
    * @param n height
    * @param m width
    * @param game canvas belongs to
    */
   public RaceTrackCanvas(int n, int m, Drawable game) {
     super(n, m, HEIGHT / n, game);
+    this.renderer = null;
+  }
+  
+  /**
+   * Creates the canvas for the game, that is painted by the specified 
+   * renderer (its cell size has to be the multiplier of the canvas).
+   * @param n height
+   * @param m width
+   * @param renderer of the track
+   * @param game canvas belongs to
+   */
+  public RaceTrackCanvas(int n, int m, TrackRenderer renderer, Drawable game) {
+    super(n, m, HEIGHT / n, game);
+    this.renderer = multiplier == renderer.cellSize ? renderer : null;
   }
   
   @Override
   public void paintBackground(Graphics graphics) {
   }
   
+  @Override
+  public void paintObjects(Graphics graphics) {
+    if (renderer == null) {
+      super.paintObjects(graphics);
+      return;
+    }
+    renderer.paint(graphics);
+    // the cursor is under the objects of its cell
+    graphics.setColor(Color.RED);
+    graphics.fillRect(lastx * multiplier + 1, lasty * multiplier + 1, multiplier - 1, multiplier - 1);
+    if (0 <= lasty && lasty < n && 0 <= lastx && lastx < m) {
+      renderer.paintCell(graphics, lasty, lastx);
+    }
+  }
+  
   @Override
   public void setCoordinates() {
     CellAction action = new CellAction(lasty, lastx);
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package game.racetrack.ui;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+
+import game.racetrack.RaceTrackGame;
+import game.racetrack.utils.DirtyCells;
+import game.racetrack.utils.TrackGrid;
+
+/**
+ * Renders a track into images incrementally, without GUI components (also 
+ * with <code>java.awt.headless=true</code>). The static layer (background, 
+ * walls and finish) is rendered once, the frame is a copy of it with the 
+ * other objects of the cells. An update redraws only the changed cells of 
+ * the frame (marked by the game in the {@link DirtyCells}): restores them 
+ * from the static layer and draws their objects in the order of 
+ * {@link RaceTrackGame#getGameObjects()}, so the frame is the same as drawing 
+ * all game objects.
+ * <p>
+ * The painting methods are synchronized, the renderer can be painted by the 
+ * GUI and the engine threads.
+ */
+public final class TrackRenderer {
+  /** color of the walls */
+  public static final Color WALL_COLOR = Color.darkGray;
+  /** color of the traces */
+  public static final Color TRACE_COLOR = Color.lightGray;
+  /** color of the finish */
+  public static final Color FINISH_COLOR = Color.pink;
+  /** color of the coins */
+  public static final Color COIN_COLOR = new Color(244, 180, 0);
+  /** colors of the players, indexed by color */
+  public static final Color[] PLAYER_COLORS = new Color[] {new Color(219, 68, 55), new Color(15, 157, 88), new Color(66, 133, 244), Color.gray};
+  
+  private static final int STATIC = RaceTrackGame.WALL | RaceTrackGame.FINISH;
+  private static final int DYNAMIC = RaceTrackGame.TRACE | RaceTrackGame.COIN | RaceTrackGame.PLAYERS[0] 
+      | RaceTrackGame.PLAYERS[1] | RaceTrackGame.PLAYERS[2] | RaceTrackGame.PLAYERS[3];
+  
+  /** size of a cell in pixels */
+  public final int cellSize;
+  /** width of the images */
+  public final int width;
+  /** height of the images */
+  public final int height;
+  private final TrackGrid track;
+  private final DirtyCells dirty;
+  private final Color background;
+  private final int[] cells;
+  private BufferedImage staticLayer;
+  private BufferedImage frame;
+  
+  /**
+   * Creates the renderer of the specified track.
+   * @param track to be rendered
+   * @param dirty changed cells of the track, marked by the game
+   * @param cellSize size of a cell in pixels (at least 1)
+   * @param background color of the empty cells
+   */
+  public TrackRenderer(TrackGrid track, DirtyCells dirty, int cellSize, Color background) {
+    this.track = track;
+    this.dirty = dirty;
+    this.cellSize = cellSize;
+    this.width = track.m * cellSize;
+    this.height = track.n * cellSize;
+    this.background = background;
+    this.cells = new int[dirty.getLimit()];
+  }
+  
+  /**
+   * Redraws the changed cells of the frame and returns the frame, renders 
+   * the static layer and the whole frame at the first call or if the whole 
+   * track has changed. The frame belongs to the renderer, it is changed by 
+   * the next update.
+   * @return frame of the current state of the track
+   */
+  public synchronized BufferedImage update() {
+    if (frame == null) {
+      staticLayer = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+      Graphics graphics = staticLayer.getGraphics();
+      graphics.setColor(background);
+      graphics.fillRect(0, 0, width, height);
+      for (int i = 0; i < track.n; i++) {
+        for (int j = 0; j < track.m; j++) {
+          paintCell(graphics, i, j, track.get(i, j) & STATIC);
+        }
+      }
+      graphics.dispose();
+      frame = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    }
+    Graphics graphics = frame.getGraphics();
+    int count = dirty.drain(cells);
+    if (count < 0) {
+      graphics.drawImage(staticLayer, 0, 0, null);
+      for (int idx = 0; idx < track.size(); idx++) {
+        int value = track.get(idx);
+        if ((value & DYNAMIC) != 0) {
+          paintCell(graphics, idx / track.m, idx % track.m, value);
+        }
+      }
+    } else {
+      for (int idx = 0; idx < count; idx++) {
+        int i = cells[idx] / track.m;
+        int j = cells[idx] % track.m;
+        int x = j * cellSize;
+        int y = i * cellSize;
+        graphics.drawImage(staticLayer, x, y, x + cellSize, y + cellSize, x, y, x + cellSize, y + cellSize, null);
+        paintCell(graphics, i, j, track.get(cells[idx]));
+      }
+    }
+    graphics.dispose();
+    return frame;
+  }
+  
+  /**
+   * Updates the frame and draws it by the specified graphics.
+   * @param graphics used to draw
+   */
+  public synchronized void paint(Graphics graphics) {
+    graphics.drawImage(update(), 0, 0, null);
+  }
+  
+  /**
+   * Draws the objects of the specified cell of the track.
+   * @param graphics used to draw
+   * @param i row index of the cell
+   * @param j column index of the cell
+   */
+  public void paintCell(Graphics graphics, int i, int j) {
+    paintCell(graphics, i, j, track.get(i, j));
+  }
+  
+  /**
+   * Draws the objects of the specified cell in the order of 
+   * {@link RaceTrackGame#getGameObjects()}.
+   * @param graphics used to draw
+   * @param i row index of the cell
+   * @param j column index of the cell
+   * @param value of the cell
+   */
+  private void paintCell(Graphics graphics, int i, int j, int value) {
+    int x = (int) Math.round(cellSize * (j + 0.1));
+    int y = (int) Math.round(cellSize * (i + 0.1));
+    int w = (int) Math.round(cellSize * 0.8);
+    int h = (int) Math.round(cellSize * 0.8);
+    if (RaceTrackGame.mask(value, RaceTrackGame.WALL)) {
+      graphics.setColor(WALL_COLOR);
+      graphics.fillRect(x, y, w, h);
+    }
+    if (RaceTrackGame.mask(value, RaceTrackGame.TRACE)) {
+      graphics.setColor(TRACE_COLOR);
+      graphics.fillOval(x, y, w, h);
+    }
+    if (RaceTrackGame.mask(value, RaceTrackGame.FINISH)) {
+      graphics.setColor(FINISH_COLOR);
+      graphics.fillRect(x, y, w, h);
+    }
+    if (RaceTrackGame.mask(value, RaceTrackGame.COIN)) {
+      graphics.setColor(COIN_COLOR);
+      graphics.fillOval(x, y, w, h);
+    }
+    for (int color = 0; color < PLAYER_COLORS.length; color++) {
+      if (RaceTrackGame.mask(value, RaceTrackGame.PLAYERS[color])) {
+        graphics.setColor(PLAYER_COLORS[color]);
+        graphics.fillOval(x, y, w, h);
+      }
+    }
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package game.racetrack.utils;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Set of the changed cells of a track (by their {@link TrackGrid#index(int, int)}) 
+ * since the last drain, the game marks them and the canvas redraws them. 
+ * Every cell is stored once. If too many cells are marked, or the whole track 
+ * has changed, the set is invalidated: the next drain reports a full redraw 
+ * instead of the cells.
+ * <p>
+ * The methods are synchronized, the game marks the cells on its own thread 
+ * and the canvas drains them on the painting thread.
+ */
+public final class DirtyCells {
+  private final int size;
+  private final int limit;
+  private final BitSet marked;
+  private int[] cells = new int[64];
+  private int count;
+  private boolean invalid = true;
+
+  /**
+   * Creates an invalid set of the specified track (the first drain reports 
+   * a full redraw).
+   * @param track cells of which are marked
+   */
+  public DirtyCells(TrackGrid track) {
+    this.size = track.size();
+    this.limit = Math.max(64, size / 8);
+    this.marked = new BitSet(size);
+  }
+
+  /**
+   * Marks the specified cell.
+   * @param idx index of the cell
+   */
+  public synchronized void add(int idx) {
+    if (invalid || marked.get(idx)) {
+      return;
+    }
+    if (count == limit) {
+      invalidate();
+      return;
+    }
+    if (count == cells.length) {
+      cells = Arrays.copyOf(cells, Math.min(limit, 2 * count));
+    }
+    marked.set(idx);
+    cells[count++] = idx;
+  }
+
+  /**
+   * Marks the first specified number of cells of the specified array.
+   * @param indices of the cells
+   * @param length number of cells
+   */
+  public synchronized void add(int[] indices, int length) {
+    for (int idx = 0; idx < length && !invalid; idx++) {
+      add(indices[idx]);
+    }
+  }
+
+  /**
+   * Invalidates the set, the whole track has to be redrawn.
+   */
+  public synchronized void invalidate() {
+    invalid = true;
+    marked.clear();
+    count = 0;
+  }
+
+  /**
+   * Copies the marked cells to the specified array and clears the set.
+   * @param target array of the cells, at least {@link DirtyCells#getLimit()} long
+   * @return number of the copied cells, -1 if the whole track has to be redrawn
+   */
+  public synchronized int drain(int[] target) {
+    if (invalid) {
+      invalid = false;
+      return -1;
+    }
+    int result = count;
+    System.arraycopy(cells, 0, target, 0, count);
+    for (int idx = 0; idx < count; idx++) {
+      marked.clear(cells[idx]);
+    }
+    count = 0;
+    return result;
+  }
+
+  /**
+   * Returns the maximal number of marked cells, the set is invalidated by 
+   * the next one.
+   * @return maximal number of cells
+   */
+  public int getLimit() {
+    return limit;
+  }
+
+  /**
+   * Returns the number of cells of the track.
+   * @return number of cells
+   */
+  public int size() {
+    return size;
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+
+package game.racetrack.utils;
+
+/**
+ * Packs the state of a player (position and velocity) into a long, so states 
+ * can be stored and compared without objects. Every value is stored on 16 
+ * bits: the position coordinates as unsigned, the velocity coordinates as 
+ * signed values.
+ */
+public final class PackedState {
+  
+  private PackedState() {
+  }
+  
+  /**
+   * Returns the packed form of the specified values.
+   * @param i row index of the position
+   * @param j column index of the position
+   * @param vi vertical velocity
+   * @param vj horizontal velocity
+   * @return packed state
+   */
+  public static long pack(int i, int j, int vi, int vj) {
+    return ((long) (i & 0xFFFF) << 48) | ((long) (j & 0xFFFF) << 32) | ((long) (vi & 0xFFFF) << 16) | (vj & 0xFFFF);
+  }
+  
+  /**
+   * Returns the packed form of the specified state.
+   * @param state to be packed
+   * @return packed state
+   */
+  public static long pack(PlayerState state) {
+    return pack(state.i, state.j, state.vi, state.vj);
+  }
+  
+  /**
+   * Returns the row index of the position of the packed state.
+   * @param state packed state
+   * @return row index
+   */
+  public static int i(long state) {
+    return (int) (state >>> 48);
+  }
+  
+  /**
+   * Returns the column index of the position of the packed state.
+   * @param state packed state
+   * @return column index
+   */
+  public static int j(long state) {
+    return (int) (state >>> 32) & 0xFFFF;
+  }
+  
+  /**
+   * Returns the vertical velocity of the packed state.
+   * @param state packed state
+   * @return vertical velocity
+   */
+  public static int vi(long state) {
+    return (short) (state >>> 16);
+  }
+  
+  /**
+   * Returns the horizontal velocity of the packed state.
+   * @param state packed state
+   * @return horizontal velocity
+   */
+  public static int vj(long state) {
+    return (short) state;
+  }
+  
+  /**
+   * Sets the specified state object by the packed state.
+   * @param state packed state
+   * @param target to be set
+   * @return the target
+   */
+  public static PlayerState unpack(long state, PlayerState target) {
+    target.i = i(state);
+    target.j = j(state);
+    target.vi = vi(state);
+    target.vj = vj(state);
+    return target;
+  }
+  
+  /**
+   * Returns true, iff the specified values can be packed without loss.
+   * @param i row index of the position
+   * @param j column index of the position
+   * @param vi vertical velocity
+   * @param vj horizontal velocity
+   * @return true, if the values fit
+   */
+  public static boolean fits(int i, int j, int vi, int vj) {
+    return 0 <= i && i <= 0xFFFF && 0 <= j && j <= 0xFFFF && 
+           Short.MIN_VALUE <= vi && vi <= Short.MAX_VALUE && Short.MIN_VALUE <= vj && vj <= Short.MAX_VALUE;
+  }
+  
+  /**
+   * Returns true, iff every position of the specified track (and the 
+   * velocities that can be reached on it) can be packed without loss.
+   * @param track to be checked
+   * @return true, if the states of the track fit
+   */
+  public static boolean fits(TrackGrid track) {
+    return track.n <= 0x10000 && track.m <= 0x10000;
+  }
+  
+  /**
+   * Returns the string representation of the packed state.
+   * @param state packed state
+   * @return the state as {@link PlayerState#toString()} shows it
+   */
+  public static String toString(long state) {
+    return "p:(" + i(state) + ", " + j(state) + ") v:(" + vi(state) + ", " + vj(state) + ")";
+  }
+}
@@ -76,6 +76,22 @@ public class PlayerState {
     return i == state.i && j == state.j && 
            vi == state.vi && vj == state.vj;
   }
+  @Override
+  public boolean equals(Object obj) {
+    if (obj instanceof PlayerState) {
+      PlayerState state = (PlayerState) obj;
+      return same(state);
+    }
+    return false;
+  }
+  /**
+   * Returns the hash code of the state, it is derived from the 
+   * {@link PackedState} form, so equal states have equal hash codes.
+   */
+  @Override
+  public int hashCode() {
+    return Long.hashCode(PackedState.pack(this) * 0x9E3779B97F4A7C15L);
+  }
   public String toString() {
     return "p:(" + i + ", " + j + ") v:(" + vi + ", " + vj + ")";
   }
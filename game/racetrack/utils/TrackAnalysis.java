@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package game.racetrack.utils;
+
+import java.util.Arrays;
+
+import game.racetrack.RaceTrackGame;
+
+/**
+ * Read-only analysis of a track, computed once per game by the 
+ * {@link RaceTrackGame} and shared by all of its players. The fields are 
+ * flat row-major arrays (index: row * {@link TrackAnalysis#m} + column), the 
+ * distances are numbers of 8-connected steps between the not wall cells.
+ * <ul>
+ * <li>distance to finish: from the cell to the nearest finish cell, 
+ * {@link TrackAnalysis#UNREACHABLE} if the finish can not be reached</li>
+ * <li>distance to wall: to the nearest wall cell (the outside of the track 
+ * counts as wall), zero on the walls</li>
+ * <li>coin distances: between the start (point 0) and the coins (point 
+ * k + 1 is the coin k)</li>
+ * <li>transitions: a concurrent cache of the moves on the track, see 
+ * {@link TransitionCache}</li>
+ * </ul>
+ */
+public final class TrackAnalysis {
+  /** distance of the cells that can not be reached */
+  public static final int UNREACHABLE = -1;
+  
+  /** number of rows */
+  public final int n;
+  /** number of columns */
+  public final int m;
+  private final int[] finishDistances;
+  private final int[] wallDistances;
+  private final int[] coinDistances;
+  private final int numPoints;
+  private final TransitionCache transitions;
+  
+  /**
+   * Analyzes the specified track.
+   * @param track to be analyzed
+   * @param start start position of the players
+   * @param coins coins on the track
+   */
+  public TrackAnalysis(TrackGrid track, Cell start, Coin[] coins) {
+    this.n = track.n;
+    this.m = track.m;
+    int[] queue = new int[track.size()];
+    
+    // distance to finish: multi-source search from the finish cells
+    finishDistances = new int[track.size()];
+    int size = 0;
+    for (int idx = 0; idx < track.size(); idx++) {
+      if (RaceTrackGame.mask(track.get(idx), RaceTrackGame.FINISH) && !RaceTrackGame.mask(track.get(idx), RaceTrackGame.WALL)) {
+        queue[size++] = idx;
+      }
+    }
+    search(track, queue, size, finishDistances, true);
+    
+    // distance to wall: multi-source search from the walls and the border
+    wallDistances = new int[track.size()];
+    size = 0;
+    for (int idx = 0; idx < track.size(); idx++) {
+      if (RaceTrackGame.mask(track.get(idx), RaceTrackGame.WALL)) {
+        queue[size++] = idx;
+      }
+    }
+    Arrays.fill(wallDistances, UNREACHABLE);
+    for (int idx = 0; idx < size; idx++) {
+      wallDistances[queue[idx]] = 0;
+    }
+    // the cells of the border are next to the outside
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < m; j++) {
+        int idx = i * m + j;
+        if ((i == 0 || j == 0 || i == n - 1 || j == m - 1) && wallDistances[idx] == UNREACHABLE) {
+          wallDistances[idx] = 1;
+          queue[size++] = idx;
+        }
+      }
+    }
+    expand(track, queue, 0, size, wallDistances, false);
+    
+    // coin distances: one search from every point
+    numPoints = coins.length + 1;
+    coinDistances = new int[numPoints * numPoints];
+    int[] distances = new int[track.size()];
+    for (int p = 0; p < numPoints; p++) {
+      Cell from = p == 0 ? start : coins[p - 1];
+      queue[0] = from.i * m + from.j;
+      search(track, queue, 1, distances, true);
+      for (int q = 0; q < numPoints; q++) {
+        Cell to = q == 0 ? start : coins[q - 1];
+        coinDistances[p * numPoints + q] = distances[to.i * m + to.j];
+      }
+    }
+    
+    // the cache (and the searches on packed states) are switched off on too large tracks
+    transitions = PackedState.fits(track) ? new TransitionCache(track, Integer.getInteger(TransitionCache.CAPACITY, TransitionCache.DEFAULT_CAPACITY)) : null;
+  }
+  
+  /**
+   * Breadth-first search from the specified sources.
+   * @param track searched on
+   * @param queue sources at the front, used as the queue of the search
+   * @param size number of sources
+   * @param distances the result, the distances of the cells from the nearest source
+   * @param walls the walls are not passable
+   */
+  private void search(TrackGrid track, int[] queue, int size, int[] distances, boolean walls) {
+    Arrays.fill(distances, UNREACHABLE);
+    for (int idx = 0; idx < size; idx++) {
+      distances[queue[idx]] = 0;
+    }
+    expand(track, queue, 0, size, distances, walls);
+  }
+  
+  /**
+   * Continues the breadth-first search on the specified queue.
+   * @param track searched on
+   * @param queue of the search
+   * @param head index of the next cell of the queue
+   * @param size number of cells in the queue
+   * @param distances of the cells, {@link TrackAnalysis#UNREACHABLE} for the not yet reached ones
+   * @param walls the walls are not passable
+   */
+  private void expand(TrackGrid track, int[] queue, int head, int size, int[] distances, boolean walls) {
+    while (head < size) {
+      int idx = queue[head++];
+      int i = idx / m;
+      int j = idx - i * m;
+      int distance = distances[idx] + 1;
+      for (int di = -1; di <= 1; di++) {
+        for (int dj = -1; dj <= 1; dj++) {
+          int ni = i + di;
+          int nj = j + dj;
+          if (0 <= ni && ni < n && 0 <= nj && nj < m) {
+            int nidx = ni * m + nj;
+            if (distances[nidx] == UNREACHABLE && !(walls && RaceTrackGame.mask(track.get(nidx), RaceTrackGame.WALL))) {
+              distances[nidx] = distance;
+              queue[size++] = nidx;
+            }
+          }
+        }
+      }
+    }
+  }
+  
+  /**
+   * Returns the number of 8-connected steps from the specified cell to the 
+   * nearest finish cell.
+   * @param i row index
+   * @param j column index
+   * @return distance to finish, {@link TrackAnalysis#UNREACHABLE} for walls 
+   * and cells the finish can not be reached from
+   */
+  public int distanceToFinish(int i, int j) {
+    return finishDistances[i * m + j];
+  }
+  
+  /**
+   * Returns the number of 8-connected steps from the specified cell to the 
+   * nearest wall (or to the outside of the track).
+   * @param i row index
+   * @param j column index
+   * @return distance to wall, zero for walls
+   */
+  public int distanceToWall(int i, int j) {
+    return wallDistances[i * m + j];
+  }
+  
+  /**
+   * Returns true, iff the finish can be reached from the specified cell.
+   * @param i row index
+   * @param j column index
+   * @return true, if the cell is reachable
+   */
+  public boolean isReachable(int i, int j) {
+    return finishDistances[i * m + j] != UNREACHABLE;
+  }
+  
+  /**
+   * Returns the number of points of the coin distance table, that is the 
+   * number of coins plus one (the start).
+   * @return number of points
+   */
+  public int getNumPoints() {
+    return numPoints;
+  }
+  
+  /**
+   * Returns the distance between the specified points of the coin distance 
+   * table, point 0 is the start and point k + 1 is the coin k.
+   * @param from index of the point
+   * @param to index of the point
+   * @return distance, {@link TrackAnalysis#UNREACHABLE} if they are not connected
+   */
+  public int coinDistance(int from, int to) {
+    return coinDistances[from * numPoints + to];
+  }
+  
+  /**
+   * Returns the cache of the moves on the track, shared by the players.
+   * @return transition cache
+   * @throws IllegalStateException if the states of the track can not be 
+   * packed (see {@link PackedState#fits(TrackGrid)}), the cache is not created
+   */
+  public TransitionCache getTransitions() {
+    if (transitions == null) {
+      throw new IllegalStateException("the states of the track can not be packed: " + n + "x" + m);
+    }
+    return transitions;
+  }
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package game.racetrack.utils;
+
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+
+/**
+ * Represents a track as a single row-major array of cells. A cell holds the 
+ * flags of the track (walls, finish, traces, coins and players, at most 16 
+ * bits), so the cells are stored as shorts. A cell can be addressed by its 
+ * row and column or by its index (row * {@link TrackGrid#m} + column).
+ */
+public final class TrackGrid {
+  /** number of rows */
+  public final int n;
+  /** number of columns */
+  public final int m;
+  private final short[] cells;
+  
+  /**
+   * Creates a grid of the specified size, every cell is zero.
+   * @param n number of rows
+   * @param m number of columns
+   */
+  public TrackGrid(int n, int m) {
+    this.n = n;
+    this.m = m;
+    this.cells = new short[n * m];
+  }
+  
+  /**
+   * Creates a grid by the values of the specified rectangular array.
+   * @param track to be copied
+   */
+  public TrackGrid(int[][] track) {
+    this(track.length, track.length == 0 ? 0 : track[0].length);
+    set(track);
+  }
+  
+  /**
+   * Copy constructor.
+   * @param grid to be copied
+   */
+  public TrackGrid(TrackGrid grid) {
+    this.n = grid.n;
+    this.m = grid.m;
+    this.cells = Arrays.copyOf(grid.cells, grid.cells.length);
+  }
+  
+  /**
+   * Creates a grid of the specified size by the cells of the specified 
+   * buffer (e.g. a memory-mapped file), the cells are copied.
+   * @param n number of rows
+   * @param m number of columns
+   * @param source row-major cells, n * m are read
+   */
+  public TrackGrid(int n, int m, ShortBuffer source) {
+    this(n, m);
+    source.get(cells);
+  }
+  
+  /**
+   * Returns the number of cells.
+   * @return n * m
+   */
+  public int size() {
+    return cells.length;
+  }
+  
+  /**
+   * Returns the index of the specified cell.
+   * @param i row index
+   * @param j column index
+   * @return index of the cell
+   */
+  public int index(int i, int j) {
+    return i * m + j;
+  }
+  
+  /**
+   * Returns true, iff the specified position is on the grid.
+   * @param i row index
+   * @param j column index
+   * @return true, if the position is on the grid
+   */
+  public boolean contains(int i, int j) {
+    return 0 <= i && i < n && 0 <= j && j < m;
+  }
+  
+  /**
+   * Returns the value of the specified cell.
+   * @param i row index
+   * @param j column index
+   * @return value of the cell
+   */
+  public int get(int i, int j) {
+    return cells[i * m + j];
+  }
+  
+  /**
+   * Returns the value of the cell at the specified index.
+   * @param idx index of the cell
+   * @return value of the cell
+   */
+  public int get(int idx) {
+    return cells[idx];
+  }
+  
+  /**
+   * Sets the value of the specified cell.
+   * @param i row index
+   * @param j column index
+   * @param value to be set
+   */
+  public void set(int i, int j, int value) {
+    cells[i * m + j] = (short) value;
+  }
+  
+  /**
+   * Sets the value of the cell at the specified index.
+   * @param idx index of the cell
+   * @param value to be set
+   */
+  public void set(int idx, int value) {
+    cells[idx] = (short) value;
+  }
+  
+  /**
+   * Sets the specified bits of the specified cell.
+   * @param i row index
+   * @param j column index
+   * @param bits to be set
+   */
+  public void or(int i, int j, int bits) {
+    cells[i * m + j] |= bits;
+  }
+  
+  /**
+   * Toggles the specified bits of the specified cell.
+   * @param i row index
+   * @param j column index
+   * @param bits to be toggled
+   */
+  public void xor(int i, int j, int bits) {
+    cells[i * m + j] ^= bits;
+  }
+  
+  /**
+   * Returns true iff the specified cell contains the specified mask.
+   * @param i row index
+   * @param j column index
+   * @param mask to be found
+   * @return true, if every bit of the mask is set
+   */
+  public boolean mask(int i, int j, int mask) {
+    return (cells[i * m + j] & mask) == mask;
+  }
+  
+  /**
+   * Sets the cells by the values of the specified array of the same size.
+   * @param track values to be set
+   */
+  public void set(int[][] track) {
+    for (int i = 0; i < n; i++) {
+      int[] row = track[i];
+      int offset = i * m;
+      for (int j = 0; j < m; j++) {
+        cells[offset + j] = (short) row[j];
+      }
+    }
+  }
+  
+  /**
+   * Sets the cells by the values of the specified grid of the same size.
+   * @param grid values to be set
+   */
+  public void set(TrackGrid grid) {
+    System.arraycopy(grid.cells, 0, cells, 0, cells.length);
+  }
+  
+  /**
+   * Copies the cells to the specified array of the same size.
+   * @param track values are copied to
+   */
+  public void copyTo(int[][] track) {
+    for (int i = 0; i < n; i++) {
+      int[] row = track[i];
+      int offset = i * m;
+      for (int j = 0; j < m; j++) {
+        row[j] = cells[offset + j];
+      }
+    }
+  }
+  
+  /**
+   * Copies the cells to the specified buffer.
+   * @param target row-major cells are written to, n * m are written
+   */
+  public void copyTo(ShortBuffer target) {
+    target.put(cells);
+  }
+  
+  /**
+   * Returns the cells as a new array of rows, the compatibility view of the 
+   * track for the players.
+   * @return copy of the cells
+   */
+  public int[][] toArray() {
+    int[][] track = new int[n][m];
+    copyTo(track);
+    return track;
+  }
+  
+  @Override
+  public boolean equals(Object obj) {
+    if (obj instanceof TrackGrid) {
+      TrackGrid grid = (TrackGrid) obj;
+      return n == grid.n && m == grid.m && Arrays.equals(cells, grid.cells);
+    }
+    return false;
+  }
+  
+  @Override
+  public int hashCode() {
+    return 31 * (31 * n + m) + Arrays.hashCode(cells);
+  }
+}
@@ -0,0 +1,396 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package game.racetrack.utils;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import game.racetrack.RaceTrackGame;
+
+/**
+ * File of prebuilt track layouts (the track, the baseline path and the coins
+ * of {@link RaceTrackGame#createLayout(Key)}), keyed by the parameters of the
+ * track. The games attach the layout of their parameters from the pack set by
+ * the <code>racetrack.pack</code> system property, instead of generating it;
+ * the parameters missing from the pack are generated as usual.
+ * <pre>
+ * pack      := MAGIC VERSION count directory{count} layout{count}
+ * directory := n m scale cleanProb numCoins seed offset length
+ * layout    := rows columns cell{rows * columns} pathLength cellIndex{pathLength} coinCount (i j value){coinCount}
+ * </pre>
+ * The file is read by memory-mapping, a layout is mapped when it is attached
+ * (the cells are copied by one bulk read). The layouts of a pack are
+ * generated in parallel.
+ */
+public final class TrackPack implements Closeable {
+  /** system property of the pack file of the games */
+  public static final String PACK = "racetrack.pack";
+  /** first bytes of a pack file */
+  public static final byte[] MAGIC = new byte[] {'R', 'T', 'P', 'K'};
+  /** version of the format */
+  public static final int VERSION = 1;
+
+  private static final int DIRECTORY_ENTRY = 48;
+  private static TrackPack system = null;
+  private static String systemFile = null;
+
+  /**
+   * Parameters of a track.
+   */
+  public static final class Key {
+    /** number of rows of the maze */
+    public final int n;
+    /** number of columns of the maze */
+    public final int m;
+    /** factor of the upscale */
+    public final int scale;
+    /** probability of making holes in the walls */
+    public final double cleanProb;
+    /** number of coins */
+    public final int numCoins;
+    /** random seed */
+    public final long seed;
+
+    /**
+     * Creates a key by the specified values.
+     * @param n number of rows of the maze
+     * @param m number of columns of the maze
+     * @param scale factor of the upscale
+     * @param cleanProb probability of making holes in the walls
+     * @param numCoins number of coins
+     * @param seed random seed
+     */
+    public Key(int n, int m, int scale, double cleanProb, int numCoins, long seed) {
+      this.n = n;
+      this.m = m;
+      this.scale = scale;
+      this.cleanProb = cleanProb;
+      this.numCoins = numCoins;
+      this.seed = seed;
+    }
+
+    /**
+     * Returns the key of the specified game parameters (the ones of the
+     * {@link RaceTrackGame}, the first six are used).
+     * @param params parameters of the game
+     * @return key of the track
+     */
+    public static Key of(String[] params) {
+      return new Key(Integer.parseInt(params[0]), Integer.parseInt(params[1]), Integer.parseInt(params[2]),
+          Double.parseDouble(params[3]), Integer.parseInt(params[4]), Long.parseLong(params[5]));
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (obj instanceof Key) {
+        Key key = (Key) obj;
+        return n == key.n && m == key.m && scale == key.scale && Double.compare(cleanProb, key.cleanProb) == 0
+            && numCoins == key.numCoins && seed == key.seed;
+      }
+      return false;
+    }
+
+    @Override
+    public int hashCode() {
+      return Arrays.hashCode(new long[] {n, m, scale, Double.doubleToLongBits(cleanProb), numCoins, seed});
+    }
+
+    @Override
+    public String toString() {
+      return n + " " + m + " " + scale + " " + cleanProb + " " + numCoins + " " + seed;
+    }
+  }
+
+  /**
+   * Layout of a track: the cells, the baseline path and the coins.
+   */
+  public static final class Layout {
+    /** cells of the track */
+    public final TrackGrid track;
+    /** shortest path from the start to the finish */
+    public final List<PathCell> path;
+    /** coins on the track */
+    public final Coin[] coins;
+
+    /**
+     * Creates a layout by the specified values.
+     * @param track cells of the track
+     * @param path shortest path from the start to the finish
+     * @param coins on the track
+     */
+    public Layout(TrackGrid track, List<PathCell> path, Coin[] coins) {
+      this.track = track;
+      this.path = path;
+      this.coins = coins;
+    }
+  }
+
+  private final RandomAccessFile file;
+  private final Map<Key, long[]> directory = new HashMap<Key, long[]>();
+
+  /**
+   * Opens the specified pack file.
+   * @param file to be opened
+   * @throws IOException if the file can not be read or it is not a pack
+   */
+  public TrackPack(File file) throws IOException {
+    this.file = new RandomAccessFile(file, "r");
+    try {
+      FileChannel channel = this.file.getChannel();
+      ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, MAGIC.length + 8);
+      byte[] magic = new byte[MAGIC.length];
+      header.get(magic);
+      if (!Arrays.equals(MAGIC, magic) || header.getInt() != VERSION) {
+        throw new IOException("not a track pack (or of an other version): " + file);
+      }
+      int count = header.getInt();
+      ByteBuffer entries = channel.map(FileChannel.MapMode.READ_ONLY, MAGIC.length + 8, (long) count * DIRECTORY_ENTRY);
+      for (int idx = 0; idx < count; idx++) {
+        Key key = new Key(entries.getInt(), entries.getInt(), entries.getInt(), Double.longBitsToDouble(entries.getLong()), entries.getInt(), entries.getLong());
+        directory.put(key, new long[] {entries.getLong(), entries.getLong()});
+      }
+    } catch (IOException e) {
+      this.file.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Returns the pack set by the <code>racetrack.pack</code> system property,
+   * it is opened at the first call and shared by the games.
+   * @return pack of the games, null if the property is not set
+   * @throws IllegalArgumentException if the pack can not be opened
+   */
+  public static synchronized TrackPack system() {
+    String name = System.getProperty(PACK);
+    if (name == null || name.isEmpty()) {
+      return null;
+    }
+    if (system == null || !name.equals(systemFile)) {
+      try {
+        system = new TrackPack(new File(name));
+        systemFile = name;
+      } catch (IOException e) {
+        throw new IllegalArgumentException("the track pack can not be opened: " + name, e);
+      }
+    }
+    return system;
+  }
+
+  /**
+   * Returns the number of layouts in the pack.
+   * @return number of layouts
+   */
+  public int size() {
+    return directory.size();
+  }
+
+  /**
+   * Returns true, iff the pack has the layout of the specified key.
+   * @param key parameters of the track
+   * @return true, if the layout is in the pack
+   */
+  public boolean contains(Key key) {
+    return directory.containsKey(key);
+  }
+
+  /**
+   * Returns a copy of the layout of the specified key.
+   * @param key parameters of the track
+   * @return layout, null if it is not in the pack
+   * @throws IllegalStateException if the layout can not be read
+   */
+  public Layout get(Key key) {
+    long[] entry = directory.get(key);
+    if (entry == null) {
+      return null;
+    }
+    MappedByteBuffer buffer;
+    try {
+      buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, entry[0], entry[1]);
+    } catch (IOException e) {
+      throw new IllegalStateException("the layout can not be read: " + key, e);
+    }
+    int rows = buffer.getInt();
+    int columns = buffer.getInt();
+    TrackGrid track = new TrackGrid(rows, columns, buffer.asShortBuffer());
+    buffer.position(buffer.position() + 2 * rows * columns);
+    int length = buffer.getInt();
+    List<PathCell> path = new ArrayList<PathCell>(length);
+    PathCell parent = null;
+    for (int idx = 0; idx < length; idx++) {
+      int cell = buffer.getInt();
+      parent = new PathCell(cell / columns, cell % columns, parent);
+      path.add(parent);
+    }
+    Coin[] coins = new Coin[buffer.getInt()];
+    for (int idx = 0; idx < coins.length; idx++) {
+      coins[idx] = new Coin(buffer.getInt(), buffer.getInt(), buffer.getInt());
+    }
+    return new Layout(track, path, coins);
+  }
+
+  @Override
+  public void close() throws IOException {
+    file.close();
+  }
+
+  /**
+   * Returns the layout serialized as a block of the pack.
+   * @param layout to be serialized
+   * @return block of the layout
+   */
+  private static ByteBuffer serialize(Layout layout) {
+    TrackGrid track = layout.track;
+    ByteBuffer buffer = ByteBuffer.allocate(8 + 2 * track.size() + 4 + 4 * layout.path.size() + 4 + 12 * layout.coins.length);
+    buffer.putInt(track.n);
+    buffer.putInt(track.m);
+    track.copyTo(buffer.asShortBuffer());
+    buffer.position(buffer.position() + 2 * track.size());
+    buffer.putInt(layout.path.size());
+    for (Cell cell : layout.path) {
+      buffer.putInt(track.index(cell.i, cell.j));
+    }
+    buffer.putInt(layout.coins.length);
+    for (Coin coin : layout.coins) {
+      buffer.putInt(coin.i);
+      buffer.putInt(coin.j);
+      buffer.putInt(coin.value);
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  /**
+   * Generates the layouts of the specified keys on the specified number of
+   * threads and writes them to the specified pack file. The layouts are
+   * written in the order they are finished, the directory is written last.
+   * @param file pack to be written
+   * @param keys parameters of the tracks
+   * @param threads number of generator threads
+   * @throws Exception file IO, generator errors
+   */
+  public static void write(File file, Set<Key> keys, int threads) throws Exception {
+    ExecutorService service = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable);
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    CompletionService<Object[]> completion = new ExecutorCompletionService<Object[]>(service);
+    for (final Key key : keys) {
+      completion.submit(new Callable<Object[]>() {
+        @Override
+        public Object[] call() throws Exception {
+          return new Object[] {key, serialize(RaceTrackGame.createLayout(key))};
+        }
+      });
+    }
+    RandomAccessFile os = new RandomAccessFile(file, "rw");
+    try {
+      os.setLength(0);
+      FileChannel channel = os.getChannel();
+      ByteBuffer directory = ByteBuffer.allocate(MAGIC.length + 8 + keys.size() * DIRECTORY_ENTRY);
+      directory.put(MAGIC);
+      directory.putInt(VERSION);
+      directory.putInt(keys.size());
+      long offset = directory.capacity();
+      for (int idx = 0; idx < keys.size(); idx++) {
+        Object[] result = completion.take().get();
+        Key key = (Key) result[0];
+        ByteBuffer block = (ByteBuffer) result[1];
+        int length = block.remaining();
+        while (block.hasRemaining()) {
+          offset += channel.write(block, offset);
+        }
+        directory.putInt(key.n).putInt(key.m).putInt(key.scale).putLong(Double.doubleToLongBits(key.cleanProb));
+        directory.putInt(key.numCoins).putLong(key.seed).putLong(offset - length).putLong(length);
+      }
+      directory.flip();
+      long position = 0;
+      while (directory.hasRemaining()) {
+        position += channel.write(directory, position);
+      }
+    } finally {
+      os.close();
+      service.shutdownNow();
+    }
+  }
+
+  /**
+   * Entry point of the pack builder. Every line of the specified file is the
+   * parameters of a game (optionally after the class of the game, as in the
+   * games file of the {@link game.engine.GameRunner}), the layouts of the
+   * different tracks are written to the pack.
+   * @param args command line arguments
+   * @throws Exception file IO, generator errors
+   */
+  public static void main(String[] args) throws Exception {
+    if (args.length < 2) {
+      System.err.println("required parameters for the pack builder are:");
+      System.err.println("\t- games file: lines of (game class and) game parameters");
+      System.err.println("\t- pack file : the layouts are written to");
+      System.err.println("\t- threads   : number of generator threads (optional, default: number of processors)");
+      System.exit(1);
+    }
+    int threads = args.length < 3 ? Runtime.getRuntime().availableProcessors() : Integer.parseInt(args[2]);
+    Set<Key> keys = new LinkedHashSet<Key>();
+    BufferedReader is = new BufferedReader(new InputStreamReader(new FileInputStream(args[0]), "utf8"));
+    String line;
+    while ((line = is.readLine()) != null) {
+      line = line.trim();
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+      String[] tokens = line.split("\\s+");
+      if (tokens[0].equals(RaceTrackGame.class.getName())) {
+        tokens = Arrays.copyOfRange(tokens, 1, tokens.length);
+      }
+      keys.add(Key.of(tokens));
+    }
+    is.close();
+    long start = System.nanoTime();
+    write(new File(args[1]), keys, threads);
+    double seconds = (System.nanoTime() - start) / 1E9;
+    System.err.println("layouts: " + keys.size() + " time: " + seconds + " s");
+  }
+}
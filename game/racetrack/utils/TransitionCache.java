@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+
+package game.racetrack.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import game.racetrack.Direction;
+import game.racetrack.RaceTrackGame;
+
+/**
+ * Bounded, concurrent cache of the moves of {@link RaceTrackGame#move(long, Direction, TrackGrid)} 
+ * on a track, shared by the players through the {@link TrackAnalysis}. The 
+ * states are packed by {@link PackedState}. The result of a move depends 
+ * only on the position and the velocity after the acceleration, so that is 
+ * the key of the cache, the value is the packed state after the move.
+ * <p>
+ * The cache is a two-way set associative table, a new key evicts one of the 
+ * keys of its set. A slot is a stamp, a key and a value, the writers lock the slot 
+ * by making its stamp odd (writers do not wait, they just skip caching if 
+ * the slot is locked), the readers check that the stamp has not changed 
+ * while they read the key and the value. Lookups do not allocate objects.
+ */
+public final class TransitionCache {
+  /** name of the system property of the number of slots */
+  public static final String CAPACITY = "racetrack.transitions";
+  /** default number of slots */
+  public static final int DEFAULT_CAPACITY = 1 << 16;
+  
+  private final TrackGrid track;
+  private final AtomicLongArray slots;
+  private final int shift;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  
+  /**
+   * Creates a cache of the moves on the specified track (the cache works on 
+   * a copy, the walls of a track do not change during the game).
+   * @param track moves are made on
+   * @param capacity number of slots (rounded up to a power of two, at least four)
+   * @throws IllegalArgumentException if the states of the track can not be 
+   * packed (see {@link PackedState#fits(TrackGrid)})
+   */
+  public TransitionCache(TrackGrid track, int capacity) {
+    if (!PackedState.fits(track)) {
+      throw new IllegalArgumentException("the states of the track can not be packed: " + track.n + "x" + track.m);
+    }
+    this.track = new TrackGrid(track);
+    int bits = 32 - Integer.numberOfLeadingZeros(Math.max(4, capacity) - 1);
+    this.shift = 65 - bits;
+    this.slots = new AtomicLongArray(3 << bits);
+  }
+  
+  /**
+   * Returns the packed state after moving from the specified packed state by 
+   * the specified direction.
+   * @param state packed state before the move
+   * @param direction direction to be applied
+   * @return packed state after the move
+   */
+  public long move(long state, Direction direction) {
+    long key = PackedState.pack(PackedState.i(state), PackedState.j(state), PackedState.vi(state) + direction.i, PackedState.vj(state) + direction.j);
+    long hash = key * 0x9E3779B97F4A7C15L;
+    int set = 6 * (int) (hash >>> shift);
+    for (int slot = set; slot < set + 6; slot += 3) {
+      long stamp = slots.get(slot);
+      if (stamp != 0 && (stamp & 1) == 0 && slots.get(slot + 1) == key) {
+        long value = slots.get(slot + 2);
+        if (slots.get(slot) == stamp) {
+          hits.increment();
+          return value;
+        }
+      }
+    }
+    misses.increment();
+    long value = RaceTrackGame.move(key, RaceTrackGame.DIRECTIONS[0], track);
+    // an empty way is used first, otherwise the victim depends on the key
+    int slot = slots.get(set) == 0 ? set : (slots.get(set + 3) == 0 ? set + 3 : set + 3 * (int) (hash >>> 31 & 1));
+    long stamp = slots.get(slot);
+    if ((stamp & 1) == 0 && slots.compareAndSet(slot, stamp, stamp + 1)) {
+      if (stamp != 0 && slots.get(slot + 1) != key) {
+        evictions.increment();
+      }
+      slots.set(slot + 1, key);
+      slots.set(slot + 2, value);
+      slots.set(slot, stamp + 2);
+    }
+    return value;
+  }
+  
+  /**
+   * Moves the specified state by the specified direction, the state is 
+   * updated.
+   * @param state to be moved
+   * @param direction direction to be applied
+   * @return true, if the move has collided with a wall
+   */
+  public boolean move(PlayerState state, Direction direction) {
+    long from = PackedState.pack(state);
+    long to = move(from, direction);
+    PackedState.unpack(to, state);
+    return isCollision(from, direction, to);
+  }
+  
+  /**
+   * Returns true, iff the specified move has collided with a wall (the 
+   * velocity after the move is not the accelerated one).
+   * @param from packed state before the move
+   * @param direction direction has been applied
+   * @param to packed state after the move
+   * @return true, if there was a collision
+   */
+  public static boolean isCollision(long from, Direction direction, long to) {
+    return PackedState.vi(to) != PackedState.vi(from) + direction.i || PackedState.vj(to) != PackedState.vj(from) + direction.j;
+  }
+  
+  /**
+   * Returns the number of slots.
+   * @return capacity of the cache
+   */
+  public int getCapacity() {
+    return slots.length() / 3;
+  }
+  
+  /**
+   * Returns the number of lookups found in the cache.
+   * @return number of hits
+   */
+  public long getHits() {
+    return hits.sum();
+  }
+  
+  /**
+   * Returns the number of lookups computed by the track.
+   * @return number of misses
+   */
+  public long getMisses() {
+    return misses.sum();
+  }
+  
+  /**
+   * Returns the number of keys have been replaced by other keys.
+   * @return number of evictions
+   */
+  public long getEvictions() {
+    return evictions.sum();
+  }
+  
+  @Override
+  public String toString() {
+    return "{\"capacity\":" + getCapacity() + ",\"hits\":" + getHits() + ",\"misses\":" + getMisses() + ",\"evictions\":" + getEvictions() + "}";
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+package game.racetrack.bench;
+
+import java.util.Random;
+
+import game.racetrack.RaceTrackGame;
+import game.racetrack.utils.Cell;
+import game.racetrack.utils.TrackGrid;
+
+/**
+ * Inputs of the kernel benchmarks: mazes, cells and velocities.
+ */
+final class Fixtures {
+  
+  private Fixtures() {
+  }
+  
+  /**
+   * Returns the initial maze of the specified size with the start and the 
+   * finish opened, as the game prepares it.
+   * @param n number of rows and columns
+   * @return initial maze
+   */
+  static TrackGrid initMaze(int n) {
+    TrackGrid maze = RaceTrackGame.initGrid(n, n);
+    maze.xor(0, 1, RaceTrackGame.WALL);
+    maze.or(0, 1, RaceTrackGame.EMPTY);
+    maze.xor(0, n - 2, RaceTrackGame.WALL);
+    maze.or(0, n - 2, RaceTrackGame.FINISH | RaceTrackGame.EMPTY);
+    return maze;
+  }
+  
+  /**
+   * Returns the specified number of random cells of the specified track that 
+   * are not walls.
+   * @param track to be sampled
+   * @param count number of cells
+   * @param random random number generator
+   * @return cells of the track
+   */
+  static Cell[] cells(TrackGrid track, int count, Random random) {
+    Cell[] cells = new Cell[count];
+    int idx = 0;
+    while (idx < count) {
+      int i = random.nextInt(track.n);
+      int j = random.nextInt(track.m);
+      if (RaceTrackGame.isNotWall(i, j, track)) {
+        cells[idx++] = new Cell(i, j);
+      }
+    }
+    return cells;
+  }
+  
+  /**
+   * Returns a random velocity of the specified speed (the larger absolute 
+   * component is the speed).
+   * @param speed of the velocity
+   * @param random random number generator
+   * @return row and column components
+   */
+  static int[] velocity(int speed, Random random) {
+    int major = random.nextBoolean() ? speed : -speed;
+    int minor = random.nextInt(2 * speed + 1) - speed;
+    return random.nextBoolean() ? new int[] {major, minor} : new int[] {minor, major};
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+package game.racetrack.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import game.racetrack.RaceTrackGame;
+import game.racetrack.utils.TrackGrid;
+
+/**
+ * JMH benchmarks of the maze generation steps of {@link RaceTrackGame} 
+ * ({@link RaceTrackGame#generate(int, int, TrackGrid, Random)}, 
+ * {@link RaceTrackGame#makeHoles(TrackGrid, int, double, Random)}) by maze 
+ * size, the inputs are of {@link Fixtures}. The mutated mazes 
+ * are copied before every invocation, outside of the measurement.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MazeKernels {
+  /** number of rows and columns of the maze (odd) */
+  @Param({"21", "51", "101"})
+  public int n;
+  
+  private Random random;
+  private TrackGrid initial;
+  private TrackGrid maze;
+  
+  @Setup(Level.Trial)
+  public void setup() {
+    random = new Random(n * 31);
+    initial = Fixtures.initMaze(n);
+    maze = new TrackGrid(initial);
+    RaceTrackGame.generate(1, 1, maze, random);
+  }
+  
+  /**
+   * Copy of the initial maze, to be generated.
+   */
+  @State(Scope.Thread)
+  public static class Initial {
+    private TrackGrid grid;
+    
+    @Setup(Level.Invocation)
+    public void setup(MazeKernels kernels) {
+      grid = new TrackGrid(kernels.initial);
+    }
+  }
+  
+  /**
+   * Copy of the generated maze, to be holed.
+   */
+  @State(Scope.Thread)
+  public static class Generated {
+    private TrackGrid grid;
+    
+    @Setup(Level.Invocation)
+    public void setup(MazeKernels kernels) {
+      grid = new TrackGrid(kernels.maze);
+    }
+  }
+  
+  @Benchmark
+  public TrackGrid generate(Initial initial) {
+    RaceTrackGame.generate(1, 1, initial.grid, random);
+    return initial.grid;
+  }
+  
+  @Benchmark
+  public TrackGrid makeHoles(Generated generated) {
+    RaceTrackGame.makeHoles(generated.grid, 1, 0.2, random);
+    return generated.grid;
+  }
+}
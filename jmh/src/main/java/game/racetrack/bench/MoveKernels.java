@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+package game.racetrack.bench;
+
+import java.lang.reflect.Constructor;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import game.engine.utils.Pair;
+import game.racetrack.Direction;
+import game.racetrack.RaceTrackGame;
+import game.racetrack.RaceTrackPlayer;
+import game.racetrack.players.DummyPlayer;
+import game.racetrack.utils.Cell;
+import game.racetrack.utils.PackedState;
+import game.racetrack.utils.TrackGrid;
+
+/**
+ * JMH benchmarks of the lines ({@link RaceTrackGame#line8connect(Cell, Cell)}, 
+ * {@link RaceTrackGame#line4connect(Cell, Cell)}, {@link RaceTrackGame#lineCrossing(Cell, Cell)}), 
+ * the move ({@link RaceTrackGame#move(long, Direction, TrackGrid)}) and the 
+ * turn of a running game ({@link RaceTrackGame#setAction(RaceTrackPlayer, Direction, long)}) 
+ * by maze size, scale and speed. The inputs of the lines and the move are 
+ * precomputed, an invocation takes the next one; the player of the game 
+ * keeps the speed on the open track, as in {@link MoveBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MoveKernels {
+  /** number of precomputed inputs */
+  private static final int INPUTS = 1 << 12;
+  
+  /** number of rows and columns of the maze (odd) */
+  @Param({"21", "51", "101"})
+  public int n;
+  /** scale of the track */
+  @Param({"1", "5", "10"})
+  public int scale;
+  /** speed of the moves (the larger absolute component of the velocity) */
+  @Param({"1", "4", "16"})
+  public int speed;
+  
+  private final Cell[] to = new Cell[INPUTS];
+  private final long[] states = new long[INPUTS];
+  private final Direction[] directions = new Direction[INPUTS];
+  private Cell[] from;
+  private TrackGrid track;
+  private RaceTrackGame game;
+  private RaceTrackPlayer player;
+  private Random control;
+  private int[] heading;
+  private int next;
+  
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    String[] params = new String[] {Integer.toString(n), Integer.toString(n), Integer.toString(scale), "1.0", "0", "1", "1000", DummyPlayer.class.getName()};
+    game = new RaceTrackGame(System.err, false, params);
+    Pair<Constructor<? extends RaceTrackPlayer>, Object[]> constructor = game.getPlayerConstructors().get(0);
+    player = constructor.first.newInstance(constructor.second);
+    track = new TrackGrid(player.track);
+    Random random = new Random(n * 31 + scale * 7 + speed);
+    from = Fixtures.cells(track, INPUTS, random);
+    for (int idx = 0; idx < INPUTS; idx++) {
+      int[] v = Fixtures.velocity(speed, random);
+      to[idx] = new Cell(from[idx].i + v[0], from[idx].j + v[1]);
+      states[idx] = PackedState.pack(from[idx].i, from[idx].j, v[0], v[1]);
+      directions[idx] = RaceTrackGame.DIRECTIONS[random.nextInt(RaceTrackGame.DIRECTIONS.length)];
+    }
+    List<Pair<? extends RaceTrackPlayer, Long>> players = new LinkedList<Pair<? extends RaceTrackPlayer, Long>>();
+    players.add(new Pair<RaceTrackPlayer, Long>(player, 0L));
+    game.setPlayers(players);
+    control = new Random(speed);
+    heading = new int[4];
+  }
+  
+  @Benchmark
+  public int line8connect() {
+    int idx = next++ & (INPUTS - 1);
+    return RaceTrackGame.line8connect(from[idx], to[idx]).size();
+  }
+  
+  @Benchmark
+  public int line4connect() {
+    int idx = next++ & (INPUTS - 1);
+    return RaceTrackGame.line4connect(from[idx], to[idx]).size();
+  }
+  
+  @Benchmark
+  public int lineCrossing() {
+    int idx = next++ & (INPUTS - 1);
+    return RaceTrackGame.lineCrossing(from[idx], to[idx]).size();
+  }
+  
+  @Benchmark
+  public long move() {
+    int idx = next++ & (INPUTS - 1);
+    return RaceTrackGame.move(states[idx], directions[idx], track);
+  }
+  
+  @Benchmark
+  public void setAction() {
+    game.setAction(player, MoveBenchmark.control(player.state, speed, control, heading), 0);
+  }
+}
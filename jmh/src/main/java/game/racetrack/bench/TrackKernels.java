@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2008 University of Szeged
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+package game.racetrack.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import game.racetrack.RaceTrackGame;
+import game.racetrack.utils.TrackGrid;
+
+/**
+ * JMH benchmarks of the track building steps of {@link RaceTrackGame} 
+ * ({@link RaceTrackGame#scale(TrackGrid, int)}, {@link RaceTrackGame#cutCorners(TrackGrid)}, 
+ * {@link RaceTrackGame#BFS(int, int, TrackGrid)}) by maze size and scale.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TrackKernels {
+  /** number of rows and columns of the maze (odd) */
+  @Param({"21", "51", "101"})
+  public int n;
+  /** scale of the track */
+  @Param({"1", "5", "10"})
+  public int scale;
+  
+  private TrackGrid maze;
+  private TrackGrid scaled;
+  private TrackGrid track;
+  
+  @Setup(Level.Trial)
+  public void setup() {
+    Random random = new Random(n * 31 + scale);
+    maze = Fixtures.initMaze(n);
+    RaceTrackGame.generate(1, 1, maze, random);
+    RaceTrackGame.makeHoles(maze, 1, 0.2, random);
+    RaceTrackGame.replace(maze, RaceTrackGame.INIT, RaceTrackGame.EMPTY);
+    scaled = RaceTrackGame.scale(maze, scale);
+    track = new TrackGrid(scaled);
+    RaceTrackGame.cutCorners(track);
+    RaceTrackGame.replace(track, RaceTrackGame.INIT, RaceTrackGame.EMPTY);
+  }
+  
+  /**
+   * Copy of the scaled track, to be cut.
+   */
+  @State(Scope.Thread)
+  public static class Scaled {
+    private TrackGrid grid;
+    
+    @Setup(Level.Invocation)
+    public void setup(TrackKernels kernels) {
+      grid = new TrackGrid(kernels.scaled);
+    }
+  }
+  
+  @Benchmark
+  public TrackGrid scale() {
+    return RaceTrackGame.scale(maze, scale);
+  }
+  
+  @Benchmark
+  public TrackGrid cutCorners(Scaled scaled) {
+    RaceTrackGame.cutCorners(scaled.grid);
+    return scaled.grid;
+  }
+  
+  @Benchmark
+  public int BFS() {
+    return RaceTrackGame.BFS(scale / 2, scale + scale / 2, track).size();
+  }
+}